@@ -1,7 +1,17 @@
 package com.cole;
 
+import com.cole.Service.ActivityFeed;
+import com.cole.Service.ActivityLogger;
+import com.cole.Service.ActivityRetention;
+import com.cole.Service.ConfigService;
+import com.cole.Service.EmailOutbox;
 import com.cole.Service.GraduationService;
+import com.cole.Service.SLPService;
+import com.cole.Service.SmtpTransportPool;
+import com.cole.util.BackgroundTasks;
 import com.cole.util.DBInit;
+import com.cole.util.DBUtil;
+import com.cole.util.StartupPipeline;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -12,23 +22,46 @@ import javafx.stage.Stage;
  */
 public class App extends Application {
 
+    /** Startup stage: opens the pooled database connections. */
+    public static final String STAGE_POOL = "pool";
+    /** Startup stage: brings the schema up to date. Anything that queries the database waits on this. */
+    public static final String STAGE_SCHEMA = "schema";
+    /** Startup stage: full graduation recompute. */
+    public static final String STAGE_GRADUATION = "graduation";
+    /** Startup stage: loads reference data (SLPs) into memory. */
+    public static final String STAGE_REFERENCE_DATA = "reference-data";
+    /** Startup stage: starts delivering queued emails. */
+    public static final String STAGE_OUTBOX = "outbox";
+    /** Startup stage: moves old activity log entries to the archive. */
+    public static final String STAGE_ACTIVITY_RETENTION = "activity-retention";
+
+    private static final StartupPipeline startup = new StartupPipeline()
+        .stage(STAGE_POOL, DBUtil::warmUp)
+        .stage(STAGE_SCHEMA, DBInit::initializeDatabase, STAGE_POOL)
+        .stage(STAGE_GRADUATION, () -> new GraduationService().checkAndUpdateGraduationFlags(), STAGE_SCHEMA)
+        .stage(STAGE_REFERENCE_DATA, SLPService::preload, STAGE_SCHEMA)
+        .stage(STAGE_OUTBOX, EmailOutbox.shared()::start, STAGE_SCHEMA)
+        .stage(STAGE_ACTIVITY_RETENTION, ActivityRetention::run, STAGE_SCHEMA);
+
+    /**
+     * Gets the startup pipeline, so screens can wait on the stages they need.
+     *
+     * @return the application's startup pipeline
+     */
+    public static StartupPipeline getStartup() {
+        return startup;
+    }
+
     /**
      * Starts the JavaFX application.
-     * Initializes the database schema and sets up the main application window.
+     * Starts the background startup stages and shows the login window immediately.
      *
      * @param stage the primary stage for this application
      * @throws Exception if an error occurs during startup
      */
     @Override
     public void start(Stage stage) throws Exception {
-        try {
-            DBInit.initializeDatabase();
-            // Run graduation check after DB init
-            GraduationService graduationService = new GraduationService();
-            graduationService.checkAndUpdateGraduationFlags();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        startup.start();
         try {
             java.net.URL fxmlLocation = App.class.getResource("/fxml/login.fxml");
             if (fxmlLocation == null) {
@@ -46,6 +79,29 @@ public class App extends Application {
         }
     }
 
+    /**
+     * Stops the JavaFX application.
+     */
+    @Override
+    public void stop() {
+        shutdownServices();
+    }
+
+    /**
+     * Waits for background tasks, writes queued activity and releases pooled mail and
+     * database connections. Services that hold threads or connections are stopped here,
+     * in an order where nothing still running needs what was already stopped.
+     */
+    public static void shutdownServices() {
+        BackgroundTasks.shutdown();
+        ActivityLogger.shared().shutdown();
+        ActivityFeed.shared().shutdown();
+        EmailOutbox.shared().shutdown();
+        SmtpTransportPool.closeAll();
+        ConfigService.shared().shutdown();
+        DBUtil.shutdown();
+    }
+
     /**
      * The main method to launch the JavaFX application.
      * This method is used for testing purposes.
@@ -0,0 +1,203 @@
+package com.cole.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.cole.model.RecentActivity;
+import com.cole.util.DBUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The latest entries of {@code activity_log}, kept in memory and updated as entries
+ * are added.
+ * <p>
+ * The log is only read when something may have changed: at once when
+ * {@link ActivityLogger} commits a batch, and otherwise when
+ * {@link DBUtil#getDataVersion()}, checked every {@value #CHECK_INTERVAL_MILLIS} ms,
+ * shows a commit from elsewhere. Only entries with a higher ID than the newest one
+ * seen are fetched; the {@value #CAPACITY} newest are kept in a ring buffer, and
+ * listeners get just the new ones. If the newest entries disappear, e.g. after a
+ * restore, the buffer is read again and listeners are reset.
+ */
+public final class ActivityFeed {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityFeed.class);
+
+    /** Entries kept in memory. */
+    public static final int CAPACITY = 10;
+    /** How often other writers' changes are looked for. */
+    static final long CHECK_INTERVAL_MILLIS = 2_000;
+
+    /** Told about entries; called on the feed thread. */
+    public interface Listener {
+        /** @param entries entries newer than any before, newest first */
+        void added(List<RecentActivity> entries);
+
+        /** @param latest the newest entries, newest first, replacing any seen before */
+        void reset(List<RecentActivity> latest);
+    }
+
+    private static final ActivityFeed SHARED = new ActivityFeed();
+
+    /** Newest first; never more than {@link #CAPACITY}. */
+    private final Deque<RecentActivity> latest = new ArrayDeque<>(CAPACITY);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    /** Set when this process wrote to the log since the last check. */
+    private final AtomicBoolean written = new AtomicBoolean(true);
+    private final Runnable loggerListener = this::wake;
+    private ScheduledExecutorService worker;
+    private long lastSeenId;
+    private long lastDataVersion = Long.MIN_VALUE;
+    private volatile boolean loaded;
+
+    /** @return the application-wide feed */
+    public static ActivityFeed shared() {
+        return SHARED;
+    }
+
+    /**
+     * Adds a listener, which is first reset with the entries already known. The feed
+     * starts following the log when the first listener is added.
+     */
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        if (worker == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "activity-feed");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            worker = executor;
+            loaded = false;
+            written.set(true);
+            ActivityLogger.shared().addListener(loggerListener);
+            // The first check reloads and resets every listener
+            worker.scheduleWithFixedDelay(this::check, 0, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            worker.execute(() -> {
+                if (loaded) {
+                    listener.reset(snapshot());
+                }
+            });
+        }
+    }
+
+    /** Removes a listener; the feed stops following the log when none are left. */
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            shutdown();
+        }
+    }
+
+    /** Stops following the log. Called on exit. */
+    public synchronized void shutdown() {
+        if (worker != null) {
+            ActivityLogger.shared().removeListener(loggerListener);
+            worker.shutdownNow();
+            worker = null;
+        }
+    }
+
+    /** @return the newest entries known, newest first */
+    public synchronized List<RecentActivity> snapshot() {
+        return new ArrayList<>(latest);
+    }
+
+    private synchronized void wake() {
+        written.set(true);
+        if (worker != null) {
+            worker.execute(this::check);
+        }
+    }
+
+    /** Reads the entries added since the last check, if anything may have changed. */
+    private void check() {
+        try {
+            boolean signalled = written.getAndSet(false);
+            long dataVersion = DBUtil.getDataVersion();
+            if (!signalled && dataVersion == lastDataVersion) {
+                return;
+            }
+            // The high half changes when the database was closed, e.g. for a restore
+            boolean reopened = (dataVersion >>> 32) != (lastDataVersion >>> 32);
+            lastDataVersion = dataVersion;
+            if (!loaded || reopened) {
+                reload();
+                return;
+            }
+            List<RecentActivity> added = fetchAfter(lastSeenId);
+            if (added.isEmpty()) {
+                if (latestId() < lastSeenId) {
+                    // Entries we have seen are gone: the log was cleared or the database restored
+                    reload();
+                }
+                return;
+            }
+            synchronized (this) {
+                for (int i = added.size() - 1; i >= 0; i--) {
+                    latest.addFirst(added.get(i));
+                    if (latest.size() > CAPACITY) {
+                        latest.removeLast();
+                    }
+                }
+                lastSeenId = added.get(0).getId();
+            }
+            for (Listener listener : listeners) {
+                listener.added(added);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Reading recent activity failed: {}", e.getMessage());
+        }
+    }
+
+    private void reload() throws SQLException {
+        List<RecentActivity> fetched = fetchAfter(0);
+        synchronized (this) {
+            latest.clear();
+            latest.addAll(fetched);
+            lastSeenId = fetched.isEmpty() ? 0 : fetched.get(0).getId();
+            loaded = true;
+        }
+        for (Listener listener : listeners) {
+            listener.reset(fetched);
+        }
+    }
+
+    /** @return up to {@link #CAPACITY} entries with a higher ID, newest first */
+    private static List<RecentActivity> fetchAfter(long id) throws SQLException {
+        List<RecentActivity> entries = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                 "SELECT * FROM activity_log WHERE id > ? ORDER BY id DESC LIMIT ?")) {
+            ps.setLong(1, id);
+            ps.setInt(2, CAPACITY);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                entries.add(ActivityService.mapRow(rs));
+            }
+        }
+        return entries;
+    }
+
+    private static long latestId() throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM activity_log");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.cole.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.cole.util.DBUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes {@code activity_log} rows on a background thread, so logging an action does
+ * not make the UI wait for the disk.
+ * <p>
+ * Entries go into a bounded queue and one writer thread inserts them in batches, one
+ * transaction per batch, as soon as {@value #BATCH_SIZE} are waiting or
+ * {@value #FLUSH_INTERVAL_MILLIS} ms after the first one arrived. When the queue is full
+ * {@link #log} waits for room instead of dropping the entry. The time of an entry is
+ * taken when it is logged, not when it is written. {@link #shutdown()} writes what is
+ * still queued; entries logged after that are written at once. Safe to use from
+ * several threads.
+ */
+public final class ActivityLogger {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogger.class);
+
+    /** Entries that may wait to be written before {@link #log} blocks. */
+    static final int QUEUE_CAPACITY = 1024;
+    /** Most entries written in one transaction. */
+    static final int BATCH_SIZE = 100;
+    /** Longest an entry waits for more to arrive before it is written. */
+    static final long FLUSH_INTERVAL_MILLIS = 250;
+    /** Times a failed batch is written again before its entries are only logged. */
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    /** Same format as SQLite's CURRENT_TIMESTAMP, which is UTC. */
+    private static final DateTimeFormatter DB_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String INSERT_SQL =
+        "INSERT INTO activity_log (user_id, activity_type, description, activity_time) VALUES (?, ?, ?, ?)";
+
+    private static final ActivityLogger SHARED = new ActivityLogger();
+
+    /** One activity, or a request to write everything queued before it. */
+    private record Entry(int userId, String type, String description, String time, CountDownLatch flushed) { }
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private Thread writer;
+    private volatile boolean stopped;
+
+    /** @return the application-wide logger */
+    public static ActivityLogger shared() {
+        return SHARED;
+    }
+
+    /**
+     * Queues an activity, waiting if {@value #QUEUE_CAPACITY} entries are already waiting.
+     * @param userId user who did it
+     * @param type activity type, e.g. {@code TODO_ADDED}
+     * @param description what was done
+     */
+    public void log(int userId, String type, String description) {
+        Entry entry = new Entry(userId, type, description,
+                LocalDateTime.now(ZoneOffset.UTC).format(DB_TIMESTAMP_FORMAT), null);
+        if (stopped || !ensureWriter()) {
+            write(List.of(entry));
+            return;
+        }
+        try {
+            if (!queue.offer(entry)) {
+                logger.debug("Activity queue full; waiting for the writer");
+                queue.put(entry);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write(List.of(entry));
+        }
+    }
+
+    /** @param listener called on the writing thread after each batch is committed */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Waits until the entries logged so far are written.
+     * @param timeoutMillis longest time to wait
+     * @return false if they were not written in time
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        if (stopped || writerThread() == null) {
+            return true;
+        }
+        CountDownLatch flushed = new CountDownLatch(1);
+        if (!queue.offer(new Entry(0, null, null, null, flushed), timeoutMillis, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        return flushed.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Writes the queued entries and stops the writer thread. Called on exit, before the database closes. */
+    public void shutdown() {
+        stopped = true;
+        Thread w = writerThread();
+        if (w == null) {
+            return;
+        }
+        w.interrupt();
+        try {
+            w.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything the writer did not get to, e.g. logged while it was stopping
+        List<Entry> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        writeAll(rest);
+    }
+
+    private synchronized Thread writerThread() {
+        return writer;
+    }
+
+    private synchronized boolean ensureWriter() {
+        if (stopped) {
+            return false;
+        }
+        if (writer == null) {
+            writer = new Thread(this::run, "activity-logger");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        return true;
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (!stopped) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS);
+                while (batch.size() < BATCH_SIZE && batch.get(batch.size() - 1).flushed() == null) {
+                    long wait = deadline - System.nanoTime();
+                    Entry next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeAll(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Shutting down
+        }
+        // Write what was already taken and whatever is still queued
+        Thread.interrupted();
+        queue.drainTo(batch);
+        writeAll(batch);
+    }
+
+    /** Writes activities and releases the flush requests among them. */
+    private void writeAll(List<Entry> entries) {
+        List<Entry> activities = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (entry.flushed() == null) {
+                activities.add(entry);
+            }
+        }
+        if (!activities.isEmpty()) {
+            write(activities);
+        }
+        for (Entry entry : entries) {
+            if (entry.flushed() != null) {
+                entry.flushed().countDown();
+            }
+        }
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.error("Activity log listener failed", e);
+            }
+        }
+    }
+
+    private void write(List<Entry> activities) {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DBUtil.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+                    for (Entry entry : activities) {
+                        ps.setInt(1, entry.userId());
+                        ps.setString(2, entry.type());
+                        ps.setString(3, entry.description());
+                        ps.setString(4, entry.time());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    conn.commit();
+                    notifyListeners();
+                    return;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                if (attempt >= MAX_WRITE_ATTEMPTS) {
+                    logger.error("Could not write {} activity log entries", activities.size(), e);
+                    for (Entry entry : activities) {
+                        logger.error("Unwritten activity: {} user={} type={} {}", entry.time(), entry.userId(),
+                                entry.type(), entry.description());
+                    }
+                    return;
+                }
+                logger.warn("Writing {} activity log entries failed, retrying: {}", activities.size(), e.getMessage());
+                try {
+                    Thread.sleep(200L * attempt);
+                } catch (InterruptedException ie) {
+                    // Retry at once; shutdown is waiting for this write
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.cole.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import com.cole.Service.ConfigService.ConfigFile;
+import com.cole.util.DBUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps {@code activity_log} small by moving old entries to an archive database.
+ * <p>
+ * Entries older than {@code archive_after_days} are copied to {@code activity_log} in
+ * the archive file, counted into {@code activity_daily_rollup} and deleted, a batch of
+ * {@code batch_size} at a time so the log is never locked for long. The archive is
+ * written and committed before the entries are deleted, and copying ignores entries
+ * already archived, so an interrupted run is simply repeated. Values can be overridden
+ * in {@code activity_retention.properties} ({@link ConfigFile#ACTIVITY_RETENTION});
+ * {@code archive_after_days=0} keeps every entry in the log.
+ * <p>
+ * The archive is attached to a connection as schema {@value #ARCHIVE_SCHEMA} only
+ * while it is used; see {@link #attach(Connection, boolean)}.
+ */
+public final class ActivityRetention {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityRetention.class);
+
+    /** Schema name the archive database is attached as. */
+    static final String ARCHIVE_SCHEMA = "archive";
+
+    private static final String[] ARCHIVE_TABLES = {
+        "CREATE TABLE IF NOT EXISTS " + ARCHIVE_SCHEMA + ".activity_log (" +
+        "id INTEGER PRIMARY KEY, " +
+        "user_id INTEGER, " +
+        "activity_type TEXT, " +
+        "description TEXT, " +
+        "activity_time TEXT" +
+        ");",
+        "CREATE INDEX IF NOT EXISTS " + ARCHIVE_SCHEMA + ".idx_activity_log_time ON activity_log(activity_time);",
+        "CREATE INDEX IF NOT EXISTS " + ARCHIVE_SCHEMA + ".idx_activity_log_user_time ON activity_log(user_id, activity_time);"
+    };
+
+    /** Entries of one batch: older than the cutoff and no later than the batch's last time. */
+    private static final String BATCH_WHERE = " WHERE activity_time < ? AND activity_time <= ?";
+
+    private static final String ARCHIVE_SQL =
+        "INSERT OR IGNORE INTO " + ARCHIVE_SCHEMA + ".activity_log (id, user_id, activity_type, description, activity_time) " +
+        "SELECT id, user_id, activity_type, description, activity_time FROM main.activity_log" + BATCH_WHERE;
+
+    private static final String ROLLUP_SQL =
+        "INSERT INTO main.activity_daily_rollup (day, user_id, activity_type, activity_count) " +
+        "SELECT date(activity_time), COALESCE(user_id, 0), COALESCE(activity_type, ''), COUNT(*) " +
+        "FROM main.activity_log" + BATCH_WHERE + " GROUP BY 1, 2, 3 " +
+        "ON CONFLICT (day, user_id, activity_type) DO UPDATE SET activity_count = activity_count + excluded.activity_count";
+
+    private static final String DELETE_SQL = "DELETE FROM main.activity_log" + BATCH_WHERE;
+
+    private final int archiveAfterDays;
+    private final int batchSize;
+    private final Path archiveFile;
+
+    private ActivityRetention(int archiveAfterDays, int batchSize, Path archiveFile) {
+        this.archiveAfterDays = archiveAfterDays;
+        this.batchSize = batchSize;
+        this.archiveFile = archiveFile;
+    }
+
+    /** @return the current settings, from {@link ConfigFile#ACTIVITY_RETENTION} */
+    public static ActivityRetention get() {
+        ActivityRetention base = defaults();
+        ConfigService config = ConfigService.shared();
+        String file = config.get(ConfigFile.ACTIVITY_RETENTION, "archive_file", "");
+        return new ActivityRetention(
+                config.getInt(ConfigFile.ACTIVITY_RETENTION, "archive_after_days", base.archiveAfterDays),
+                Math.max(1, config.getInt(ConfigFile.ACTIVITY_RETENTION, "batch_size", base.batchSize)),
+                file.isBlank() ? base.archiveFile : Paths.get(file.trim()));
+    }
+
+    /** Defaults: entries are archived after 90 days, 5000 per batch, to {@code database/activity_archive.db}. */
+    public static ActivityRetention defaults() {
+        return new ActivityRetention(90, 5_000, Paths.get("database", "activity_archive.db"));
+    }
+
+    /** Archives old entries with the current settings. Run as a startup stage. */
+    public static void run() throws SQLException {
+        ActivityRetention settings = get();
+        logger.debug("Using {}", settings);
+        settings.archive(LocalDate.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * Moves entries logged before {@code archive_after_days} days before {@code today}
+     * to the archive and counts them into the daily rollup.
+     *
+     * @param today the current UTC date, which activity times are recorded in
+     * @return number of entries moved
+     * @throws SQLException if a batch cannot be moved; earlier batches stay moved
+     */
+    public int archive(LocalDate today) throws SQLException {
+        if (archiveAfterDays == 0) {
+            return 0;
+        }
+        // Dates sort before any time on the same day, so this keeps whole days together
+        String cutoff = today.minusDays(archiveAfterDays).toString();
+        long started = System.nanoTime();
+        int moved = 0;
+        try (Connection conn = DBUtil.getConnection()) {
+            if (batchEnd(conn, cutoff, 1) == null) {
+                return 0;
+            }
+            attach(conn, true);
+            try {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try {
+                    String end;
+                    while ((end = batchEnd(conn, cutoff, batchSize)) != null) {
+                        moved += moveBatch(conn, cutoff, end);
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            } finally {
+                detach(conn);
+            }
+        }
+        logger.info("Archived {} activity log entries from before {} in {} ms", moved, cutoff,
+                (System.nanoTime() - started) / 1_000_000);
+        return moved;
+    }
+
+    /**
+     * @return the time of the {@code size}th oldest entry before the cutoff, the cutoff
+     *         if there are fewer, or null if there are none
+     */
+    private static String batchEnd(Connection conn, String cutoff, int size) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT activity_time FROM main.activity_log WHERE activity_time < ? " +
+                "ORDER BY activity_time LIMIT 1 OFFSET ?")) {
+            ps.setString(1, cutoff);
+            ps.setInt(2, size - 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getString(1);
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM main.activity_log WHERE activity_time < ? LIMIT 1")) {
+            ps.setString(1, cutoff);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? cutoff : null;
+            }
+        }
+    }
+
+    /** Copies one batch to the archive and commits, then rolls it up and deletes it. */
+    private static int moveBatch(Connection conn, String cutoff, String end) throws SQLException {
+        execute(conn, ARCHIVE_SQL, cutoff, end);
+        conn.commit();
+        execute(conn, ROLLUP_SQL, cutoff, end);
+        int deleted = execute(conn, DELETE_SQL, cutoff, end);
+        conn.commit();
+        return deleted;
+    }
+
+    private static int execute(Connection conn, String sql, String cutoff, String end) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, cutoff);
+            ps.setString(2, end);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Attaches the archive database as schema {@value #ARCHIVE_SCHEMA}. Must not be
+     * called inside a transaction; call {@link #detach(Connection)} before the
+     * connection goes back to the pool.
+     *
+     * @param create whether to create the archive file if it does not exist yet
+     * @return false if the archive does not exist and was not created
+     */
+    boolean attach(Connection conn, boolean create) throws SQLException {
+        if (!create && !Files.exists(archiveFile)) {
+            return false;
+        }
+        try (PreparedStatement ps = conn.prepareStatement("ATTACH DATABASE ? AS " + ARCHIVE_SCHEMA)) {
+            ps.setString(1, archiveFile.toString());
+            ps.execute();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : ARCHIVE_TABLES) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            detach(conn);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Detaches the archive attached by {@link #attach(Connection, boolean)}. If that
+     * fails, the connection is aborted so the pool closes it instead of handing out a
+     * connection with the archive still attached.
+     */
+    static void detach(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DETACH DATABASE " + ARCHIVE_SCHEMA);
+        } catch (SQLException e) {
+            logger.warn("Could not detach the activity archive, closing the connection: {}", e.getMessage());
+            try {
+                conn.abort(Runnable::run);
+            } catch (SQLException abortFailed) {
+                logger.warn("Could not close the connection: {}", abortFailed.getMessage());
+            }
+        }
+    }
+
+    public int getArchiveAfterDays() { return archiveAfterDays; }
+    public int getBatchSize() { return batchSize; }
+    public Path getArchiveFile() { return archiveFile; }
+
+    @Override
+    public String toString() {
+        return "ActivityRetention[archive_after_days=" + archiveAfterDays + ", batch_size=" + batchSize
+                + ", archive_file=" + archiveFile + "]";
+    }
+}
@@ -1,35 +1,31 @@
 package com.cole.Service;
 
+import com.cole.model.ActivityCount;
 import com.cole.model.RecentActivity;
 import com.cole.util.DBUtil;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ActivityService {
     // Use this formatter for 'yyyy-MM-dd HH:mm:ss'
     private static final DateTimeFormatter DB_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
-     * 
+     * Records an activity. The row is written in the background by {@link ActivityLogger},
+     * so it appears in the log a moment later.
      * @param userId
      * @param type
      * @param description
      */
     public static void logActivity(int userId, String type, String description) {
-        String sql = "INSERT INTO activity_log (user_id, activity_type, description) VALUES (?, ?, ?)";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, userId);
-            ps.setString(2, type);
-            ps.setString(3, description);
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        ActivityLogger.shared().log(userId, type, description);
     }
 
     /**
@@ -45,13 +41,7 @@ public class ActivityService {
             ps.setInt(1, limit);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                RecentActivity activity = new RecentActivity(limit, limit, sql, sql, null);
-                activity.setId(rs.getInt("id"));
-                activity.setUserId(rs.getInt("user_id"));
-                activity.setActivityType(rs.getString("activity_type"));
-                activity.setDescription(rs.getString("description"));
-                activity.setActivityTime(LocalDateTime.parse(rs.getString("activity_time"), DB_TIMESTAMP_FORMAT));
-                activities.add(activity);
+                activities.add(mapRow(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -60,7 +50,8 @@ public class ActivityService {
     }
 
     /**
-     * Get recent activities filtered by userId or role.
+     * Get recent activities filtered by userId or role. When the log holds fewer than
+     * {@code limit} matching entries, older ones are taken from the archive.
      * @param userId
      * @param role
      * @param limit
@@ -68,31 +59,90 @@ public class ActivityService {
      */
     public static List<RecentActivity> getRecentActivitiesByUserOrRole(Integer userId, String role, int limit) {
         List<RecentActivity> activities = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT a.*, u.username, u.role FROM activity_log a JOIN users u ON a.user_id = u.id");
+        try (Connection conn = DBUtil.getConnection()) {
+            addRecent(conn, "main", userId, role, limit, activities);
+            if (activities.size() < limit && ActivityRetention.get().attach(conn, false)) {
+                try {
+                    addRecent(conn, ActivityRetention.ARCHIVE_SCHEMA, userId, role, limit, activities);
+                } finally {
+                    ActivityRetention.detach(conn);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return activities;
+    }
+
+    /** Adds the newest matching entries of one tier, up to {@code limit} entries in total. */
+    private static void addRecent(Connection conn, String schema, Integer userId, String role, int limit,
+                                  List<RecentActivity> activities) throws SQLException {
+        // Filtering by role through a subquery lets the newest entries be read from
+        // the time index instead of joining and sorting the whole log
+        StringBuilder sql = new StringBuilder("SELECT a.*, u.username, u.role FROM " + schema + ".activity_log a " +
+                "JOIN main.users u ON a.user_id = u.id");
         if (userId != null) {
             sql.append(" WHERE a.user_id = ?");
         } else if (role != null) {
-            sql.append(" WHERE u.role = ?");
+            sql.append(" WHERE a.user_id IN (SELECT id FROM main.users WHERE role = ?)");
         }
         sql.append(" ORDER BY a.activity_time DESC LIMIT ?");
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+        Set<Integer> seen = new HashSet<>();
+        for (RecentActivity activity : activities) {
+            seen.add(activity.getId());
+        }
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
             int idx = 1;
             if (userId != null) ps.setInt(idx++, userId);
             else if (role != null) ps.setString(idx++, role);
             ps.setInt(idx, limit);
             ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                RecentActivity activity = new RecentActivity(
-                    rs.getInt("id"),
-                    rs.getInt("user_id"),
-                    rs.getString("activity_type"),
-                    rs.getString("description"),
-                    rs.getTimestamp("activity_time").toLocalDateTime()
-                );
-                activity.setUserDisplayName(rs.getString("username"));
-                activity.setUserRole(rs.getString("role"));
-                activities.add(activity);
+            while (rs.next() && activities.size() < limit) {
+                RecentActivity activity = mapRow(rs);
+                // An entry can be in both tiers if archiving was interrupted
+                if (seen.add(activity.getId())) {
+                    activity.setUserDisplayName(rs.getString("username"));
+                    activity.setUserRole(rs.getString("role"));
+                    activities.add(activity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get activities logged in a period, newest first, from both the log and the archive.
+     * @param userId user whose activities to return, or null for everyone
+     * @param from first time included
+     * @param to first time no longer included
+     * @param limit most entries to return
+     * @return
+     */
+    public static List<RecentActivity> getActivitiesBetween(Integer userId, LocalDateTime from, LocalDateTime to, int limit) {
+        List<RecentActivity> activities = new ArrayList<>();
+        String where = " WHERE activity_time >= ? AND activity_time < ?" + (userId != null ? " AND user_id = ?" : "");
+        try (Connection conn = DBUtil.getConnection()) {
+            boolean archived = ActivityRetention.get().attach(conn, false);
+            try {
+                String sql = "SELECT * FROM (SELECT * FROM main.activity_log" + where
+                        + (archived ? " UNION SELECT * FROM " + ActivityRetention.ARCHIVE_SCHEMA + ".activity_log" + where : "")
+                        + ") ORDER BY activity_time DESC, id DESC LIMIT ?";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    int idx = 1;
+                    for (int tier = 0; tier < (archived ? 2 : 1); tier++) {
+                        ps.setString(idx++, from.format(DB_TIMESTAMP_FORMAT));
+                        ps.setString(idx++, to.format(DB_TIMESTAMP_FORMAT));
+                        if (userId != null) ps.setInt(idx++, userId);
+                    }
+                    ps.setInt(idx, limit);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        activities.add(mapRow(rs));
+                    }
+                }
+            } finally {
+                if (archived) {
+                    ActivityRetention.detach(conn);
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -100,6 +150,44 @@ public class ActivityService {
         return activities;
     }
 
+    /**
+     * Get the number of activities per day, user and type, counting both archived
+     * entries (from the daily rollup) and those still in the log.
+     * @param userId user whose activities to count, or null for everyone
+     * @param from first day included
+     * @param to last day included
+     * @return counts ordered by day, user and type
+     */
+    public static List<ActivityCount> getDailyActivityCounts(Integer userId, LocalDate from, LocalDate to) {
+        List<ActivityCount> counts = new ArrayList<>();
+        String user = userId != null ? " AND user_id = ?" : "";
+        String sql = "SELECT day, user_id, activity_type, SUM(n) AS n FROM (" +
+                "SELECT day, user_id, activity_type, activity_count AS n FROM activity_daily_rollup " +
+                "WHERE day >= ? AND day <= ?" + user +
+                " UNION ALL " +
+                "SELECT date(activity_time), COALESCE(user_id, 0), COALESCE(activity_type, ''), COUNT(*) FROM activity_log " +
+                "WHERE activity_time >= ? AND activity_time < ?" + user + " GROUP BY 1, 2, 3" +
+                ") GROUP BY day, user_id, activity_type ORDER BY day, user_id, activity_type";
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = 1;
+            ps.setString(idx++, from.toString());
+            ps.setString(idx++, to.toString());
+            if (userId != null) ps.setInt(idx++, userId);
+            ps.setString(idx++, from.toString());
+            ps.setString(idx++, to.plusDays(1).toString());
+            if (userId != null) ps.setInt(idx++, userId);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                counts.add(new ActivityCount(LocalDate.parse(rs.getString("day")), rs.getInt("user_id"),
+                        rs.getString("activity_type"), rs.getInt("n")));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return counts;
+    }
+
     public static List<String> getAllUsernames() {
         List<String> users = new ArrayList<>();
         String sql = "SELECT username FROM users";
@@ -127,4 +215,15 @@ public class ActivityService {
         }
         return null;
     }
+
+    /** Maps an {@code activity_log} row. */
+    static RecentActivity mapRow(ResultSet rs) throws SQLException {
+        return new RecentActivity(
+            rs.getInt("id"),
+            rs.getInt("user_id"),
+            rs.getString("activity_type"),
+            rs.getString("description"),
+            LocalDateTime.parse(rs.getString("activity_time"), DB_TIMESTAMP_FORMAT)
+        );
+    }
 }
@@ -0,0 +1,234 @@
+package com.cole.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import com.cole.util.TokenBucket;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends a batch of emails over pooled SMTP connections.
+ * <p>
+ * Up to {@link SmtpSettings#maxConnections()} messages are sent at once, each worker
+ * keeping its connection open from one message to the next, and a token bucket holds
+ * the batch to {@link SmtpSettings#ratePerSecond()} so the server does not throttle or
+ * block the account. Every email gets a {@link Delivery} saying whether it was sent and,
+ * if not, why; one failed recipient does not stop the rest. If the server rejects the
+ * login, the emails not yet sent are failed with that reason instead of each trying to
+ * log in again.
+ */
+public class BulkEmailSender {
+    private static final Logger logger = LoggerFactory.getLogger(BulkEmailSender.class);
+
+    /**
+     * One email to send.
+     * @param key caller's identifier, e.g. a student number
+     * @param to recipient address(es), comma separated
+     * @param cc additional CC recipients; may be null
+     * @param subject subject line
+     * @param body plain text body
+     */
+    public record Email(String key, String to, String cc, String subject, String body) { }
+
+    /**
+     * What happened to one email.
+     * @param email the email
+     * @param sent true if the server accepted it
+     * @param error why it was not sent; null if sent
+     * @param retryable false if sending the same email again cannot succeed, e.g. because
+     *        the server rejected the recipient address
+     */
+    public record Delivery(Email email, boolean sent, String error, boolean retryable) { }
+
+    /**
+     * Outcome of a batch.
+     * @param deliveries one per email, in the order they were given
+     * @param loginRejected true if the server rejected the account's login
+     */
+    public record Result(List<Delivery> deliveries, boolean loginRejected) {
+        /** @return number of emails sent */
+        public int sentCount() {
+            return (int) deliveries.stream().filter(Delivery::sent).count();
+        }
+
+        /** @return emails that were not sent */
+        public List<Delivery> failures() {
+            return deliveries.stream().filter(d -> !d.sent()).toList();
+        }
+    }
+
+    private final SmtpSettings settings;
+    private final SmtpTransportPool pool;
+
+    /** @param settings server, account and sending limits */
+    public BulkEmailSender(SmtpSettings settings) {
+        this(settings, SmtpTransportPool.shared(settings));
+    }
+
+    /**
+     * @param settings server, account and sending limits
+     * @param pool connections to send over
+     */
+    public BulkEmailSender(SmtpSettings settings, SmtpTransportPool pool) {
+        this.settings = settings;
+        this.pool = pool;
+    }
+
+    /**
+     * Sends the emails, each with the manager CC added as by {@link EmailServices#sendEmail}.
+     * @param emails emails to send
+     * @param progress receives the number of emails finished; checked for cancellation
+     * @param onDelivery called from a sending thread as soon as each email is finished; may be null
+     * @return one delivery per email
+     * @throws CancellationException if {@code progress} reported cancellation; emails
+     *         already sent stay sent and have been passed to {@code onDelivery}
+     * @throws InterruptedException if interrupted while waiting for the senders
+     */
+    public Result send(List<Email> emails, ExportService.Progress progress, Consumer<Delivery> onDelivery)
+            throws InterruptedException {
+        long started = System.nanoTime();
+        String managerCC = EmailServices.getManagerCC();
+        TokenBucket rateLimit = new TokenBucket(settings.ratePerSecond(),
+                Math.max(1, (int) Math.ceil(settings.ratePerSecond())));
+        Delivery[] deliveries = new Delivery[emails.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        // Set once a failure means no further email can be sent
+        AtomicReference<String> abort = new AtomicReference<>();
+
+        int threads = Math.max(1, Math.min(settings.maxConnections(), emails.size()));
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Platform threads: the mail transport blocks inside synchronized methods
+        ExecutorService senders = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "smtp-send-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        progress.update(0, emails.size());
+        try {
+            for (int i = 0; i < threads; i++) {
+                senders.execute(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < emails.size()) {
+                        Email email = emails.get(index);
+                        Delivery delivery;
+                        if (progress.isCancelled()) {
+                            delivery = new Delivery(email, false, "Not sent: cancelled", true);
+                        } else if (abort.get() != null) {
+                            delivery = new Delivery(email, false, "Not sent: " + abort.get(), true);
+                        } else {
+                            delivery = sendOne(email, managerCC, rateLimit, abort);
+                        }
+                        deliveries[index] = delivery;
+                        if (onDelivery != null) {
+                            try {
+                                onDelivery.accept(delivery);
+                            } catch (RuntimeException e) {
+                                logger.error("Handling delivery of email {} failed", email.key(), e);
+                            }
+                        }
+                        progress.update(done.incrementAndGet(), emails.size());
+                    }
+                });
+            }
+            senders.shutdown();
+            while (!senders.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Workers notice cancellation themselves; keep waiting for in-flight sends
+            }
+        } finally {
+            senders.shutdownNow();
+        }
+
+        Result result = new Result(List.of(deliveries), abort.get() != null);
+        logger.info("Sent {} of {} emails via {}:{} on {} connection(s) in {} ms",
+                result.sentCount(), emails.size(), settings.host(), settings.port(), threads,
+                (System.nanoTime() - started) / 1_000_000);
+        if (progress.isCancelled()) {
+            throw new CancellationException("Bulk email cancelled after " + result.sentCount() + " sent");
+        }
+        return result;
+    }
+
+    /**
+     * Creates a background job for {@link #send}. The task's progress and message track
+     * the emails finished, and cancelling the task stops sending further emails.
+     * Submit it with {@code BackgroundTasks.submit(Lane.EMAIL, task)}.
+     */
+    public Task<Result> sendTask(List<Email> emails, Consumer<Delivery> onDelivery) {
+        return new Task<>() {
+            @Override
+            protected Result call() throws Exception {
+                Task<Result> job = this;
+                updateMessage("Connecting to " + settings.host() + "...");
+                return send(emails, new ExportService.Progress() {
+                    @Override
+                    public void update(long rows, long totalRows) {
+                        updateProgress(rows, Math.max(1, totalRows));
+                        if (rows > 0) {
+                            updateMessage("Sent " + rows + " of " + totalRows + " emails");
+                        }
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return job.isCancelled();
+                    }
+                }, onDelivery);
+            }
+        };
+    }
+
+    private Delivery sendOne(Email email, String managerCC, TokenBucket rateLimit, AtomicReference<String> abort) {
+        try {
+            rateLimit.acquire();
+            pool.send(EmailServices.createMessage(pool.getSession(), settings.username(), email.to(), email.cc(),
+                    managerCC, email.subject(), email.body()));
+            return new Delivery(email, true, null, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Delivery(email, false, "Not sent: interrupted", true);
+        } catch (AuthenticationFailedException e) {
+            String reason = "login rejected by " + settings.host()
+                    + (e.getMessage() != null ? " (" + e.getMessage().trim() + ")" : "");
+            abort.compareAndSet(null, reason);
+            logger.warn("Bulk email stopped: {}", reason);
+            return new Delivery(email, false, "Not sent: " + reason, true);
+        } catch (AddressException e) {
+            return new Delivery(email, false, "Invalid address: " + e.getMessage(), false);
+        } catch (SendFailedException e) {
+            logger.warn("Email {} to {} rejected: {}", email.key(), email.to(), e.getMessage());
+            Address[] invalid = e.getInvalidAddresses();
+            return new Delivery(email, false, describe(e), invalid == null || invalid.length == 0);
+        } catch (MessagingException e) {
+            logger.warn("Email {} to {} failed", email.key(), email.to(), e);
+            return new Delivery(email, false, describe(e), true);
+        }
+    }
+
+    /** Message of an exception and its causes, e.g. "Could not connect ...: Connection refused". */
+    private static String describe(Exception e) {
+        List<String> parts = new ArrayList<>();
+        for (Throwable t = e; t != null && parts.size() < 3; t = t.getCause()) {
+            if (t.getMessage() != null && !t.getMessage().isBlank()
+                    && parts.stream().noneMatch(t.getMessage().trim()::equals)) {
+                parts.add(t.getMessage().trim());
+            }
+        }
+        return parts.isEmpty() ? e.getClass().getSimpleName() : String.join(": ", parts);
+    }
+}
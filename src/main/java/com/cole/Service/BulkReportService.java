@@ -0,0 +1,261 @@
+package com.cole.Service;
+
+import com.cole.model.Student;
+import com.cole.model.StudentReportData;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates student summary PDFs for a whole cohort at once, e.g. every student in an
+ * SLP at term end.
+ * <p>
+ * Report data is prefetched in batches of {@value #BATCH_SIZE} students (three queries
+ * per batch rather than four per student) and the PDFs are rendered in parallel on one
+ * thread per core. At most two documents per core are in memory waiting to be rendered
+ * or written, so memory use does not grow with the cohort. A document that fails is
+ * recorded and skipped; the rest are still generated.
+ */
+public class BulkReportService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkReportService.class);
+
+    /** Students whose report data is fetched per round trip. */
+    static final int BATCH_SIZE = 100;
+
+    private final StudentReportsService reportsService = new StudentReportsService();
+    private final StudentDirectoryService directoryService = new StudentDirectoryService();
+
+    /** Which students to generate reports for. */
+    public static final class Selection {
+        private final Integer slpId;
+        private final String filter;
+        private final String description;
+
+        private Selection(Integer slpId, String filter, String description) {
+            this.slpId = slpId;
+            this.filter = filter;
+            this.description = description;
+        }
+
+        /**
+         * Every student currently enrolled in an SLP.
+         * @param slpId SLP ID
+         * @param slpName SLP name, for messages
+         */
+        public static Selection forSlp(int slpId, String slpName) {
+            return new Selection(slpId, null, "SLP " + slpName);
+        }
+
+        /**
+         * Every student matching Student View search text; all students if blank.
+         * @param filter search text
+         */
+        public static Selection forFilter(String filter) {
+            boolean all = filter == null || filter.isBlank();
+            return new Selection(null, all ? null : filter.trim(), all ? "all students" : "students matching \"" + filter.trim() + "\"");
+        }
+
+        /** @return what was selected, e.g. "SLP Business Management" */
+        public String getDescription() { return description; }
+    }
+
+    /**
+     * A report that could not be generated.
+     * @param studentNumber student number
+     * @param message reason
+     */
+    public record DocumentError(String studentNumber, String message) { }
+
+    /**
+     * Outcome of a bulk run.
+     * @param output zip file or folder written
+     * @param generated number of PDFs written
+     * @param errors reports that failed, in no particular order
+     */
+    public record Result(Path output, int generated, List<DocumentError> errors) { }
+
+    /**
+     * Generates reports for the selected students.
+     * @param selection Students to report on.
+     * @param output Zip file to create (replaced if it exists), or folder to write into.
+     * @param zip True to write a single zip file, false to write one PDF per student into {@code output}.
+     * @param progress Receives the number of documents finished; checked for cancellation.
+     * @return counts and per-document errors
+     * @throws CancellationException if {@code progress} reported cancellation; a partial zip is deleted
+     */
+    public Result generate(Selection selection, File output, boolean zip, ExportService.Progress progress)
+            throws SQLException, IOException, InterruptedException {
+        long started = System.nanoTime();
+        List<Student> students = listStudents(selection);
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService renderers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "report-render-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Bounds documents fetched but not yet written
+        Semaphore inFlight = new Semaphore(threads * 2);
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger generated = new AtomicInteger();
+        List<DocumentError> errors = Collections.synchronizedList(new ArrayList<>());
+
+        Path target = output.toPath().toAbsolutePath();
+        Path zipTemp = null;
+        ZipOutputStream zipOut = null;
+        boolean completed = false;
+        try {
+            if (zip) {
+                zipTemp = Files.createTempFile(target.getParent(), ".reports-", ".tmp");
+                zipOut = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zipTemp), 64 * 1024));
+            } else {
+                Files.createDirectories(target);
+            }
+            ZipOutputStream zipSink = zipOut;
+            progress.update(0, students.size());
+
+            for (int from = 0; from < students.size(); from += BATCH_SIZE) {
+                List<Student> batch = students.subList(from, Math.min(students.size(), from + BATCH_SIZE));
+                Map<Integer, StudentReportData> data = reportsService.getStudentReportDataBatch(batch);
+                for (StudentReportData reportData : data.values()) {
+                    inFlight.acquire();
+                    if (progress.isCancelled()) {
+                        inFlight.release();
+                        throw new CancellationException("Bulk report generation cancelled");
+                    }
+                    renderers.execute(() -> {
+                        String studentNumber = reportData.getStudent().getStudentNumber();
+                        try {
+                            String name = fileName(studentNumber);
+                            if (zipSink != null) {
+                                ByteArrayOutputStream pdf = new ByteArrayOutputStream(32 * 1024);
+                                reportsService.exportStudentSummaryPdf(reportData, pdf);
+                                synchronized (zipSink) {
+                                    zipSink.putNextEntry(new ZipEntry(name));
+                                    pdf.writeTo(zipSink);
+                                    zipSink.closeEntry();
+                                }
+                            } else {
+                                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target.resolve(name)))) {
+                                    reportsService.exportStudentSummaryPdf(reportData, out);
+                                }
+                            }
+                            generated.incrementAndGet();
+                        } catch (Exception e) {
+                            logger.warn("Report for student {} failed", studentNumber, e);
+                            Throwable cause = e.getCause() != null ? e.getCause() : e;
+                            errors.add(new DocumentError(studentNumber, cause.getMessage()));
+                        } finally {
+                            inFlight.release();
+                            progress.update(done.incrementAndGet(), students.size());
+                        }
+                    });
+                }
+            }
+            renderers.shutdown();
+            while (!renderers.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (progress.isCancelled()) {
+                    throw new CancellationException("Bulk report generation cancelled");
+                }
+            }
+            if (zipOut != null) {
+                zipOut.close();
+                zipOut = null;
+                Files.move(zipTemp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            completed = true;
+        } finally {
+            renderers.shutdownNow();
+            if (!completed) {
+                // Let running renders finish before closing the zip they write to
+                renderers.awaitTermination(10, TimeUnit.SECONDS);
+            }
+            if (zipOut != null) {
+                try {
+                    zipOut.close();
+                } catch (IOException e) {
+                    logger.debug("Closing partial report zip failed", e);
+                }
+            }
+            if (!completed && zipTemp != null) {
+                Files.deleteIfExists(zipTemp);
+            }
+        }
+        logger.info("Generated {} of {} student reports for {} on {} threads in {} ms ({} failed)",
+            generated.get(), students.size(), selection.getDescription(), threads,
+            (System.nanoTime() - started) / 1_000_000, errors.size());
+        return new Result(target, generated.get(), List.copyOf(errors));
+    }
+
+    /**
+     * Creates a background job for {@link #generate}. The task's progress and message
+     * track the documents finished, and cancelling the task stops the run.
+     * Submit it with {@code BackgroundTasks.submit(Lane.EXPORT, task)}.
+     */
+    public Task<Result> generateTask(Selection selection, File output, boolean zip) {
+        return new Task<>() {
+            @Override
+            protected Result call() throws Exception {
+                Task<Result> job = this;
+                updateMessage("Loading " + selection.getDescription() + "...");
+                return generate(selection, output, zip, new ExportService.Progress() {
+                    @Override
+                    public void update(long rows, long totalRows) {
+                        updateProgress(rows, Math.max(1, totalRows));
+                        updateMessage("Generated " + rows + " of " + totalRows + " reports");
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return job.isCancelled();
+                    }
+                });
+            }
+        };
+    }
+
+    private List<Student> listStudents(Selection selection) throws SQLException {
+        if (selection.slpId != null) {
+            return reportsService.getStudentsInSlp(selection.slpId);
+        }
+        // Page through the directory in its default order (best match first when searching)
+        StudentDirectoryService.Query query = StudentDirectoryService.Query.defaultOrder(selection.filter);
+        List<Student> students = new ArrayList<>();
+        List<Student> page;
+        Student after = null;
+        do {
+            page = directoryService.fetchPage(query, after, 1000);
+            students.addAll(page);
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 1000);
+        return students;
+    }
+
+    private static String fileName(String studentNumber) {
+        String safe = studentNumber == null ? "unknown" : studentNumber.replaceAll("[^A-Za-z0-9._-]", "_");
+        return "Student_Report_" + safe + ".pdf";
+    }
+}
@@ -0,0 +1,325 @@
+package com.cole.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Application settings kept in {@code .properties} files in the working directory.
+ * <p>
+ * Each file is read once and served from memory afterwards, so sending a hundred emails
+ * no longer parses the same files a hundred times. A {@link WatchService} thread reloads
+ * a file when it changes on disk, e.g. when it is edited by hand or restored from a
+ * backup, and tells {@link #addListener listeners} which file changed. A file that
+ * cannot be parsed keeps its previous values. {@link #save} writes a whole file to a
+ * temporary file and moves it into place, so readers never see half a file.
+ * Safe to use from several threads.
+ */
+public final class ConfigService {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigService.class);
+
+    /** The settings files. */
+    public enum ConfigFile {
+        /** Sender, SMTP server and bulk sending limits; see {@link SmtpSettings}. */
+        EMAIL("email_settings.properties", "Email Settings"),
+        /** Manager CC added to every email. */
+        MANAGER_EMAIL("manager_email_settings.properties", "Manager Email Settings"),
+        /** SCAA address transcript requests are sent to. */
+        TRANSCRIPT_EMAIL("transcript_email_settings.properties", "Transcript Email Settings"),
+        /** Memory limits for generated PDFs; see {@link com.cole.util.PdfMemorySettings}. */
+        REPORT("report_settings.properties", "Report Settings"),
+        /** When activity log entries are archived; see {@link ActivityRetention}. */
+        ACTIVITY_RETENTION("activity_retention.properties", "Activity Retention Settings");
+
+        private final String fileName;
+        private final String comment;
+
+        ConfigFile(String fileName, String comment) {
+            this.fileName = fileName;
+            this.comment = comment;
+        }
+
+        /** @return file name, relative to the working directory */
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    /** How long after a change is noticed the file is read. */
+    private static final long RELOAD_DELAY_MILLIS = 200;
+
+    /** A file's values and whether the file exists. */
+    private record Snapshot(Properties values, boolean exists) { }
+
+    private static final ConfigService SHARED = new ConfigService(Paths.get(""));
+
+    private final Path directory;
+    private final Map<ConfigFile, Snapshot> snapshots = new EnumMap<>(ConfigFile.class);
+    private final List<Consumer<ConfigFile>> listeners = new CopyOnWriteArrayList<>();
+    /** Invalid values already warned about, so a value read often is reported once. */
+    private final Set<String> reportedInvalid = ConcurrentHashMap.newKeySet();
+    private WatchService watchService;
+    private boolean watchStarted;
+
+    /** @param directory directory holding the settings files */
+    ConfigService(Path directory) {
+        this.directory = directory.toAbsolutePath();
+    }
+
+    /** @return the application-wide settings, watched for changes from first use */
+    public static ConfigService shared() {
+        SHARED.startWatching();
+        return SHARED;
+    }
+
+    /**
+     * Gets a copy of a file's values.
+     * @return the values, or null if the file does not exist
+     */
+    public Properties getProperties(ConfigFile file) {
+        Snapshot snapshot = snapshot(file);
+        if (!snapshot.exists()) {
+            return null;
+        }
+        Properties copy = new Properties();
+        copy.putAll(snapshot.values());
+        return copy;
+    }
+
+    /**
+     * Gets one value.
+     * @return the value, or {@code defaultValue} if the file or key does not exist
+     */
+    public String get(ConfigFile file, String key, String defaultValue) {
+        return snapshot(file).values().getProperty(key, defaultValue);
+    }
+
+    /**
+     * Gets a whole number that may not be negative.
+     * @return the value, or {@code defaultValue} if the file or key does not exist or
+     *         the value is not a non-negative number
+     */
+    public long getLong(ConfigFile file, String key, long defaultValue) {
+        String value = get(file, key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below, like a negative number
+        }
+        if (reportedInvalid.add(file.getFileName() + ":" + key + "=" + value)) {
+            logger.warn("Ignoring invalid {}={} in {}", key, value, file.getFileName());
+        }
+        return defaultValue;
+    }
+
+    /** @see #getLong */
+    public int getInt(ConfigFile file, String key, int defaultValue) {
+        return (int) Math.min(Integer.MAX_VALUE, getLong(file, key, defaultValue));
+    }
+
+    /** @return the manager CC address; empty if not set */
+    public String getManagerCC() {
+        return get(ConfigFile.MANAGER_EMAIL, "manager.cc", "");
+    }
+
+    /** @return the SCAA transcript recipient; empty if not set */
+    public String getScaaRecipient() {
+        return get(ConfigFile.TRANSCRIPT_EMAIL, "scaa.recipient", "");
+    }
+
+    /**
+     * Updates values in a file, keeping the keys not given. The file is replaced
+     * atomically and the new values are visible at once.
+     * @param file file to update
+     * @param values keys and values to set
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save(ConfigFile file, Map<String, String> values) throws IOException {
+        Properties updated = new Properties();
+        updated.putAll(snapshot(file).values());
+        updated.putAll(values);
+        Path target = path(file);
+        Path temp = Files.createTempFile(directory, "." + file.getFileName() + "-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                updated.store(out, file.comment);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        snapshots.put(file, new Snapshot(updated, true));
+        logger.info("Saved {}", file.getFileName());
+        notifyListeners(file);
+    }
+
+    /** @param listener told which file changed, on the thread that noticed the change */
+    public void addListener(Consumer<ConfigFile> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<ConfigFile> listener) {
+        listeners.remove(listener);
+    }
+
+    /** Stops watching the files; values stay cached. Called on exit. */
+    public synchronized void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Closing settings watcher failed: {}", e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+
+    private synchronized Snapshot snapshot(ConfigFile file) {
+        Snapshot snapshot = snapshots.get(file);
+        if (snapshot == null) {
+            snapshot = read(file, null);
+            snapshots.put(file, snapshot);
+        }
+        return snapshot;
+    }
+
+    /** Reads a file; keeps {@code previous} if it exists but cannot be read. */
+    private Snapshot read(ConfigFile file, Snapshot previous) {
+        Properties values = new Properties();
+        try (InputStream in = Files.newInputStream(path(file))) {
+            values.load(in);
+            return new Snapshot(values, true);
+        } catch (NoSuchFileException e) {
+            return new Snapshot(values, false);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Could not read {}: {}", file.getFileName(), e.getMessage());
+            return previous != null ? previous : new Snapshot(values, Files.exists(path(file)));
+        }
+    }
+
+    /** Re-reads a file after it changed on disk, telling listeners if its values did change. */
+    private void reload(ConfigFile file) {
+        boolean changed;
+        synchronized (this) {
+            Snapshot previous = snapshots.get(file);
+            Snapshot current = read(file, previous);
+            changed = previous == null || !previous.equals(current);
+            snapshots.put(file, current);
+        }
+        if (changed) {
+            logger.info("Reloaded {}", file.getFileName());
+            notifyListeners(file);
+        }
+    }
+
+    private void notifyListeners(ConfigFile file) {
+        for (Consumer<ConfigFile> listener : listeners) {
+            try {
+                listener.accept(file);
+            } catch (RuntimeException e) {
+                logger.error("Settings listener failed for {}", file.getFileName(), e);
+            }
+        }
+    }
+
+    private synchronized void startWatching() {
+        if (watchStarted) {
+            return;
+        }
+        watchStarted = true;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.warn("Settings files will not be reloaded when changed: {}", e.getMessage());
+            watchService = null;
+            return;
+        }
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> watch(service), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                Set<ConfigFile> changed = EnumSet.noneOf(ConfigFile.class);
+                WatchKey key = service.take();
+                boolean valid = collect(key, changed);
+                // Editors often truncate a file and then write it; let the writes settle
+                Thread.sleep(RELOAD_DELAY_MILLIS);
+                while ((key = service.poll()) != null) {
+                    valid = collect(key, changed);
+                }
+                changed.forEach(this::reload);
+                if (!valid) {
+                    logger.warn("Settings directory {} is no longer watched", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shut down
+        }
+    }
+
+    /**
+     * Adds the settings files named by a key's events to {@code changed}.
+     * @return false if the directory can no longer be watched
+     */
+    private static boolean collect(WatchKey key, Set<ConfigFile> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(EnumSet.allOf(ConfigFile.class));
+            } else if (event.context() instanceof Path name) {
+                for (ConfigFile file : ConfigFile.values()) {
+                    if (name.toString().equals(file.getFileName())) {
+                        changed.add(file);
+                    }
+                }
+            }
+        }
+        return key.reset();
+    }
+
+    private Path path(ConfigFile file) {
+        return directory.resolve(file.getFileName());
+    }
+}
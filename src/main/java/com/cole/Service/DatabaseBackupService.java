@@ -3,28 +3,45 @@ package com.cole.Service;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+
+import com.cole.util.DBUtil;
 
 public class DatabaseBackupService {
 
     /**
-     * Backs up the database file to a backup location.
-     * @param dbFile The database file to back up.
+     * Backs up the database to a backup location. The copy is written to a temporary
+     * file beside the backup first, so a failed backup leaves an existing file intact.
      * @param backupFile The backup file location.
      * @throws IOException If an I/O error occurs during backup.
+     * @throws SQLException If the database cannot be copied.
      */
-    public void backupDatabase(File dbFile, File backupFile) throws IOException {
-        Files.copy(dbFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    public void backupDatabase(File backupFile) throws IOException, SQLException {
+        Path target = backupFile.toPath().toAbsolutePath();
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        Files.deleteIfExists(partial);
+        try {
+            DBUtil.backupTo(partial);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
     }
 
 
     /**
      * Restores the database file from a backup location.
+     * Any WAL/shared-memory files left beside the old database are removed first,
+     * otherwise SQLite would replay them on top of the restored file.
      * @param backupFile The backup file to restore.
      * @param dbFile The database file location.
      * @throws IOException If an I/O error occurs during restore.
      */
     public void restoreDatabase(File backupFile, File dbFile) throws IOException {
+        Files.deleteIfExists(new File(dbFile.getPath() + "-wal").toPath());
+        Files.deleteIfExists(new File(dbFile.getPath() + "-shm").toPath());
         Files.copy(backupFile.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
     }
 }
@@ -0,0 +1,524 @@
+package com.cole.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.cole.util.DBUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emails queued in the {@code email_outbox} table and delivered in the background.
+ * <p>
+ * Controllers {@link #enqueue} an email and return at once; a single worker thread sends
+ * whatever is due through {@link BulkEmailSender}. An email that fails is tried again
+ * after an exponentially growing delay (30 seconds, doubling up to an hour) and marked
+ * FAILED after {@value #MAX_ATTEMPTS} attempts, or at once if the server rejected the
+ * recipient. Queued emails survive a restart, but the SMTP password is only kept in
+ * memory: nothing is sent until {@link #setPassword} has been called in this session.
+ * Side effects of a delivery, such as marking a transcript as requested, are written in
+ * the same transaction that marks the email SENT.
+ * <p>
+ * Delivery is at least once: an email that was being sent when the application stopped
+ * is sent again on the next run.
+ */
+public class EmailOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutbox.class);
+
+    /** Attempts before an email is marked FAILED. */
+    static final int MAX_ATTEMPTS = 8;
+    private static final long FIRST_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_RETRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+    /** Emails claimed per round. */
+    private static final int BATCH_SIZE = 50;
+
+    private static final EmailOutbox SHARED = new EmailOutbox();
+
+    /** What an email is for; decides what a successful delivery updates. */
+    public enum Kind {
+        /** Transcript request to SCAA; reference is the student number. */
+        TRANSCRIPT_REQUEST,
+        /** Follow-up reminder to the user. */
+        FOLLOW_UP_REMINDER
+    }
+
+    /** Delivery state of a queued email. */
+    public enum Status { PENDING, SENDING, SENT, FAILED }
+
+    /**
+     * A queued email.
+     * @param id outbox ID
+     * @param kind what the email is for
+     * @param reference what it is about, e.g. a student number; may be null
+     * @param recipient recipient address(es)
+     * @param subject subject line
+     * @param status delivery state
+     * @param attempts delivery attempts so far
+     * @param lastError why the last attempt failed; null if none did
+     */
+    public record Entry(long id, Kind kind, String reference, String recipient, String subject,
+                        Status status, int attempts, String lastError) { }
+
+    /** Told about deliveries; called on the delivery thread. */
+    public interface Listener {
+        /** An email was sent. */
+        default void delivered(Entry entry) { }
+
+        /** An email was given up on and marked FAILED. */
+        default void failed(Entry entry) { }
+
+        /** The server rejected the password; delivery waits for {@link #setPassword}. */
+        default void loginRejected() { }
+    }
+
+    /** A claimed email with the content needed to send it. */
+    private record Claimed(Entry entry, String cc, String body) { }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService worker;
+    private ScheduledFuture<?> nextRun;
+    private long nextRunAt = Long.MAX_VALUE;
+    private volatile String password;
+    private boolean listeningForSettings;
+
+    /** @return the application-wide outbox */
+    public static EmailOutbox shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts the delivery thread. Emails left SENDING by a previous run are queued again.
+     * Called once the schema is up to date.
+     */
+    public synchronized void start() throws SQLException {
+        if (worker != null) {
+            return;
+        }
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            int requeued = stmt.executeUpdate("UPDATE email_outbox SET status = 'PENDING' WHERE status = 'SENDING'");
+            if (requeued > 0) {
+                logger.warn("Re-queued {} email(s) that were being sent when the application stopped", requeued);
+            }
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "email-outbox");
+            t.setDaemon(true);
+            return t;
+        });
+        // A retry due later is simply picked up on the next start
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        worker = executor;
+        if (!listeningForSettings) {
+            // Emails waiting on missing or wrong settings go out as soon as they are fixed
+            ConfigService.shared().addListener(file -> {
+                if (file == ConfigService.ConfigFile.EMAIL) {
+                    wake();
+                }
+            });
+            listeningForSettings = true;
+        }
+        nextRun = null;
+        nextRunAt = Long.MAX_VALUE;
+        wake();
+    }
+
+    /** Stops the delivery thread, letting a round in progress finish for a few seconds. */
+    public void shutdown() {
+        ScheduledExecutorService w;
+        synchronized (this) {
+            w = worker;
+            worker = null;
+        }
+        if (w == null) {
+            return;
+        }
+        w.shutdown();
+        try {
+            if (!w.awaitTermination(5, TimeUnit.SECONDS)) {
+                w.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            w.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sets the SMTP password used for delivery and delivers anything due.
+     * @param password password; null stops delivery until it is set again
+     */
+    public void setPassword(String password) {
+        this.password = password;
+        if (password != null) {
+            wake();
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues an email for delivery.
+     * @param kind what the email is for
+     * @param reference what it is about, e.g. a student number; may be null
+     * @param dedupKey identifies the email for deduplication; null uses its content
+     * @param to recipient address(es), comma separated
+     * @param cc additional CC recipients; may be null
+     * @param subject subject line
+     * @param body plain text body
+     * @return false if the same email is already waiting to be sent
+     */
+    public boolean enqueue(Kind kind, String reference, String dedupKey, String to, String cc,
+                           String subject, String body) throws SQLException {
+        String key = dedupKey != null ? dedupKey : kind + ":" + sha256(to + "\n" + cc + "\n" + subject + "\n" + body);
+        String sql = "INSERT OR IGNORE INTO email_outbox " +
+                     "(kind, reference, dedup_key, recipient, cc, subject, body, next_attempt_at) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        boolean queued;
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, kind.name());
+            ps.setString(2, reference);
+            ps.setString(3, key);
+            ps.setString(4, to);
+            ps.setString(5, cc);
+            ps.setString(6, subject);
+            ps.setString(7, body);
+            ps.setLong(8, System.currentTimeMillis());
+            queued = ps.executeUpdate() > 0;
+        }
+        if (queued) {
+            wake();
+        } else {
+            logger.info("Email {} is already queued", key);
+        }
+        return queued;
+    }
+
+    /** @return number of emails in each state */
+    public Map<Status, Integer> countByStatus() throws SQLException {
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            counts.put(status, 0);
+        }
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT status, COUNT(*) FROM email_outbox GROUP BY status")) {
+            while (rs.next()) {
+                counts.put(Status.valueOf(rs.getString(1)), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Lists queued emails, newest first.
+     * @param status state to list; null for all
+     * @param limit most entries returned
+     */
+    public List<Entry> list(Status status, int limit) throws SQLException {
+        String sql = "SELECT outbox_id, kind, reference, recipient, subject, status, attempts, last_error " +
+                     "FROM email_outbox " + (status != null ? "WHERE status = ? " : "") +
+                     "ORDER BY outbox_id DESC LIMIT ?";
+        List<Entry> entries = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (status != null) {
+                ps.setString(index++, status.name());
+            }
+            ps.setInt(index, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(readEntry(rs));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Queues every FAILED email again with a fresh set of attempts. An email whose
+     * duplicate has been queued since stays FAILED.
+     * @return number of emails queued again
+     */
+    public int retryFailed() throws SQLException {
+        int count;
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE OR IGNORE email_outbox SET status = 'PENDING', attempts = 0, next_attempt_at = ? " +
+                     "WHERE status = 'FAILED'")) {
+            ps.setLong(1, System.currentTimeMillis());
+            count = ps.executeUpdate();
+        }
+        if (count > 0) {
+            wake();
+        }
+        return count;
+    }
+
+    /** Runs a delivery round now. */
+    private void wake() {
+        schedule(System.currentTimeMillis());
+    }
+
+    /** Runs a delivery round at {@code at}, unless one is already due sooner. */
+    private synchronized void schedule(long at) {
+        if (worker == null || at >= nextRunAt && nextRun != null && !nextRun.isDone()) {
+            return;
+        }
+        if (nextRun != null) {
+            nextRun.cancel(false);
+        }
+        nextRunAt = at;
+        nextRun = worker.schedule(this::deliverDue, Math.max(0, at - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void deliverDue() {
+        synchronized (this) {
+            nextRunAt = Long.MAX_VALUE;
+            nextRun = null;
+        }
+        try {
+            String currentPassword = password;
+            if (currentPassword == null) {
+                return;
+            }
+            Properties props = EmailServices.loadEmailSettings();
+            SmtpSettings settings = props != null ? SmtpSettings.fromProperties(props, currentPassword) : null;
+            if (settings == null) {
+                logger.warn("Email settings are missing or incomplete; queued emails wait until they are fixed");
+                return;
+            }
+            List<Claimed> due;
+            while (!(due = claimDue()).isEmpty() && !Thread.currentThread().isInterrupted()) {
+                if (!deliver(settings, due)) {
+                    return;
+                }
+            }
+            scheduleNextDue();
+        } catch (SQLException | RuntimeException e) {
+            // A failure here would otherwise leave the claimed emails SENDING until the next start
+            logger.error("Email outbox delivery failed; retrying in {} s", FIRST_RETRY_MILLIS / 1000, e);
+            releaseClaimed();
+            schedule(System.currentTimeMillis() + FIRST_RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Puts every email still SENDING back without counting the attempt; only the worker sends. */
+    private void releaseClaimed() {
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            int released = stmt.executeUpdate(
+                    "UPDATE email_outbox SET status = 'PENDING', attempts = attempts - 1 WHERE status = 'SENDING'");
+            if (released > 0) {
+                logger.warn("Re-queued {} email(s) claimed by the failed delivery round", released);
+            }
+        } catch (SQLException e) {
+            logger.error("Could not re-queue claimed emails; they are re-queued on the next start", e);
+        }
+    }
+
+    /**
+     * Sends claimed emails and records each outcome.
+     * @return false if the login was rejected and delivery must wait for a new password
+     */
+    private boolean deliver(SmtpSettings settings, List<Claimed> due) throws SQLException, InterruptedException {
+        List<BulkEmailSender.Email> emails = new ArrayList<>();
+        for (Claimed claimed : due) {
+            Entry entry = claimed.entry();
+            emails.add(new BulkEmailSender.Email(String.valueOf(entry.id()), entry.recipient(), claimed.cc(),
+                    entry.subject(), claimed.body()));
+        }
+        BulkEmailSender.Result result = new BulkEmailSender(settings).send(emails, ExportService.NO_PROGRESS, null);
+        for (int i = 0; i < due.size(); i++) {
+            Entry entry = due.get(i).entry();
+            BulkEmailSender.Delivery delivery = result.deliveries().get(i);
+            if (delivery.sent()) {
+                markSent(entry);
+            } else if (result.loginRejected()) {
+                // Not the email's fault; wait for a new password without using up an attempt
+                release(entry, delivery.error());
+            } else {
+                markFailed(entry, delivery.error(), delivery.retryable());
+            }
+        }
+        if (result.loginRejected()) {
+            password = null;
+            logger.warn("Email login rejected; {} email(s) wait for a new password", due.size() - result.sentCount());
+            listeners.forEach(Listener::loginRejected);
+            return false;
+        }
+        return true;
+    }
+
+    /** Marks due emails SENDING and returns them, oldest first. */
+    private List<Claimed> claimDue() throws SQLException {
+        List<Claimed> due = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT outbox_id, kind, reference, recipient, subject, status, attempts, last_error, cc, body " +
+                        "FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+                        "ORDER BY next_attempt_at, outbox_id LIMIT ?")) {
+                    ps.setLong(1, System.currentTimeMillis());
+                    ps.setInt(2, BATCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            Entry entry = readEntry(rs);
+                            due.add(new Claimed(new Entry(entry.id(), entry.kind(), entry.reference(),
+                                    entry.recipient(), entry.subject(), Status.SENDING, entry.attempts() + 1,
+                                    entry.lastError()), rs.getString("cc"), rs.getString("body")));
+                        }
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE email_outbox SET status = 'SENDING', attempts = attempts + 1 WHERE outbox_id = ?")) {
+                    for (Claimed claimed : due) {
+                        ps.setLong(1, claimed.entry().id());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return due;
+    }
+
+    /** Marks an email SENT together with what its delivery changes. */
+    private void markSent(Entry entry) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE email_outbox SET status = 'SENT', last_error = NULL, sent_at = CURRENT_TIMESTAMP " +
+                        "WHERE outbox_id = ?")) {
+                    ps.setLong(1, entry.id());
+                    ps.executeUpdate();
+                }
+                if (entry.kind() == Kind.TRANSCRIPT_REQUEST && entry.reference() != null) {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE students_to_graduate SET transcript_requested = 1 WHERE student_number = ?")) {
+                        ps.setString(1, entry.reference());
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        logger.info("Delivered {} email {} to {}", entry.kind(), entry.id(), entry.recipient());
+        Entry sent = withStatus(entry, Status.SENT, null);
+        listeners.forEach(listener -> listener.delivered(sent));
+    }
+
+    /** Schedules another attempt with backoff, or gives up. */
+    private void markFailed(Entry entry, String error, boolean retryable) throws SQLException {
+        boolean giveUp = !retryable || entry.attempts() >= MAX_ATTEMPTS;
+        long delay = Math.min(MAX_RETRY_MILLIS, FIRST_RETRY_MILLIS << Math.min(20, entry.attempts() - 1));
+        // Spread retries so emails that failed together are not retried together
+        delay = (long) (delay * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE email_outbox SET status = ?, last_error = ?, next_attempt_at = ? WHERE outbox_id = ?")) {
+            ps.setString(1, giveUp ? Status.FAILED.name() : Status.PENDING.name());
+            ps.setString(2, error);
+            ps.setLong(3, System.currentTimeMillis() + delay);
+            ps.setLong(4, entry.id());
+            ps.executeUpdate();
+        }
+        if (giveUp) {
+            logger.warn("Gave up on {} email {} to {} after {} attempt(s): {}",
+                    entry.kind(), entry.id(), entry.recipient(), entry.attempts(), error);
+            Entry failed = withStatus(entry, Status.FAILED, error);
+            listeners.forEach(listener -> listener.failed(failed));
+        } else {
+            logger.info("{} email {} to {} failed (attempt {}), retrying in {} s: {}",
+                    entry.kind(), entry.id(), entry.recipient(), entry.attempts(), delay / 1000, error);
+        }
+    }
+
+    /** Puts a claimed email back without counting the attempt. */
+    private void release(Entry entry, String error) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE email_outbox SET status = 'PENDING', attempts = attempts - 1, last_error = ? " +
+                     "WHERE outbox_id = ?")) {
+            ps.setString(1, error);
+            ps.setLong(2, entry.id());
+            ps.executeUpdate();
+        }
+    }
+
+    /** Schedules the next round for when the earliest retry is due. */
+    private void scheduleNextDue() throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(next_attempt_at) FROM email_outbox WHERE status = 'PENDING'")) {
+            if (rs.next()) {
+                long at = rs.getLong(1);
+                if (!rs.wasNull()) {
+                    schedule(at);
+                }
+            }
+        }
+    }
+
+    private static Entry readEntry(ResultSet rs) throws SQLException {
+        return new Entry(rs.getLong("outbox_id"), Kind.valueOf(rs.getString("kind")), rs.getString("reference"),
+                rs.getString("recipient"), rs.getString("subject"), Status.valueOf(rs.getString("status")),
+                rs.getInt("attempts"), rs.getString("last_error"));
+    }
+
+    private static Entry withStatus(Entry entry, Status status, String error) {
+        return new Entry(entry.id(), entry.kind(), entry.reference(), entry.recipient(), entry.subject(),
+                status, entry.attempts(), error);
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,15 +1,11 @@
 package com.cole.Service;
 
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.util.Optional;
 import java.util.Properties;
 
-import jakarta.mail.Authenticator;
 import jakarta.mail.Message;
-import jakarta.mail.PasswordAuthentication;
+import jakarta.mail.MessagingException;
 import jakarta.mail.Session;
-import jakarta.mail.Transport;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 import javafx.scene.control.ButtonType;
@@ -23,17 +19,10 @@ public class EmailServices {
     
     /**
      * Loads email settings from a properties file.
-     * @return Properties object containing email settings, or null if loading fails
+     * @return Properties object containing email settings, or null if the file does not exist
      */
     public static Properties loadEmailSettings() {
-        Properties config = new Properties();
-        try (java.io.FileInputStream fis = new java.io.FileInputStream("email_settings.properties")) {
-            config.load(fis);
-            return config;
-        } catch (Exception e) {
-            // Optionally log the error here if you have a logger
-            return null;
-        }
+        return ConfigService.shared().getProperties(ConfigService.ConfigFile.EMAIL);
     }
 
     /**
@@ -90,6 +79,8 @@ public class EmailServices {
 
     /**
      * Sends an email with the specified parameters.
+     * The connection to the server is kept open for a while afterwards, so further emails
+     * from the same account skip connecting and logging in again.
      * @param from the sender's email address
      * @param password the sender's email password
      * @param to the recipient's email address
@@ -101,24 +92,29 @@ public class EmailServices {
      * @throws Exception if sending fails
      */
     public static void sendEmail(String from, String password, String to, String cc, String subject, String body, String smtp, String port) throws Exception {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", smtp);
-        props.put("mail.smtp.port", port);
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(from, password);
-            }
-        });
+        SmtpTransportPool pool = SmtpTransportPool.shared(SmtpSettings.of(smtp, port, from, password));
+        pool.send(createMessage(pool.getSession(), from, to, cc, getManagerCC(), subject, body));
+    }
 
+    /**
+     * Creates a plain text email.
+     * @param session session the message will be sent through
+     * @param from the sender's email address
+     * @param to the recipient's email address
+     * @param cc additional CC recipients; may be null
+     * @param managerCC manager CC address added to every email; may be empty
+     * @param subject the subject of the email
+     * @param body the body of the email
+     * @return the message
+     * @throws MessagingException if an address is invalid
+     */
+    static Message createMessage(Session session, String from, String to, String cc, String managerCC,
+                                 String subject, String body) throws MessagingException {
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress(from));
         message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
 
         // Always add manager CC
-        String managerCC = getManagerCC();
         String allCC = "";
         if (cc != null && !cc.isEmpty()) {
             allCC = cc;
@@ -136,8 +132,7 @@ public class EmailServices {
 
         message.setSubject(subject);
         message.setText(body);
-
-        Transport.send(message);
+        return message;
     }
 
     /**
@@ -145,14 +140,7 @@ public class EmailServices {
      * @return the SCAA recipient email address
      */
     public static String getScaaRecipient() {
-        Properties props = new Properties();
-        try (FileInputStream fis = new FileInputStream("transcript_email_settings.properties")) {
-            props.load(fis);
-            return props.getProperty("scaa.recipient", "");
-        } catch (IOException e) {
-            // Optionally log error
-            return "";
-        }
+        return ConfigService.shared().getScaaRecipient();
     }
 
     /**
@@ -160,13 +148,6 @@ public class EmailServices {
      * @return the manager's CC email address
      */
     public static String getManagerCC() {
-        Properties props = new Properties();
-        try (FileInputStream fis = new FileInputStream("manager_email_settings.properties")) {
-            props.load(fis);
-            return props.getProperty("manager.cc", "");
-        } catch (IOException e) {
-            // Optionally log error
-            return "";
-        }
+        return ConfigService.shared().getManagerCC();
     }
 }
@@ -0,0 +1,61 @@
+package com.cole.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * One column of an export: its heading and how its value is read from the current row
+ * of the export query's {@link ResultSet}.
+ */
+public final class ExportColumn {
+
+    /** Reads a column value from the current row. */
+    @FunctionalInterface
+    public interface ValueReader {
+        /**
+         * @param rs result set positioned on a row
+         * @return the cell text, or null for an empty cell
+         */
+        String read(ResultSet rs) throws SQLException;
+    }
+
+    private final String heading;
+    private final ValueReader reader;
+
+    private ExportColumn(String heading, ValueReader reader) {
+        this.heading = heading;
+        this.reader = reader;
+    }
+
+    /**
+     * A column copied as text from a query column.
+     * @param heading column heading
+     * @param columnLabel label of the query column
+     */
+    public static ExportColumn text(String heading, String columnLabel) {
+        return new ExportColumn(heading, rs -> rs.getString(columnLabel));
+    }
+
+    /**
+     * A column left empty on every row, e.g. for the recipient to fill in.
+     * @param heading column heading
+     */
+    public static ExportColumn blank(String heading) {
+        return new ExportColumn(heading, rs -> "");
+    }
+
+    /**
+     * A column computed from the row.
+     * @param heading column heading
+     * @param reader computes the cell text
+     */
+    public static ExportColumn of(String heading, ValueReader reader) {
+        return new ExportColumn(heading, reader);
+    }
+
+    public String getHeading() { return heading; }
+
+    String read(ResultSet rs) throws SQLException {
+        return reader.read(rs);
+    }
+}
@@ -0,0 +1,40 @@
+package com.cole.Service;
+
+import com.cole.util.StreamingExcelWriter.CellFormat;
+
+import java.util.List;
+
+/**
+ * Describes one export: the query that produces its rows, the columns read from each
+ * row, and the title and sheet layout used by the XLSX format. The same definition can
+ * be written in any {@link ExportFormat}.
+ *
+ * @param title report title, written above the header in XLSX
+ * @param sheetName XLSX sheet name
+ * @param sql query producing the rows, in export order
+ * @param parameters values bound to the query's placeholders, in order
+ * @param columns exported columns
+ * @param titleFormat XLSX title format
+ * @param fixedColumnWidth XLSX column width in characters, or 0 to size columns from the data
+ */
+public record ExportDefinition(String title, String sheetName, String sql, List<Object> parameters,
+                               List<ExportColumn> columns, CellFormat titleFormat, int fixedColumnWidth) {
+
+    public ExportDefinition {
+        parameters = List.copyOf(parameters);
+        columns = List.copyOf(columns);
+    }
+
+    /**
+     * A definition with the default title format and column widths sized from the data.
+     */
+    public ExportDefinition(String title, String sheetName, String sql, List<Object> parameters,
+                            List<ExportColumn> columns) {
+        this(title, sheetName, sql, parameters, columns, CellFormat.TITLE, 0);
+    }
+
+    /** @return the column headings, in order */
+    public String[] headings() {
+        return columns.stream().map(ExportColumn::getHeading).toArray(String[]::new);
+    }
+}
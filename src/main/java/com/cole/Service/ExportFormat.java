@@ -0,0 +1,50 @@
+package com.cole.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * File formats an {@link ExportDefinition} can be written in.
+ */
+public enum ExportFormat {
+    /** Comma-separated values, UTF-8. Header row only; no title. */
+    CSV("CSV Files", "csv"),
+    /** Excel workbook with a title row, styled header and bordered cells. */
+    XLSX("Excel Files", "xlsx");
+
+    private final String description;
+    private final String extension;
+
+    ExportFormat(String description, String extension) {
+        this.description = description;
+        this.extension = extension;
+    }
+
+    /** @return file chooser description, e.g. "Excel Files" */
+    public String getDescription() { return description; }
+
+    /** @return file extension without the dot */
+    public String getExtension() { return extension; }
+
+    /**
+     * Finds the format matching a file's extension.
+     * @param fileName file name
+     * @return the format, or null if the extension is not recognised
+     */
+    public static ExportFormat forFileName(String fileName) {
+        String lower = fileName.toLowerCase();
+        for (ExportFormat format : values()) {
+            if (lower.endsWith("." + format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    ExportWriter open(ExportDefinition definition, OutputStream out) throws IOException {
+        return switch (this) {
+            case CSV -> new CsvExportWriter(definition, out);
+            case XLSX -> new XlsxExportWriter(definition, out);
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package com.cole.Service;
+
+import com.cole.util.DBUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs {@link ExportDefinition}s: streams the query's rows through the columns into a
+ * writer for the chosen {@link ExportFormat}, reporting progress and stopping early when
+ * cancelled.
+ * <p>
+ * Output goes to a temporary file next to the destination, which replaces the
+ * destination only once the export has completed, so a failed or cancelled export never
+ * leaves a truncated file behind.
+ */
+public class ExportService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    /** Rows between progress updates. */
+    private static final int PROGRESS_INTERVAL = 500;
+
+    /** Receives progress from {@link #export} and tells it when to stop. */
+    public interface Progress {
+        /**
+         * @param rows rows written so far
+         * @param totalRows rows the export will write
+         */
+        void update(long rows, long totalRows);
+
+        /** @return true to stop the export */
+        boolean isCancelled();
+    }
+
+    /** Progress that is ignored and never cancels. */
+    public static final Progress NO_PROGRESS = new Progress() {
+        @Override public void update(long rows, long totalRows) { }
+        @Override public boolean isCancelled() { return false; }
+    };
+
+    /**
+     * Writes an export to a file.
+     * @param definition What to export.
+     * @param format Output format.
+     * @param file Destination file; replaced if it exists.
+     * @param progress Progress listener and cancellation check.
+     * @return number of data rows written
+     * @throws CancellationException if {@code progress} reported cancellation
+     */
+    public int export(ExportDefinition definition, ExportFormat format, File file, Progress progress)
+            throws SQLException, IOException {
+        long started = System.nanoTime();
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), ".export-", ".tmp");
+        int rows;
+        try {
+            try (Connection conn = DBUtil.getConnection()) {
+                long total = countRows(conn, definition);
+                progress.update(0, total);
+                try (PreparedStatement ps = prepare(conn, definition.sql(), definition.parameters());
+                     ResultSet rs = ps.executeQuery();
+                     OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024);
+                     ExportWriter writer = format.open(definition, out)) {
+                    rows = writeRows(definition.columns(), rs, writer, progress, total);
+                    writer.finish();
+                }
+                progress.update(rows, Math.max(rows, total));
+            }
+            moveIntoPlace(temp, target);
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        logger.info("Exported {} rows of '{}' as {} to {} in {} ms", rows, definition.title(), format,
+                target, (System.nanoTime() - started) / 1_000_000);
+        return rows;
+    }
+
+    /**
+     * Creates a background job for an export. The task's progress and message track the
+     * rows written, and cancelling the task stops the export and discards the output.
+     * Submit it with {@code BackgroundTasks.submit(Lane.EXPORT, task)}.
+     * @param definition What to export.
+     * @param format Output format.
+     * @param file Destination file.
+     * @return task whose value is the number of data rows written
+     */
+    public Task<Integer> exportTask(ExportDefinition definition, ExportFormat format, File file) {
+        return new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                Task<Integer> job = this;
+                updateMessage("Preparing " + definition.title() + "...");
+                return export(definition, format, file, new Progress() {
+                    @Override
+                    public void update(long rows, long totalRows) {
+                        updateProgress(rows, Math.max(1, totalRows));
+                        updateMessage("Exported " + rows + " of " + totalRows + " rows");
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return job.isCancelled();
+                    }
+                });
+            }
+        };
+    }
+
+    private static int writeRows(List<ExportColumn> columns, ResultSet rs, ExportWriter writer,
+                                 Progress progress, long total) throws SQLException, IOException {
+        String[] values = new String[columns.size()];
+        int rows = 0;
+        while (rs.next()) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = columns.get(i).read(rs);
+            }
+            writer.writeRow(values);
+            if (++rows % PROGRESS_INTERVAL == 0) {
+                if (progress.isCancelled()) {
+                    throw new CancellationException("Export cancelled after " + rows + " rows");
+                }
+                progress.update(rows, Math.max(rows, total));
+            }
+        }
+        return rows;
+    }
+
+    private static long countRows(Connection conn, ExportDefinition definition) throws SQLException {
+        try (PreparedStatement ps = prepare(conn, "SELECT COUNT(*) FROM (" + definition.sql() + ")", definition.parameters());
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static PreparedStatement prepare(Connection conn, String sql, List<Object> parameters) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        try {
+            for (int i = 0; i < parameters.size(); i++) {
+                ps.setObject(i + 1, parameters.get(i));
+            }
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+        return ps;
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
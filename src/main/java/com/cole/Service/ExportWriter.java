@@ -0,0 +1,23 @@
+package com.cole.Service;
+
+import java.io.IOException;
+
+/**
+ * Writes the rows of one export in a particular {@link ExportFormat}. Created by
+ * {@link ExportFormat}; rows are passed in as they are read from the database.
+ */
+interface ExportWriter extends AutoCloseable {
+
+    /**
+     * Writes one data row.
+     * @param values cell text per column, null for empty; the array may be reused by the caller
+     */
+    void writeRow(String[] values) throws IOException;
+
+    /** Completes the output. Not called when the export fails or is cancelled. */
+    void finish() throws IOException;
+
+    /** Releases resources; the output stream is closed by the caller. */
+    @Override
+    void close() throws IOException;
+}
@@ -1,131 +1,251 @@
 package com.cole.Service;
 
 import com.cole.util.DBUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class GraduationService {
+    private static final Logger logger = LoggerFactory.getLogger(GraduationService.class);
+
+    /** Quiet period after the last queued mark change before the queue is drained. */
+    private static final long DEBOUNCE_MILLIS = 300;
+    /** Maximum number of student IDs bound into one IN (...) list. */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    /** Students whose marks changed since the last drain. */
+    private static final Set<Integer> dirtyStudents = new HashSet<>();
+    /** Completes when the currently queued students have been evaluated. */
+    private static CompletableFuture<Void> pendingDrain;
+    private static ScheduledFuture<?> scheduledDrain;
+    private static final ScheduledExecutorService evaluator = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "graduation-evaluator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final String FLAG_SQL =
+        "INSERT OR IGNORE INTO students_to_graduate (student_id, student_number, first_name, second_name, last_name, " +
+        "id_number, slp_course, email, phone, branch, transcript_requested) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String UNFLAG_SQL = "DELETE FROM students_to_graduate WHERE student_id = ?";
+    private static final String SET_STATUS_SQL = "UPDATE students SET status = ? WHERE student_id = ?";
 
-    // Call this to check and update all graduation flags and statuses
+    /**
+     * Checks every student's graduation eligibility and updates students_to_graduate
+     * and students.status for those whose state changed.
+     * <p>
+     * Eligibility for all students comes from one aggregate query; the resulting
+     * flag/unflag changes are written as batches in a single transaction.
+     */
     public void checkAndUpdateGraduationFlags() {
+        long start = System.nanoTime();
         try (Connection conn = DBUtil.getConnection()) {
-            String studentQuery = "SELECT s.student_id, s.student_number, s.first_name, s.second_name, s.last_name, s.id_number, s.branch, s.email, s.phone, slp.name AS slp_course " +
-                                  "FROM students s JOIN slps slp ON s.current_slp_id = slp.slp_id";
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(studentQuery)) {
-                while (rs.next()) {
-                    int studentId = rs.getInt("student_id");
-                    String slpCourse = rs.getString("slp_course");
-                    if (hasPassedAllModules(conn, studentId)) {
-                        flagStudent(conn, rs, slpCourse);
-                    } else {
-                        unflagStudent(conn, studentId);
-                    }
-                }
+            conn.setAutoCommit(false);
+            try {
+                int[] changes = applyChanges(conn, null);
+                conn.commit();
+                logger.info("Graduation evaluation: {} flagged, {} unflagged in {} ms",
+                        changes[0], changes[1], (System.nanoTime() - start) / 1_000_000);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            logger.error("Graduation evaluation failed", e);
         }
     }
 
     /**
-     * Checks if a student has passed all their modules.
-     * Formative must pass, summative must pass, if summative failed then supplementary must pass.
+     * Re-evaluates graduation eligibility for a single student.
+     * @param studentId Student whose marks or SLP changed.
      */
-    private boolean hasPassedAllModules(Connection conn, int studentId) throws SQLException {
-        String query = "SELECT sm.module_id, m.name AS module_name, sm.formative, sm.summative, sm.supplementary, m.pass_rate " +
-                       "FROM student_modules sm JOIN modules m ON sm.module_id = m.module_id " +
-                       "WHERE sm.student_id = ?";
-        boolean hasModules = false;
-        try (PreparedStatement ps = conn.prepareStatement(query)) {
-            ps.setInt(1, studentId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    hasModules = true;
-                    int passRate = rs.getInt("pass_rate");
-                    Double formative = rs.getObject("formative") != null ? rs.getDouble("formative") : null;
-                    Double summative = rs.getObject("summative") != null ? rs.getDouble("summative") : null;
-                    Double supplementary = rs.getObject("supplementary") != null ? rs.getDouble("supplementary") : null;
+    public void reevaluateStudent(int studentId) {
+        reevaluateStudents(Collections.singleton(studentId));
+    }
 
-                    // If formative or summative is missing, not passed
-                    if (formative == null || summative == null) {
-                        return false;
-                    }
-                    // Formative must pass
-                    if (formative < passRate) {
-                        return false;
-                    }
-                    // Summative must pass, unless supplementary is a pass
-                    if (summative < passRate) {
-                        if (supplementary == null || supplementary < passRate) {
-                            return false;
-                        }
-                    }
+    /**
+     * Re-evaluates graduation eligibility for the given students only. Cost depends on
+     * the number of students passed in, not on the size of the database.
+     * @param studentIds Students whose marks or SLP changed.
+     */
+    public void reevaluateStudents(Collection<Integer> studentIds) {
+        if (studentIds.isEmpty()) return;
+        List<Integer> ids = new ArrayList<>(studentIds);
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                    applyChanges(conn, ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY)));
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
+        } catch (SQLException e) {
+            logger.error("Graduation re-evaluation failed for {} student(s)", ids.size(), e);
         }
-        return hasModules;
     }
 
-    // Insert into students_to_graduate and update status
-    private void flagStudent(Connection conn, ResultSet rs, String slpCourse) throws SQLException {
-        String studentNumber = rs.getString("student_number");
-        String firstName = rs.getString("first_name");
-        String secondName = rs.getString("second_name");
-        String lastName = rs.getString("last_name");
-        String idNumber = rs.getString("id_number");
-        String branch = rs.getString("branch");
-        String email = rs.getString("email");
-        String phone = rs.getString("phone");
-        int studentId = rs.getInt("student_id");
-        if (studentNumber == null || firstName == null || lastName == null || slpCourse == null) {
-            System.out.println("flagStudent: Required field is null, skipping for studentId=" + studentId);
-            return;
-        }
-        System.out.println("flagStudent: Adding " + studentNumber + " to students_to_graduate");
-        String insertSql = "INSERT OR IGNORE INTO students_to_graduate (student_id, student_number, first_name, second_name, last_name, id_number, slp_course, email, phone, branch, transcript_requested) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
-        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
-            ps.setInt(1, studentId);
-            ps.setString(2, studentNumber);
-            ps.setString(3, firstName);
-            ps.setString(4, secondName);
-            ps.setString(5, lastName);
-            ps.setString(6, idNumber);
-            ps.setString(7, slpCourse);
-            ps.setString(8, email);
-            ps.setString(9, phone);
-            ps.setString(10, branch);
-            int rows = ps.executeUpdate();
-            System.out.println("flagStudent: Inserted rows = " + rows + " for student_number=" + studentNumber);
-            if (rows == 0) {
-                System.out.println("flagStudent: Insert was ignored or failed for student_number=" + studentNumber);
+    /**
+     * Queues a student for re-evaluation after a mark change. Changes arriving within
+     * {@value #DEBOUNCE_MILLIS} ms of each other are evaluated together on a background
+     * thread, so typing marks never waits on the database.
+     * @param studentId Student whose marks changed.
+     * @return future completed once the student's graduation state has been updated
+     */
+    public static CompletableFuture<Void> queueReevaluation(int studentId) {
+        synchronized (dirtyStudents) {
+            dirtyStudents.add(studentId);
+            if (pendingDrain == null) {
+                pendingDrain = new CompletableFuture<>();
             }
+            if (scheduledDrain != null) {
+                scheduledDrain.cancel(false);
+            }
+            scheduledDrain = evaluator.schedule(GraduationService::drainQueue, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            return pendingDrain;
+        }
+    }
+
+    private static void drainQueue() {
+        Set<Integer> batch;
+        CompletableFuture<Void> done;
+        synchronized (dirtyStudents) {
+            batch = new HashSet<>(dirtyStudents);
+            dirtyStudents.clear();
+            done = pendingDrain;
+            pendingDrain = null;
+            scheduledDrain = null;
         }
-        // Update student status to 'Graduated'
-        try (PreparedStatement ps = conn.prepareStatement("UPDATE students SET status = 'Graduated' WHERE student_id = ?")) {
-            ps.setInt(1, studentId);
-            ps.executeUpdate();
+        if (done == null) return;
+        try {
+            new GraduationService().reevaluateStudents(batch);
+        } finally {
+            done.complete(null);
         }
     }
 
-    // Remove from students_to_graduate and revert status
-    private void unflagStudent(Connection conn, int studentId) throws SQLException {
-        String studentNumber = null;
-        try (PreparedStatement ps = conn.prepareStatement("SELECT student_number FROM students WHERE student_id = ?")) {
-            ps.setInt(1, studentId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) studentNumber = rs.getString("student_number");
+    /**
+     * Builds the query selecting students whose graduation state disagrees with their
+     * eligibility: eligible but not yet flagged/Graduated, or no longer eligible but
+     * still flagged/Graduated.
+     * <p>
+     * A module is passed when formative and summative are both recorded, formative
+     * reaches the pass rate, and summative (or, failing that, supplementary) reaches it.
+     * Replaced modules (reregistrations) are ignored. A student with no modules is not eligible.
+     * @param idCount Number of student IDs to restrict to, or 0 for all students.
+     */
+    private static String changedStudentsSql(int idCount) {
+        String idFilter = idCount == 0 ? "" : " IN (" + String.join(", ", Collections.nCopies(idCount, "?")) + ")";
+        return "SELECT s.student_id, s.student_number, s.first_name, s.second_name, s.last_name, s.id_number, " +
+            "s.branch, s.email, s.phone, s.status, slp.name AS slp_course, " +
+            "COALESCE(e.eligible, 0) AS eligible, g.student_id IS NOT NULL AS flagged " +
+            "FROM students s JOIN slps slp ON s.current_slp_id = slp.slp_id " +
+            "LEFT JOIN (" +
+            "SELECT sm.student_id, " +
+            "MIN(CASE WHEN sm.formative IS NOT NULL AND sm.summative IS NOT NULL " +
+            "AND sm.formative >= m.pass_rate " +
+            "AND (sm.summative >= m.pass_rate OR (sm.supplementary IS NOT NULL AND sm.supplementary >= m.pass_rate)) " +
+            "THEN 1 ELSE 0 END) AS eligible " +
+            "FROM student_modules sm JOIN modules m ON sm.module_id = m.module_id " +
+            "WHERE (sm.status IS NULL OR sm.status != 'replaced')" +
+            (idCount == 0 ? "" : " AND sm.student_id" + idFilter) +
+            " GROUP BY sm.student_id" +
+            ") e ON e.student_id = s.student_id " +
+            "LEFT JOIN students_to_graduate g ON g.student_id = s.student_id " +
+            "WHERE ((COALESCE(e.eligible, 0) = 1 AND (g.student_id IS NULL OR s.status IS NOT 'Graduated')) " +
+            "OR (COALESCE(e.eligible, 0) = 0 AND (g.student_id IS NOT NULL OR s.status = 'Graduated')))" +
+            (idCount == 0 ? "" : " AND s.student_id" + idFilter);
+    }
+
+    /**
+     * Writes the pending flag/unflag changes on the given connection.
+     * @param studentIds Students to evaluate, or null for all students.
+     * @return number of students flagged and unflagged
+     */
+    private int[] applyChanges(Connection conn, List<Integer> studentIds) throws SQLException {
+        int flagged = 0;
+        int unflagged = 0;
+        int idCount = studentIds == null ? 0 : studentIds.size();
+        try (PreparedStatement query = conn.prepareStatement(changedStudentsSql(idCount));
+             PreparedStatement flag = conn.prepareStatement(FLAG_SQL);
+             PreparedStatement unflag = conn.prepareStatement(UNFLAG_SQL);
+             PreparedStatement setStatus = conn.prepareStatement(SET_STATUS_SQL)) {
+            // The ID list is bound twice: once inside the eligibility aggregate, once on students
+            for (int i = 0; i < idCount; i++) {
+                query.setInt(i + 1, studentIds.get(i));
+                query.setInt(idCount + i + 1, studentIds.get(i));
             }
-        }
-        if (studentNumber != null) {
-            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM students_to_graduate WHERE student_number = ?")) {
-                ps.setString(1, studentNumber);
-                ps.executeUpdate();
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    int studentId = rs.getInt("student_id");
+                    if (rs.getInt("eligible") == 1) {
+                        if (!addFlag(flag, rs)) {
+                            continue;
+                        }
+                        setStatus.setString(1, "Graduated");
+                        flagged++;
+                    } else {
+                        if (rs.getInt("flagged") == 1) {
+                            unflag.setInt(1, studentId);
+                            unflag.addBatch();
+                        }
+                        setStatus.setString(1, "Active");
+                        unflagged++;
+                    }
+                    setStatus.setInt(2, studentId);
+                    setStatus.addBatch();
+                }
             }
+            flag.executeBatch();
+            unflag.executeBatch();
+            setStatus.executeBatch();
+        }
+        return new int[] { flagged, unflagged };
+    }
+
+    /**
+     * Queues the students_to_graduate insert for an eligible student.
+     * @return false if a required field is missing and the student must be skipped
+     */
+    private boolean addFlag(PreparedStatement flag, ResultSet rs) throws SQLException {
+        int studentId = rs.getInt("student_id");
+        String studentNumber = rs.getString("student_number");
+        String firstName = rs.getString("first_name");
+        String lastName = rs.getString("last_name");
+        String slpCourse = rs.getString("slp_course");
+        if (studentNumber == null || firstName == null || lastName == null || slpCourse == null) {
+            logger.warn("Skipping graduation flag for student_id={}: required field is null", studentId);
+            return false;
         }
-        // Optionally set status back to 'Active'
-        try (PreparedStatement ps = conn.prepareStatement("UPDATE students SET status = 'Active' WHERE student_id = ?")) {
-            ps.setInt(1, studentId);
-            ps.executeUpdate();
+        if (rs.getInt("flagged") == 1) {
+            // Already listed; only the status needs correcting
+            return true;
         }
+        flag.setInt(1, studentId);
+        flag.setString(2, studentNumber);
+        flag.setString(3, firstName);
+        flag.setString(4, rs.getString("second_name"));
+        flag.setString(5, lastName);
+        flag.setString(6, rs.getString("id_number"));
+        flag.setString(7, slpCourse);
+        flag.setString(8, rs.getString("email"));
+        flag.setString(9, rs.getString("phone"));
+        flag.setString(10, rs.getString("branch"));
+        flag.addBatch();
+        return true;
     }
 }
@@ -0,0 +1,204 @@
+package com.cole.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rendered reports kept on disk, so a report whose data has not changed is copied
+ * instead of being queried and rendered again.
+ * <p>
+ * Entries are named by the SHA-256 of a fingerprint of everything the report shows (see
+ * {@link StudentReportsService#getReportVersion}), so a changed report simply gets a new
+ * name and stale entries are never served. The least recently used entries are deleted
+ * once the cache grows past its size limit; file modification times record use, so the
+ * order survives restarts. Safe to use from several threads.
+ */
+public class ReportCache {
+    private static final Logger logger = LoggerFactory.getLogger(ReportCache.class);
+
+    /** Default size limit of the shared cache. */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final ReportCache SHARED = new ReportCache(
+            Paths.get(System.getProperty("user.home"), "studenttracker_report_cache"), DEFAULT_MAX_BYTES);
+
+    private static final String SUFFIX = ".pdf";
+
+    /** Writes a report that is not cached yet. */
+    @FunctionalInterface
+    public interface Renderer {
+        /**
+         * @param out destination; closed by the cache
+         * @return false if the document must not be kept, e.g. because its data changed
+         *         while it was being rendered
+         */
+        boolean write(OutputStream out) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    /** Entry sizes by file name, least recently used first. */
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+
+    /**
+     * @param directory directory holding the cached files; created when first needed
+     * @param maxBytes size limit of all entries together
+     */
+    public ReportCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /** @return the application-wide report cache */
+    public static ReportCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Writes a report to a file, from the cache if it holds {@code fingerprint} and
+     * otherwise by rendering it and keeping a copy.
+     *
+     * @param fingerprint identifies the report's content
+     * @param target destination file; replaced if it exists
+     * @param renderer renders the report on a miss
+     * @return true if the report came from the cache
+     */
+    public boolean copyTo(String fingerprint, Path target, Renderer renderer) throws IOException {
+        String name = fileName(fingerprint);
+        Path cached = directory.resolve(name);
+        synchronized (this) {
+            load();
+            if (entries.containsKey(name)) {
+                if (Files.exists(cached)) {
+                    Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+                    Files.copy(cached, target, StandardCopyOption.REPLACE_EXISTING);
+                    return true;
+                }
+                totalBytes -= entries.remove(name);
+            }
+        }
+
+        Path temp = Files.createTempFile(directory, ".report-", ".tmp");
+        try {
+            boolean keep;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                keep = renderer.write(out);
+            }
+            Files.copy(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            long size = Files.size(temp);
+            if (keep && size <= maxBytes) {
+                store(temp, cached, name, size);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return false;
+    }
+
+    /** Deletes every cached report. */
+    public synchronized void clear() throws IOException {
+        load();
+        for (String name : new ArrayList<>(entries.keySet())) {
+            Files.deleteIfExists(directory.resolve(name));
+        }
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    private synchronized void store(Path temp, Path cached, String name, long size) throws IOException {
+        try {
+            Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Long previous = entries.put(name, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        evict(name);
+    }
+
+    /** Deletes least recently used entries until the cache fits, keeping {@code keep}. */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException e) {
+                logger.warn("Could not delete cached report {}: {}", entry.getKey(), e.getMessage());
+                continue;
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    /** Indexes the files already on disk, oldest use first, on first access. */
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    files.add(file);
+                } else if (name.startsWith(".report-")) {
+                    // Left behind by a render that was killed
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(file -> {
+            try {
+                return Files.getLastModifiedTime(file);
+            } catch (IOException e) {
+                return FileTime.fromMillis(0);
+            }
+        }));
+        for (Path file : files) {
+            long size = Files.size(file);
+            entries.put(file.getFileName().toString(), size);
+            totalBytes += size;
+        }
+        loaded = true;
+        evict(null);
+        logger.info("Report cache {} holds {} report(s), {} KB", directory, entries.size(), totalBytes / 1024);
+    }
+
+    private static String fileName(String fingerprint) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(fingerprint.getBytes(StandardCharsets.UTF_8))) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -17,7 +17,6 @@ import java.util.List;
 public class SLPModuleService {
     private static final Logger logger = LoggerFactory.getLogger(SLPModuleService.class);
 
-    private static final String SELECT_ALL_SLPS = "SELECT * FROM slps";
     private static final String SELECT_MODULES_FOR_SLP =
             "SELECT m.module_id, m.module_code, m.name, m.pass_rate " +
             "FROM modules m JOIN slp_modules sm ON sm.module_id = m.module_id WHERE sm.slp_id = ?";
@@ -36,21 +35,7 @@ public class SLPModuleService {
      * @return List of SLP objects.
      */
     public List<SLP> getAllSLPs() {
-        List<SLP> slpList = new ArrayList<>();
-        try (Connection conn = DBUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(SELECT_ALL_SLPS)) {
-            while (rs.next()) {
-                slpList.add(new SLP(
-                        rs.getInt("slp_id"),
-                        rs.getString("slp_code"),
-                        rs.getString("name")
-                ));
-            }
-        } catch (SQLException e) {
-            logger.error("Failed to load SLPs", e);
-        }
-        return slpList;
+        return new SLPService().getAllSLPs();
     }
 
     /**
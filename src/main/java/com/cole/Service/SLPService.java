@@ -11,32 +11,85 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SLPService {
     private static final Logger logger = LoggerFactory.getLogger(SLPService.class);
 
+    /** Cached SLP rows; null until loaded or after a change. */
+    private static volatile List<SlpRow> cachedSlps;
+    /** Incremented by {@link #invalidateCache()}, so a load that overlapped a change is not cached. */
+    private static final AtomicLong cacheGeneration = new AtomicLong();
+
+    /**
+     * Loads the SLP list into memory so the first screen that needs it does not wait
+     * on the database. Called as a startup stage.
+     */
+    public static void preload() {
+        new SLPService().getAllSLPs();
+    }
+
     /**
-     * Retrieves all SLPs from the database.
+     * Retrieves all SLPs, from the in-memory cache when it is populated.
+     * Each call returns fresh SLP objects, so callers may modify them freely.
      * @return List of SLP objects.
      */
     public List<SLP> getAllSLPs() {
-        List<SLP> slps = new ArrayList<>();
+        try {
+            return loadAllSLPs();
+        } catch (SQLException e) {
+            logger.error("Failed to load SLPs", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Same as {@link #getAllSLPs()}, but reports a database error instead of
+     * returning an empty list, for screens that tell the user.
+     * @return List of SLP objects.
+     * @throws SQLException if the SLPs are not cached and cannot be read.
+     */
+    public List<SLP> loadAllSLPs() throws SQLException {
+        List<SlpRow> rows = cachedSlps;
+        if (rows == null) {
+            rows = loadSlpRows();
+        }
+        List<SLP> slps = new ArrayList<>(rows.size());
+        for (SlpRow row : rows) {
+            slps.add(new SLP(row.id, row.code, row.name));
+        }
+        return slps;
+    }
+
+    private static List<SlpRow> loadSlpRows() throws SQLException {
+        long generation = cacheGeneration.get();
+        List<SlpRow> rows = new ArrayList<>();
         String sql = "SELECT slp_id, slp_code, name FROM slps";
         try (Connection conn = DBUtil.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                slps.add(new SLP(
-                        rs.getInt("slp_id"),
-                        rs.getString("slp_code"),
-                        rs.getString("name")
-                ));
+                rows.add(new SlpRow(rs.getInt("slp_id"), rs.getString("slp_code"), rs.getString("name")));
             }
-        } catch (SQLException e) {
-            logger.error("Failed to load SLPs", e);
         }
-        return slps;
+        synchronized (cacheGeneration) {
+            if (cacheGeneration.get() == generation) {
+                cachedSlps = Collections.unmodifiableList(rows);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Drops the cached SLP list so the next read comes from the database.
+     */
+    public static void invalidateCache() {
+        synchronized (cacheGeneration) {
+            cacheGeneration.incrementAndGet();
+            cachedSlps = null;
+        }
     }
 
     /**
@@ -52,6 +105,7 @@ public class SLPService {
             stmt.setString(1, code);
             stmt.setString(2, name);
             stmt.executeUpdate();
+            invalidateCache();
             return true;
         } catch (SQLException e) {
             logger.error("Failed to add SLP", e);
@@ -74,6 +128,7 @@ public class SLPService {
             stmt.setString(2, name);
             stmt.setInt(3, id);
             int affected = stmt.executeUpdate();
+            invalidateCache();
             return affected > 0;
         } catch (SQLException e) {
             logger.error("Failed to update SLP", e);
@@ -81,6 +136,25 @@ public class SLPService {
         }
     }
 
+    /**
+     * Counts the students whose current SLP is the given one. Such an SLP cannot be
+     * deleted, as {@code students.current_slp_id} references it.
+     * @param id SLP ID to check.
+     * @return number of students on the SLP, 0 if it cannot be read.
+     */
+    public int countStudentsOnSLP(int id) {
+        String sql = "SELECT COUNT(*) FROM students WHERE current_slp_id = ?";
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            logger.error("Failed to count students on SLP", e);
+            return 0;
+        }
+    }
+
     /**
      * Deletes an SLP from the database.
      * @param id SLP ID to delete.
@@ -92,6 +166,7 @@ public class SLPService {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             stmt.executeUpdate();
+            invalidateCache();
             return true;
         } catch (SQLException e) {
             logger.error("Failed to delete SLP", e);
@@ -124,4 +199,17 @@ public class SLPService {
         }
         return false;
     }
+
+    /** Immutable cached copy of one slps row. */
+    private static final class SlpRow {
+        private final int id;
+        private final String code;
+        private final String name;
+
+        private SlpRow(int id, String code, String name) {
+            this.id = id;
+            this.code = code;
+            this.name = name;
+        }
+    }
 }
@@ -0,0 +1,90 @@
+package com.cole.Service;
+
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Where and how outgoing mail is sent.
+ * <p>
+ * Read from {@code email_settings.properties}: {@code email.smtp}, {@code email.port} and
+ * {@code email.sender} as before, plus optional {@code email.starttls} and
+ * {@code email.auth} (both default true; turn them off to send through a local relay or
+ * test server), {@code email.max_connections} (connections a bulk send keeps open,
+ * default {@value #DEFAULT_MAX_CONNECTIONS}) and {@code email.rate_per_second} (steady
+ * bulk sending rate, default {@value #DEFAULT_RATE_PER_SECOND}).
+ *
+ * @param host SMTP server
+ * @param port SMTP port
+ * @param username sender address, also used to log in
+ * @param password login password; ignored without {@code auth}
+ * @param startTls upgrade the connection with STARTTLS
+ * @param auth log in before sending
+ * @param maxConnections connections a bulk send may keep open at once
+ * @param ratePerSecond messages a bulk send may start per second
+ */
+public record SmtpSettings(String host, int port, String username, String password,
+                           boolean startTls, boolean auth, int maxConnections, double ratePerSecond) {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpSettings.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+    public static final double DEFAULT_RATE_PER_SECOND = 5;
+
+    /**
+     * Settings for an authenticated STARTTLS server with the default bulk limits, as used
+     * by {@link EmailServices#sendEmail}.
+     */
+    public static SmtpSettings of(String host, String port, String username, String password) {
+        return new SmtpSettings(host, Integer.parseInt(port.trim()), username, password, true, true,
+                DEFAULT_MAX_CONNECTIONS, DEFAULT_RATE_PER_SECOND);
+    }
+
+    /**
+     * Reads settings from loaded email settings.
+     * @param props contents of {@code email_settings.properties}
+     * @param password login password
+     * @return the settings, or null if server, port or sender is missing or invalid
+     */
+    public static SmtpSettings fromProperties(Properties props, String password) {
+        String host = props.getProperty("email.smtp", "").trim();
+        String port = props.getProperty("email.port", "").trim();
+        String sender = props.getProperty("email.sender", "").trim();
+        if (host.isEmpty() || port.isEmpty() || sender.isEmpty()) {
+            return null;
+        }
+        try {
+            return new SmtpSettings(host, Integer.parseInt(port), sender, password,
+                    Boolean.parseBoolean(props.getProperty("email.starttls", "true").trim()),
+                    Boolean.parseBoolean(props.getProperty("email.auth", "true").trim()),
+                    Math.max(1, Integer.parseInt(props.getProperty("email.max_connections",
+                            String.valueOf(DEFAULT_MAX_CONNECTIONS)).trim())),
+                    parseRate(props.getProperty("email.rate_per_second",
+                            String.valueOf(DEFAULT_RATE_PER_SECOND)).trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid number in email settings: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /** @return a positive, finite send rate, or the default for anything else */
+    private static double parseRate(String value) {
+        double rate = Double.parseDouble(value);
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            logger.warn("Invalid email.rate_per_second {}; using {}", value, DEFAULT_RATE_PER_SECOND);
+            return DEFAULT_RATE_PER_SECOND;
+        }
+        return rate;
+    }
+
+    /** @return settings that send through the same server account, for pooling */
+    SmtpSettings connectionKey() {
+        return new SmtpSettings(host, port, username, auth ? password : null, startTls, auth, 0, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "SmtpSettings[" + username + "@" + host + ":" + port + ", starttls=" + startTls + ", auth=" + auth
+                + ", max_connections=" + maxConnections + ", rate_per_second=" + ratePerSecond + "]";
+    }
+}
@@ -0,0 +1,203 @@
+package com.cole.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connected, logged-in SMTP transports kept open between messages.
+ * <p>
+ * Opening a transport costs a TCP connect, a TLS handshake and an AUTH exchange, which
+ * takes longer than sending a short message over a connection that is already open.
+ * A transport is borrowed for one message at a time and returned afterwards; a returned
+ * transport is reused if it is borrowed again within {@value #IDLE_TIMEOUT_SECONDS}
+ * seconds, and closed otherwise. Transports that failed are discarded rather than
+ * returned, and a message whose connection was dropped while idle is resent once over a
+ * new one. Safe to use from several threads.
+ */
+public final class SmtpTransportPool {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    /** Idle transports older than this are closed instead of reused. */
+    static final long IDLE_TIMEOUT_SECONDS = 60;
+    /** Idle transports older than this are checked with NOOP before reuse. */
+    private static final long VALIDATE_AFTER_MILLIS = 5_000;
+    /** Most transports kept open while idle. */
+    private static final int MAX_IDLE = 8;
+
+    private static final Map<SmtpSettings, SmtpTransportPool> SHARED = new ConcurrentHashMap<>();
+
+    private record Idle(Transport transport, long since) { }
+
+    private final SmtpSettings settings;
+    private final Session session;
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    /** @param settings server and account to connect to */
+    public SmtpTransportPool(SmtpSettings settings) {
+        this.settings = settings;
+        Properties props = new Properties();
+        props.put("mail.smtp.host", settings.host());
+        props.put("mail.smtp.port", String.valueOf(settings.port()));
+        props.put("mail.smtp.auth", String.valueOf(settings.auth()));
+        props.put("mail.smtp.starttls.enable", String.valueOf(settings.startTls()));
+        props.put("mail.smtp.connectiontimeout", "15000");
+        props.put("mail.smtp.timeout", "30000");
+        this.session = Session.getInstance(props);
+    }
+
+    /**
+     * @param settings server and account to connect to
+     * @return the application-wide pool for that server and account
+     */
+    public static SmtpTransportPool shared(SmtpSettings settings) {
+        return SHARED.computeIfAbsent(settings.connectionKey(), SmtpTransportPool::new);
+    }
+
+    /** Closes every shared pool's idle transports; called on exit. */
+    public static void closeAll() {
+        for (SmtpTransportPool pool : SHARED.values()) {
+            pool.close();
+        }
+        SHARED.clear();
+    }
+
+    /** @return the session messages sent through this pool should be created in */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Takes an open transport, connecting a new one if none is idle.
+     * @return a connected transport; hand it back with {@link #release} or {@link #discard}
+     * @throws MessagingException if connecting or logging in fails
+     */
+    public Transport borrow() throws MessagingException {
+        while (true) {
+            Idle entry;
+            synchronized (this) {
+                entry = idle.pollLast();
+            }
+            if (entry == null) {
+                break;
+            }
+            long idleMillis = System.currentTimeMillis() - entry.since();
+            if (idleMillis > TimeUnit.SECONDS.toMillis(IDLE_TIMEOUT_SECONDS)
+                    || (idleMillis > VALIDATE_AFTER_MILLIS && !entry.transport().isConnected())) {
+                discard(entry.transport());
+                continue;
+            }
+            return entry.transport();
+        }
+        return connect();
+    }
+
+    /** Opens and logs in a new transport. */
+    private Transport connect() throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        long started = System.nanoTime();
+        if (settings.auth()) {
+            transport.connect(settings.host(), settings.port(), settings.username(), settings.password());
+        } else {
+            transport.connect(settings.host(), settings.port(), null, null);
+        }
+        logger.debug("Connected to {}:{} in {} ms", settings.host(), settings.port(),
+                (System.nanoTime() - started) / 1_000_000);
+        return transport;
+    }
+
+    /**
+     * Sends a message over a pooled transport. If the connection turns out to have been
+     * dropped by the server while idle, the message is sent again once over a new one.
+     * @param message message created in {@link #getSession()}
+     * @throws MessagingException if the message could not be sent; a
+     *         {@link jakarta.mail.SendFailedException} names rejected recipients
+     */
+    public void send(Message message) throws MessagingException {
+        message.saveChanges();
+        for (int attempt = 1; ; attempt++) {
+            // Other idle transports may have been dropped too, so a resend gets a new one
+            Transport transport = attempt == 1 ? borrow() : connect();
+            try {
+                transport.sendMessage(message, message.getAllRecipients());
+                release(transport);
+                return;
+            } catch (SendFailedException e) {
+                // Recipient or content rejected; the connection is still good
+                release(transport);
+                throw e;
+            } catch (MessagingException | IllegalStateException e) {
+                // isConnected() sends a NOOP, so it is only asked once something went wrong
+                boolean dropped = !transport.isConnected();
+                if (!dropped) {
+                    release(transport);
+                } else {
+                    discard(transport);
+                }
+                if (!dropped || attempt > 1) {
+                    throw e instanceof MessagingException m ? m : new MessagingException(e.getMessage(), e);
+                }
+                logger.debug("SMTP connection to {} was dropped, resending: {}", settings.host(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns a transport that is still usable, e.g. after a message was sent or rejected
+     * by the server.
+     */
+    public void release(Transport transport) {
+        List<Transport> expired = new ArrayList<>();
+        synchronized (this) {
+            if (!closed && idle.size() < MAX_IDLE) {
+                idle.addLast(new Idle(transport, System.currentTimeMillis()));
+                transport = null;
+            }
+            // Close transports that have been idle too long, oldest first
+            long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(IDLE_TIMEOUT_SECONDS);
+            while (!idle.isEmpty() && idle.peekFirst().since() < cutoff) {
+                expired.add(idle.pollFirst().transport());
+            }
+        }
+        if (transport != null) {
+            expired.add(transport);
+        }
+        expired.forEach(this::discard);
+    }
+
+    /** Closes a transport that failed or is no longer needed. */
+    public void discard(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Closing SMTP transport failed: {}", e.getMessage());
+        }
+    }
+
+    /** Closes the idle transports; transports still borrowed are closed when released. */
+    public void close() {
+        List<Idle> open;
+        synchronized (this) {
+            closed = true;
+            open = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (Idle entry : open) {
+            discard(entry.transport());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.cole.Service;
+
+import com.cole.model.Student;
+import com.cole.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads the student directory one page at a time for the Student View table.
+ * <p>
+ * Pages are fetched with keyset pagination: each page continues after the sort key of
+ * the last row already shown, so the cost of a page does not grow with how far the user
+ * has scrolled. Sorting and searching are done by the database; searches use the
+ * student_search FTS5 index.
+ */
+public class StudentDirectoryService {
+
+    private static final String SELECT_COLUMNS =
+        "SELECT s.student_id, s.student_number, s.first_name, s.second_name, s.last_name, " +
+        "s.id_number, s.email, s.phone, s.branch, sl.name AS slp_name, s.status, s.enrollment_date";
+    private static final String FROM_ALL = " FROM students s LEFT JOIN slps sl ON s.current_slp_id = sl.slp_id";
+    /** CROSS JOIN keeps the (small) search result as the outer loop, probing students by rowid. */
+    private static final String FROM_RANKED =
+        " FROM ranked r CROSS JOIN students s ON s.student_id = r.student_id LEFT JOIN slps sl ON s.current_slp_id = sl.slp_id";
+    /**
+     * bm25 column weights, in student_search column order: student number, first name,
+     * second name, last name, ID number, email, phone, branch.
+     */
+    private static final String BM25 = "bm25(student_search, 10.0, 4.0, 2.0, 4.0, 8.0, 3.0, 3.0, 1.0)";
+
+    /**
+     * Columns the directory can be sorted by. Each maps to a SQL expression and to the
+     * same value computed from a loaded {@link Student}, which is used as the keyset
+     * cursor. Nullable columns are coalesced so cursors compare consistently.
+     */
+    public enum SortColumn {
+        /** Search rank, best match first; only meaningful with a filter. */
+        RELEVANCE("r.score", null),
+        ENROLLMENT_DATE("COALESCE(s.enrollment_date, '')", s -> nz(s.getEnrollmentDate())),
+        STUDENT_NUMBER("s.student_number", Student::getStudentNumber),
+        NAME("s.first_name || ' ' || s.second_name || ' ' || s.last_name",
+                s -> s.getFirstName() + " " + s.getSecondName() + " " + s.getLastName()),
+        ID_NUMBER("COALESCE(s.id_number, '')", s -> nz(s.getIdNumber())),
+        BRANCH("COALESCE(s.branch, '')", s -> nz(s.getBranch())),
+        EMAIL("COALESCE(s.email, '')", s -> nz(s.getEmail())),
+        PHONE("COALESCE(s.phone, '')", s -> nz(s.getPhoneNumber())),
+        SLP("COALESCE(sl.name, '')", s -> nz(s.getSlp())),
+        STATUS("COALESCE(s.status, '')", s -> nz(s.getStatus()));
+
+        private final String expression;
+        private final Function<Student, String> keyOf;
+
+        SortColumn(String expression, Function<Student, String> keyOf) {
+            this.expression = expression;
+            this.keyOf = keyOf;
+        }
+    }
+
+    /**
+     * Sort order and search text for one view of the directory.
+     * <p>
+     * Search text is split into words and each word is matched as a prefix against the
+     * student_search full-text index (student number, names, ID number, email, phone,
+     * branch); all words must match. Students whose SLP name contains the text also
+     * match, ranked after direct matches. Text of at least three characters with a digit
+     * in it also matches student numbers anywhere, not only at the start, through the
+     * student_number_search trigram index, as prefix terms cannot find the middle digits
+     * of a number.
+     */
+    public static final class Query {
+        private final SortColumn sortColumn;
+        private final boolean ascending;
+        private final String filter;
+        private final String matchExpression;
+        /** Trigram query for the text anywhere in a student number, or null. */
+        private final String numberInfix;
+
+        /**
+         * @param sortColumn column to sort by
+         * @param ascending true for ascending order
+         * @param filter search text, or null/blank for all students
+         */
+        public Query(SortColumn sortColumn, boolean ascending, String filter) {
+            this.filter = filter == null || filter.isBlank() ? null : filter.trim();
+            this.matchExpression = this.filter == null ? null : toMatchExpression(this.filter);
+            this.numberInfix = this.filter != null && this.filter.length() >= 3
+                    && this.filter.chars().anyMatch(Character::isDigit)
+                    ? '"' + this.filter.replace("\"", "\"\"") + '"' : null;
+            boolean relevance = sortColumn == SortColumn.RELEVANCE;
+            this.sortColumn = relevance && this.filter == null ? SortColumn.ENROLLMENT_DATE : sortColumn;
+            this.ascending = relevance && this.filter == null ? false : ascending;
+        }
+
+        /**
+         * The default Student View order: best match first when searching, otherwise
+         * most recently enrolled first.
+         */
+        public static Query defaultOrder(String filter) {
+            return filter == null || filter.isBlank()
+                    ? new Query(SortColumn.ENROLLMENT_DATE, false, null)
+                    : new Query(SortColumn.RELEVANCE, true, filter);
+        }
+
+        public SortColumn getSortColumn() { return sortColumn; }
+        public boolean isAscending() { return ascending; }
+        public String getFilter() { return filter; }
+
+        private String fromClause() {
+            return filter == null ? FROM_ALL : FROM_RANKED;
+        }
+
+        /**
+         * Builds the leading CTE used when searching: {@code ranked} holds each matching
+         * student ID with its best score (lower is better, as with bm25).
+         */
+        private String withClause() {
+            if (filter == null) {
+                return "";
+            }
+            // MATERIALIZED: evaluate the search once, not once per joined students row
+            StringBuilder sql = new StringBuilder("WITH matches(student_id, score) AS MATERIALIZED (");
+            if (matchExpression != null) {
+                sql.append("SELECT rowid, ").append(BM25)
+                   .append(" FROM student_search WHERE student_search MATCH ? UNION ALL ");
+            }
+            if (numberInfix != null) {
+                sql.append("SELECT rowid, 0.0 FROM student_number_search WHERE student_number_search MATCH ? UNION ALL ");
+            }
+            sql.append("SELECT student_id, 0.0 FROM students WHERE current_slp_id IN ")
+               .append("(SELECT slp_id FROM slps WHERE name LIKE ? ESCAPE '\\')), ")
+               .append("ranked AS MATERIALIZED (SELECT student_id, MIN(score) AS score FROM matches GROUP BY student_id) ");
+            return sql.toString();
+        }
+
+        private String orderClause() {
+            String direction = ascending ? " ASC" : " DESC";
+            return " ORDER BY " + sortColumn.expression + direction + ", s.student_id" + direction;
+        }
+
+        private int bindFilter(PreparedStatement ps, int index) throws SQLException {
+            if (filter == null) {
+                return index;
+            }
+            if (matchExpression != null) {
+                ps.setString(index++, matchExpression);
+            }
+            if (numberInfix != null) {
+                ps.setString(index++, numberInfix);
+            }
+            ps.setString(index++, "%" + filter.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+            return index;
+        }
+    }
+
+    /**
+     * Converts search text into an FTS5 query: every word becomes a quoted prefix
+     * term, so punctuation in the input can never be parsed as query syntax.
+     * @param text Search text.
+     * @return match expression, or null if the text contains no searchable words
+     */
+    static String toMatchExpression(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append('"').append(word).append("\"*");
+            }
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    /**
+     * Counts the students matching a query's filter.
+     * @param query Query whose filter applies.
+     * @return number of matching students
+     */
+    public int countStudents(Query query) throws SQLException {
+        String sql = query.filter == null
+                ? "SELECT COUNT(*) FROM students"
+                : query.withClause() + "SELECT COUNT(*) FROM ranked";
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            query.bindFilter(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Fetches the page of students that follows {@code after} in the query's order.
+     * @param query Sort order and filter.
+     * @param after Last row of the previous page, or null for the first page.
+     * @param limit Maximum number of rows to return.
+     * @return students in display order
+     */
+    public List<Student> fetchPage(Query query, Student after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(query.withClause()).append(SELECT_COLUMNS).append(query.fromClause());
+        boolean relevance = query.sortColumn == SortColumn.RELEVANCE;
+        if (after != null) {
+            sql.append(" WHERE (").append(query.sortColumn.expression).append(", s.student_id) ")
+               .append(query.ascending ? ">" : "<")
+               // The rank is not part of Student, so look up the cursor row's score
+               .append(relevance ? " ((SELECT score FROM ranked WHERE student_id = ?), ?)" : " (?, ?)");
+        }
+        sql.append(query.orderClause()).append(" LIMIT ?");
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int index = query.bindFilter(ps, 1);
+            if (after != null) {
+                if (relevance) {
+                    ps.setInt(index++, after.getId());
+                } else {
+                    ps.setString(index++, query.sortColumn.keyOf.apply(after));
+                }
+                ps.setInt(index++, after.getId());
+            }
+            ps.setInt(index, limit);
+            return readStudents(ps);
+        }
+    }
+
+    /**
+     * Fetches the single student at a position in the query's order. Used to find a
+     * keyset cursor when the user jumps straight to a page that is not loaded.
+     * @param query Sort order and filter.
+     * @param position Zero-based row position.
+     * @return the student, or null if the position is past the end
+     */
+    public Student fetchAt(Query query, int position) throws SQLException {
+        String sql = query.withClause() + SELECT_COLUMNS + query.fromClause() + query.orderClause() + " LIMIT 1 OFFSET ?";
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = query.bindFilter(ps, 1);
+            ps.setInt(index, position);
+            List<Student> rows = readStudents(ps);
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+    }
+
+    private static List<Student> readStudents(PreparedStatement ps) throws SQLException {
+        List<Student> students = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                students.add(new Student(
+                    rs.getInt("student_id"),
+                    rs.getString("student_number"),
+                    rs.getString("first_name"),
+                    rs.getString("second_name"),
+                    rs.getString("last_name"),
+                    rs.getString("id_number"),
+                    rs.getString("email"),
+                    rs.getString("phone"),
+                    rs.getString("branch"),
+                    rs.getString("slp_name"),
+                    rs.getString("status"),
+                    rs.getString("enrollment_date")
+                ));
+            }
+        }
+        return students;
+    }
+
+    private static String nz(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -6,20 +6,31 @@ import com.cole.model.StudentReportData;
 import com.cole.controller.VirtualRecordCardController.Note;
 import com.cole.controller.VirtualRecordCardController.FollowUp;
 import com.cole.util.DBUtil;
+import com.cole.util.PdfLayout;
+import com.cole.util.PdfMemorySettings;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import java.awt.Color;
 
 /***
@@ -29,6 +40,32 @@ import java.awt.Color;
 public class StudentReportsService {
     private static final Logger logger = LoggerFactory.getLogger(StudentReportsService.class);
 
+    private static final File LOGO_FILE = new File("src/main/resources/logo/Boston-Logo-removebg-preview.png");
+    private static final int LEFT_MARGIN = 50;
+    private static final int RIGHT_MARGIN = 550;
+    /** Baseline of the first line on continuation pages. */
+    private static final int PAGE_TOP = 770;
+    /** Content below this baseline moves to a new page. */
+    private static final int PAGE_BOTTOM = 60;
+    private static final Color BORDER_COLOR = new Color(166, 0, 38); // Logo's main color
+    private static final Color RULE_COLOR = new Color(120, 120, 120);
+    private static final Color FOOTER_COLOR = new Color(120, 120, 120);
+    private static final Color TABLE_HEADER_COLOR = new Color(230, 230, 250);
+
+    /** Increase whenever the summary report's layout changes, so older cached copies are not reused. */
+    static final int REPORT_LAYOUT_VERSION = 1;
+
+    private final ReportCache reportCache;
+
+    public StudentReportsService() {
+        this(ReportCache.shared());
+    }
+
+    /** @param reportCache cache for {@link #exportStudentSummaryPdf(ReportVersion, File)} */
+    public StudentReportsService(ReportCache reportCache) {
+        this.reportCache = reportCache;
+    }
+
     /**
      * Retrieves a student by their student number.
      *
@@ -39,7 +76,8 @@ public class StudentReportsService {
         String sql = "SELECT s.student_id, s.student_number, s.first_name, s.second_name, s.last_name, s.id_number, s.branch, s.email, s.phone, sl.name AS slp_name, s.status, s.enrollment_date " +
                         "FROM students s " +
                         "LEFT JOIN slps sl ON s.current_slp_id = sl.slp_id " +
-                        "WHERE LOWER(s.student_number) = LOWER(?)";
+                        // NOCASE matches idx_students_number_nocase; LOWER() on the column would force a scan
+                        "WHERE s.student_number = ? COLLATE NOCASE";
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, studentNumber);
@@ -81,26 +119,7 @@ public class StudentReportsService {
             stmt.setInt(1, studentId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    StudentModule sm = new StudentModule(
-                        rs.getInt("student_id"),
-                        rs.getInt("module_id"),
-                        rs.getString("module_code"),
-                        rs.getString("module_name"),
-                        rs.getObject("formative") != null ? rs.getDouble("formative") : 0.0,
-                        rs.getObject("summative") != null ? rs.getDouble("summative") : 0.0,
-                        rs.getObject("supplementary") != null ? rs.getDouble("supplementary") : 0.0,
-                        rs.getBoolean("received_book"),
-                        rs.getString("signature_path"),
-                        rs.getString("date_issued")
-                    );
-                    // Set passRate if setter exists
-                    try {
-                        int passRate = rs.getObject("pass_rate") != null ? rs.getInt("pass_rate") : 50;
-                        sm.setPassRate(passRate);
-                    } catch (Exception ignore) {}
-                    // Set signature and date issued
-                    sm.setSignaturePath(rs.getString("signature_path"));
-                    sm.setDateIssued(rs.getString("date_issued"));
+                    StudentModule sm = readStudentModule(rs);
                     modules.add(sm);
                 }
             }
@@ -110,6 +129,23 @@ public class StudentReportsService {
         return modules;
     }
 
+    private static StudentModule readStudentModule(ResultSet rs) throws SQLException {
+        StudentModule sm = new StudentModule(
+            rs.getInt("student_id"),
+            rs.getInt("module_id"),
+            rs.getString("module_code"),
+            rs.getString("module_name"),
+            rs.getObject("formative") != null ? rs.getDouble("formative") : 0.0,
+            rs.getObject("summative") != null ? rs.getDouble("summative") : 0.0,
+            rs.getObject("supplementary") != null ? rs.getDouble("supplementary") : 0.0,
+            rs.getBoolean("received_book"),
+            rs.getString("signature_path"),
+            rs.getString("date_issued")
+        );
+        sm.setPassRate(rs.getObject("pass_rate") != null ? rs.getInt("pass_rate") : 50);
+        return sm;
+    }
+
     /**
      * Retrieves notes for a student.
      *
@@ -180,6 +216,195 @@ public class StudentReportsService {
         return new StudentReportData(student, modules, notes, followUps);
     }
 
+    /**
+     * Version of a student's summary report. The stamp is replaced whenever anything the
+     * report shows changes (see {@code student_data_stamps}), so reports with equal
+     * versions rendered on the same day are identical.
+     *
+     * @param studentId student ID
+     * @param studentNumber student number
+     * @param stamp the student's data stamp; null if the student has none, in which case
+     *              the report is not cached
+     */
+    public record ReportVersion(int studentId, String studentNumber, Long stamp) {
+        String fingerprint(LocalDate date) {
+            return "student-summary:" + REPORT_LAYOUT_VERSION + ":" + studentId + ":" + stamp + ":" + date;
+        }
+    }
+
+    /**
+     * Looks up the current version of a student's summary report. This is a single
+     * indexed read, much cheaper than {@link #getStudentReportData}.
+     *
+     * @param studentNumber The student's unique number
+     * @return the report version, or null if the student was not found
+     */
+    public ReportVersion getReportVersion(String studentNumber) {
+        String sql = "SELECT s.student_id, s.student_number, ds.stamp FROM students s " +
+                        "LEFT JOIN student_data_stamps ds ON ds.student_id = s.student_id " +
+                        "WHERE s.student_number = ? COLLATE NOCASE";
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, studentNumber);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    long stamp = rs.getLong("stamp");
+                    return new ReportVersion(rs.getInt("student_id"), rs.getString("student_number"),
+                        rs.wasNull() ? null : stamp);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to read report version for student {}", studentNumber, e);
+        }
+        return null;
+    }
+
+    /**
+     * Exports a student's summary report to a PDF file, copying it from the
+     * {@link ReportCache} if the same version was already rendered today. Otherwise the
+     * report is rendered and kept in the cache, unless the student's data changed while
+     * it was being read.
+     *
+     * @param version The report version from {@link #getReportVersion}
+     * @param file The file to save the PDF to
+     * @return true if the report was served from the cache
+     */
+    public boolean exportStudentSummaryPdf(ReportVersion version, File file) {
+        long started = System.nanoTime();
+        boolean cached;
+        try {
+            cached = reportCache.copyTo(version.fingerprint(LocalDate.now()), file.toPath(), out -> {
+                StudentReportData reportData = getStudentReportData(version.studentNumber());
+                if (reportData == null) {
+                    throw new IOException("Student " + version.studentNumber() + " no longer exists");
+                }
+                exportStudentSummaryPdf(reportData, out);
+                return version.stamp() != null && version.stamp().equals(readStamp(version.studentId()));
+            });
+        } catch (IOException e) {
+            logger.error("Failed to export Student Summary PDF", e);
+            throw new RuntimeException("Failed to export Student Summary PDF: " + e.getMessage(), e);
+        }
+        logger.info("Student summary PDF for {} exported to {} in {} ms ({})", version.studentNumber(),
+            file.getAbsolutePath(), (System.nanoTime() - started) / 1_000_000, cached ? "cached" : "rendered");
+        return cached;
+    }
+
+    private static Long readStamp(int studentId) {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT stamp FROM student_data_stamps WHERE student_id = ?")) {
+            stmt.setInt(1, studentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        } catch (SQLException e) {
+            logger.warn("Failed to re-read data stamp of student {}", studentId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves the students currently enrolled in an SLP, ordered by surname then first name.
+     *
+     * @param slpId The SLP's ID
+     * @return List of Student objects
+     */
+    public List<Student> getStudentsInSlp(int slpId) throws SQLException {
+        String sql = "SELECT s.student_id, s.student_number, s.first_name, s.second_name, s.last_name, s.id_number, s.branch, s.email, s.phone, sl.name AS slp_name, s.status, s.enrollment_date " +
+                        "FROM students s " +
+                        "JOIN slps sl ON s.current_slp_id = sl.slp_id " +
+                        "WHERE s.current_slp_id = ? " +
+                        "ORDER BY s.last_name, s.first_name, s.student_id";
+        List<Student> students = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, slpId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    students.add(new Student(
+                        rs.getInt("student_id"),
+                        rs.getString("student_number"),
+                        rs.getString("first_name"),
+                        rs.getString("second_name"),
+                        rs.getString("last_name"),
+                        rs.getString("id_number"),
+                        rs.getString("email"),
+                        rs.getString("phone"),
+                        rs.getString("branch"),
+                        rs.getString("slp_name"),
+                        rs.getString("status"),
+                        rs.getString("enrollment_date")
+                    ));
+                }
+            }
+        }
+        return students;
+    }
+
+    /**
+     * Retrieves report data for several students at once: one query each for modules,
+     * notes and follow-ups covering the whole batch, instead of three per student.
+     * Rows are in the same order as the single-student methods return them.
+     *
+     * @param students The students to load; keep batches to a few hundred
+     * @return report data keyed by student ID, in the order of {@code students}
+     */
+    public Map<Integer, StudentReportData> getStudentReportDataBatch(List<Student> students) throws SQLException {
+        Map<Integer, StudentReportData> batch = new LinkedHashMap<>();
+        for (Student student : students) {
+            batch.put(student.getId(), new StudentReportData(student, new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+        }
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        String ids = String.join(",", Collections.nCopies(batch.size(), "?"));
+        try (Connection conn = DBUtil.getConnection()) {
+            String modulesSql = "SELECT sm.*, m.pass_rate FROM student_modules sm JOIN modules m ON sm.module_id = m.module_id " +
+                "WHERE sm.student_id IN (" + ids + ") AND (sm.status IS NULL OR sm.status != 'replaced') ORDER BY sm.student_id, sm.id";
+            try (PreparedStatement stmt = prepareBatch(conn, modulesSql, batch.keySet());
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    batch.get(rs.getInt("student_id")).getModules().add(readStudentModule(rs));
+                }
+            }
+            String notesSql = "SELECT student_id, note_id, note_text, date_added FROM notes " +
+                "WHERE student_id IN (" + ids + ") ORDER BY student_id, date_added DESC";
+            try (PreparedStatement stmt = prepareBatch(conn, notesSql, batch.keySet());
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    batch.get(rs.getInt("student_id")).getNotes().add(new Note(
+                        rs.getInt("note_id"),
+                        rs.getString("note_text"),
+                        rs.getString("date_added")
+                    ));
+                }
+            }
+            String followUpsSql = "SELECT student_id, followup_id, due_date, description, completed FROM follow_ups " +
+                "WHERE student_id IN (" + ids + ") ORDER BY student_id, due_date ASC";
+            try (PreparedStatement stmt = prepareBatch(conn, followUpsSql, batch.keySet());
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    batch.get(rs.getInt("student_id")).getFollowUps().add(new FollowUp(
+                        rs.getInt("followup_id"),
+                        rs.getString("due_date"),
+                        rs.getString("description"),
+                        rs.getInt("completed") == 1
+                    ));
+                }
+            }
+        }
+        return batch;
+    }
+
+    private static PreparedStatement prepareBatch(Connection conn, String sql, Collection<Integer> ids) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        int index = 1;
+        for (int id : ids) {
+            stmt.setInt(index++, id);
+        }
+        return stmt;
+    }
+
     /**
      * Exports a student's summary report to a PDF file.
      *
@@ -187,340 +412,246 @@ public class StudentReportsService {
      * @param file The file to save the PDF to
      */
     public void exportStudentSummaryPdf(StudentReportData reportData, File file) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            exportStudentSummaryPdf(reportData, out);
+        } catch (IOException e) {
+            logger.error("Failed to export Student Summary PDF", e);
+            throw new RuntimeException("Failed to export Student Summary PDF: " + e.getMessage(), e);
+        }
+        logger.info("Student summary PDF exported successfully to {}", file.getAbsolutePath());
+    }
+
+    /**
+     * Writes a student's summary report as PDF to a stream. Safe to call from several
+     * threads at once (see {@link ReportFonts}).
+     * <p>
+     * Pages are counted before they are drawn (see {@link PdfLayout}), so each page is
+     * numbered while it is written rather than by reopening it afterwards. Finished pages
+     * beyond the {@link PdfMemorySettings} heap limit are kept in a scratch file, and the
+     * logo and signatures are embedded from {@link com.cole.util.PdfImageCache}.
+     *
+     * @param reportData The StudentReportData object containing all necessary data
+     * @param out The stream to write the PDF to; not closed
+     */
+    public void exportStudentSummaryPdf(StudentReportData reportData, OutputStream out) {
         if (reportData == null || reportData.getStudent() == null) {
             logger.error("No student data provided for PDF export.");
             throw new IllegalArgumentException("No student data provided.");
         }
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-
-            int leftMargin = 50;
-            int rightMargin = 550;
-            int pageWidth = (int) PDRectangle.A4.getWidth();
-
-            // Draw a border around the page (matching logo color)
-            Color borderColor = new Color(166, 0, 38); // Use your logo's main color
-            contentStream.setStrokingColor(borderColor);
-            contentStream.setLineWidth(3); // Border thickness, adjust as needed
-            float borderPadding = 10; // Distance from the edge, adjust as needed
-            contentStream.addRect(
-                borderPadding,
-                borderPadding,
-                page.getMediaBox().getWidth() - 2 * borderPadding,
-                page.getMediaBox().getHeight() - 2 * borderPadding
-            );
-            contentStream.stroke();
-            contentStream.setStrokingColor(Color.BLACK); // Reset to default
-
-            // Draw logo at top center
-            PDImageXObject logo = PDImageXObject.createFromFile("src/main/resources/logo/Boston-Logo-removebg-preview.png", document);
-            float logoWidth = 120;
-            float logoHeight = 60;
-            float logoX = (page.getMediaBox().getWidth() - logoWidth) / 2;
-            float logoY = page.getMediaBox().getHeight() - logoHeight - 20;
-            contentStream.drawImage(logo, logoX, logoY, logoWidth, logoHeight);
-
-            // Set y below the logo
-            int y = (int)(logoY - 20);
-
-            // Title
-            String title = "Student Summary Report";
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 22);
-            float titleWidth = PDType1Font.HELVETICA_BOLD.getStringWidth(title) / 1000 * 22;
-            float titleX = (pageWidth - titleWidth) / 2;
-            contentStream.beginText();
-            contentStream.newLineAtOffset(titleX, y);
-            contentStream.showText(title);
-            contentStream.endText();
-
-            y -= 30;
-
-            // Section: Student Info
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 14);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(leftMargin, y);
-            contentStream.showText("Student Information");
-            contentStream.endText();
-            y -= 8;
-            // Draw line under section header
-            contentStream.setStrokingColor(new Color(120, 120, 120));
-            contentStream.moveTo(leftMargin, y);
-            contentStream.lineTo(rightMargin, y);
-            contentStream.stroke();
-            y -= 18;
-
-            Student s = reportData.getStudent();
-            contentStream.setFont(PDType1Font.HELVETICA, 10);
-            String[][] info = {
-                {"Name", s.getFirstName() + " " + s.getSecondName() + " " + s.getLastName()},
-                {"Student Number", s.getStudentNumber()},
-                {"Email", s.getEmail()},
-                {"Phone", s.getPhoneNumber()},
-                {"SLP", s.getSlp()},
-                {"Status", s.getStatus()},
-                {"Enrollment Date", s.getEnrollmentDate()}
-            };
-            for (String[] pair : info) {
-                contentStream.beginText();
-                contentStream.newLineAtOffset(leftMargin, y);
-                contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-                contentStream.showText(pair[0] + ": ");
-                contentStream.setFont(PDType1Font.HELVETICA, 12);
-                contentStream.showText(pair[1]);
-                contentStream.endText();
-                y -= 16;
+        try (PDDocument document = PdfMemorySettings.get().newDocument()) {
+            String generatedOn = "Generated on: " + LocalDate.now();
+            PdfLayout.render(document, PDRectangle.A4, layout -> layOut(layout, reportData), (cs, pageNumber, pageCount) -> {
+                cs.setNonStrokingColor(FOOTER_COLOR);
+                if (pageNumber == pageCount) {
+                    drawText(cs, ReportFonts.OBLIQUE, 9, LEFT_MARGIN, 40, generatedOn);
+                }
+                String pageNumText = "Page " + pageNumber + " of " + pageCount;
+                float x = (PDRectangle.A4.getWidth() - ReportFonts.OBLIQUE.width(pageNumText, 9)) / 2;
+                drawText(cs, ReportFonts.OBLIQUE, 9, x, 25, pageNumText);
+            });
+            document.save(out);
+        } catch (Exception e) {
+            logger.error("Failed to export Student Summary PDF", e);
+            throw new RuntimeException("Failed to export Student Summary PDF: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lays out the whole report: student information, modules table, notes and follow-ups.
+     */
+    private static void layOut(PdfLayout layout, StudentReportData reportData) throws IOException {
+        float pageWidth = PDRectangle.A4.getWidth();
+        float pageHeight = PDRectangle.A4.getHeight();
+
+        // Border around the first page
+        float borderPadding = 10;
+        layout.add((cs, document) -> {
+            cs.setStrokingColor(BORDER_COLOR);
+            cs.setLineWidth(3);
+            cs.addRect(borderPadding, borderPadding, pageWidth - 2 * borderPadding, pageHeight - 2 * borderPadding);
+            cs.stroke();
+            cs.setStrokingColor(Color.BLACK);
+        });
+
+        // Logo at top center
+        float logoWidth = 120;
+        float logoHeight = 60;
+        float logoX = (pageWidth - logoWidth) / 2;
+        float logoY = pageHeight - logoHeight - 20;
+        layout.image(LOGO_FILE, logoX, logoY, logoWidth, logoHeight);
+
+        int y = (int) (logoY - 20);
+
+        String title = "Student Summary Report";
+        layout.text(ReportFonts.BOLD, 22, ((int) pageWidth - ReportFonts.BOLD.width(title, 22)) / 2, y, title);
+        y -= 30;
+
+        // Section: Student Info
+        y = sectionHeader(layout, "Student Information", y);
+        Student s = reportData.getStudent();
+        String[][] info = {
+            {"Name", s.getFirstName() + " " + s.getSecondName() + " " + s.getLastName()},
+            {"Student Number", s.getStudentNumber()},
+            {"Email", s.getEmail()},
+            {"Phone", s.getPhoneNumber()},
+            {"SLP", s.getSlp()},
+            {"Status", s.getStatus()},
+            {"Enrollment Date", s.getEnrollmentDate()}
+        };
+        for (String[] pair : info) {
+            String label = pair[0] + ": ";
+            layout.text(ReportFonts.BOLD, 12, LEFT_MARGIN, y, label);
+            layout.text(ReportFonts.REGULAR, 12, LEFT_MARGIN + ReportFonts.BOLD.width(label, 12), y, pair[1]);
+            y -= 16;
+        }
+        y -= 10;
+
+        // Section: Modules Table, columns filling the width
+        y = sectionHeader(layout, "Modules and Marks", y);
+        float tableWidth = RIGHT_MARGIN - LEFT_MARGIN;
+        int numCols = 8;
+        float colWidth = tableWidth / numCols;
+        float[] colX = new float[numCols];
+        for (int i = 0; i < numCols; i++) {
+            colX[i] = LEFT_MARGIN + i * colWidth;
+        }
+        String[] headers = {"Code", "Name", "FA1", "SA1", "Resub", "Pass", "Date Issued", "Signature"};
+        float cellHeight = 18;
+        float sigWidth = colWidth - 4; // leave a little padding
+        float sigHeight = 16;
+        float nameColWidth = colX[2] - colX[1] - 5;
+
+        float headerY = y;
+        layout.add((cs, document) -> {
+            cs.setNonStrokingColor(TABLE_HEADER_COLOR);
+            cs.addRect(LEFT_MARGIN, headerY - 4, tableWidth, cellHeight);
+            cs.fill();
+            cs.setNonStrokingColor(Color.BLACK);
+        });
+        for (int i = 0; i < headers.length; i++) {
+            layout.text(ReportFonts.BOLD, 11, colX[i] + 2, y + 2, headers[i]);
+        }
+        y -= 22;
+
+        for (StudentModule m : reportData.getModules()) {
+            if (y < PAGE_BOTTOM) {
+                layout.newPage();
+                y = PAGE_TOP;
             }
-            y -= 10;
-
-            // Section: Modules Table
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 14);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(leftMargin, y);
-            contentStream.showText("Modules and Marks");
-            contentStream.endText();
-            y -= 8;
-            contentStream.setStrokingColor(new Color(120, 120, 120));
-            contentStream.moveTo(leftMargin, y);
-            contentStream.lineTo(rightMargin, y);
-            contentStream.stroke();
-            y -= 18;
-
-            // Table column setup to fill width
-            float tableWidth = rightMargin - leftMargin;
-            int numCols = 8;
-            float colWidth = tableWidth / numCols;
-            float[] colX = new float[numCols];
-            for (int i = 0; i < numCols; i++) {
-                colX[i] = leftMargin + i * colWidth;
+            String[] row = {
+                m.getModuleCode(),
+                m.getModuleName() != null ? m.getModuleName() : "",
+                String.format("%.2f%%", m.getFormative()),
+                String.format("%.2f%%", m.getSummative()),
+                String.format("%.2f%%", m.getSupplementary()),
+                m.getPassRate() + "%",
+                m.getDateIssued()
+            };
+            List<String> wrappedName = ReportFonts.REGULAR.wrap(row[1], 11, nameColWidth);
+            int lines = Math.max(1, wrappedName.size());
+            layout.text(ReportFonts.REGULAR, 11, colX[0] + 2, y, row[0]);
+            for (int lineIdx = 0; lineIdx < wrappedName.size(); lineIdx++) {
+                layout.text(ReportFonts.REGULAR, 11, colX[1] + 2, y - lineIdx * cellHeight, wrappedName.get(lineIdx));
             }
-            String[] headers = {"Code", "Name", "FA1", "SA1", "Resub", "Pass", "Date Issued", "Signature"};
-            float cellHeight = 18;
-            float sigWidth = colWidth - 4; // leave a little padding
-            float sigHeight = 16;
-
-            // Header background
-            contentStream.setNonStrokingColor(new Color(230, 230, 250));
-            contentStream.addRect(leftMargin, y - 4, tableWidth, cellHeight);
-            contentStream.fill();
-            contentStream.setNonStrokingColor(Color.BLACK);
-
-            // Header text
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 11);
-            for (int i = 0; i < headers.length; i++) {
-                contentStream.beginText();
-                contentStream.newLineAtOffset(colX[i] + 2, y + 2);
-                contentStream.showText(headers[i]);
-                contentStream.endText();
+            for (int i = 2; i < 7; i++) {
+                layout.text(ReportFonts.REGULAR, 11, colX[i] + 2, y, row[i]);
             }
-            y -= 22;
-
-            // Table rows
-            contentStream.setFont(PDType1Font.HELVETICA, 11);
-            for (StudentModule m : reportData.getModules()) {
-                if (y < 60) {
-                    contentStream.close();
-                    page = new PDPage(PDRectangle.A4);
-                    document.addPage(page);
-                    contentStream = new PDPageContentStream(document, page);
-                    y = 770;
-                }
-                String[] row = {
-                    m.getModuleCode(),
-                    m.getModuleName(),
-                    String.format("%.2f%%", m.getFormative()),
-                    String.format("%.2f%%", m.getSummative()),
-                    String.format("%.2f%%", m.getSupplementary()),
-                    m.getPassRate() + "%",
-                    m.getDateIssued() != null ? m.getDateIssued() : ""
-                };
-
-                float nameColWidth = colX[2] - colX[1] - 5;
-                List<String> wrappedName = wrapText(row[1], PDType1Font.HELVETICA, 10, nameColWidth);
-                int maxLines = Math.max(1, wrappedName.size());
-
-                for (int lineIdx = 0; lineIdx < maxLines; lineIdx++) {
-                    // Code column
-                    contentStream.beginText();
-                    contentStream.newLineAtOffset(colX[0] + 2, y - (lineIdx * cellHeight));
-                    contentStream.showText(lineIdx == 0 ? row[0] : "");
-                    contentStream.endText();
-
-                    // Name column (wrapped)
-                    contentStream.beginText();
-                    contentStream.newLineAtOffset(colX[1] + 2, y - (lineIdx * cellHeight));
-                    contentStream.showText(wrappedName.get(lineIdx));
-                    contentStream.endText();
-
-                    // FA1, SA1, Resub, Pass, Date Issued columns (only on first line)
-                    if (lineIdx == 0) {
-                        for (int i = 2; i < 7; i++) {
-                            contentStream.beginText();
-                            contentStream.newLineAtOffset(colX[i] + 2, y);
-                            contentStream.showText(row[i]);
-                            contentStream.endText();
-                        }
-                    }
-                }
-                // Draw signature image ONCE, vertically centered for the row
-                if (m.getSignaturePath() != null && !m.getSignaturePath().isEmpty()) {
+            // Signature image once, vertically centered for the row
+            String signaturePath = m.getSignaturePath();
+            if (signaturePath != null && !signaturePath.isEmpty()) {
+                float sigX = colX[7] + 2;
+                float sigY = y - ((lines * cellHeight) - sigHeight) / 2;
+                layout.add((cs, document) -> {
                     try {
-                        File sigFile = new File(m.getSignaturePath());
+                        File sigFile = new File(signaturePath);
                         if (sigFile.exists()) {
-                            PDImageXObject sigImg = PDImageXObject.createFromFileByContent(sigFile, document);
-                            float sigX = colX[7] + 2;
-                            float sigY = y - ((maxLines * cellHeight) - sigHeight) / 2;
-                            contentStream.drawImage(sigImg, sigX, sigY, sigWidth, sigHeight);
+                            layout.drawImage(cs, document, sigFile, sigX, sigY, sigWidth, sigHeight);
                         }
                     } catch (Exception ex) {
                         // Ignore signature image errors
                     }
-                }
-                y -= maxLines * cellHeight;
-            }
-            y -= 10;
-
-            // Section: Notes
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 14);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(leftMargin, y);
-            contentStream.showText("Notes");
-            contentStream.endText();
-            y -= 8;
-            contentStream.setStrokingColor(new Color(120, 120, 120));
-            contentStream.moveTo(leftMargin, y);
-            contentStream.lineTo(rightMargin, y);
-            contentStream.stroke();
-            y -= 18;
-
-            contentStream.setFont(PDType1Font.HELVETICA, 10);
-            float notesMaxWidth = rightMargin - leftMargin - 20;
-            for (Note n : reportData.getNotes()) {
-                if (y < 60) {
-                    contentStream.close();
-                    page = new PDPage(PDRectangle.A4);
-                    document.addPage(page);
-                    contentStream = new PDPageContentStream(document, page);
-                    y = 770;
-                }
-                String noteText = "\u2022 " + n.getDateAdded() + ": " + n.getText();
-                List<String> wrappedNote = wrapText(noteText, PDType1Font.HELVETICA, 11, notesMaxWidth);
-                for (String line : wrappedNote) {
-                    contentStream.beginText();
-                    contentStream.newLineAtOffset(leftMargin + 10, y);
-                    contentStream.showText(line);
-                    contentStream.endText();
-                    y -= 14;
-                }
-            }
-            y -= 10;
-
-            // Section: Follow-Ups
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 14);
-            contentStream.beginText();
-            contentStream.newLineAtOffset(leftMargin, y);
-            contentStream.showText("Follow-Ups");
-            contentStream.endText();
-            y -= 8;
-            contentStream.setStrokingColor(new Color(120, 120, 120));
-            contentStream.moveTo(leftMargin, y);
-            contentStream.lineTo(rightMargin, y);
-            contentStream.stroke();
-            y -= 18;
-
-            contentStream.setFont(PDType1Font.HELVETICA, 10);
-            float followUpMaxWidth = rightMargin - leftMargin - 20;
-            for (FollowUp f : reportData.getFollowUps()) {
-                if (y < 60) {
-                    contentStream.close();
-                    page = new PDPage(PDRectangle.A4);
-                    document.addPage(page);
-                    contentStream = new PDPageContentStream(document, page);
-                    y = 770;
-                }
-                String followText = "\u2022 " + f.getDueDate() + ": " + f.getDescription() +
-                    " [" + (f.isCompleted() ? "Done" : "Pending") + "]";
-                List<String> wrappedFollow = wrapText(followText, PDType1Font.HELVETICA, 11, followUpMaxWidth);
-                for (String line : wrappedFollow) {
-                    contentStream.beginText();
-                    contentStream.newLineAtOffset(leftMargin + 10, y);
-                    contentStream.showText(line);
-                    contentStream.endText();
-                    y -= 14;
-                }
+                });
             }
+            y -= lines * cellHeight;
+        }
+        y -= 10;
 
-            // Footer
-            y = 40;
-            contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 9);
-            contentStream.setNonStrokingColor(new Color(120, 120, 120));
-            contentStream.beginText();
-            contentStream.newLineAtOffset(leftMargin, y);
-            contentStream.showText("Generated on: " + java.time.LocalDate.now());
-            contentStream.endText();
-            contentStream.setNonStrokingColor(Color.BLACK);
-
-            contentStream.close();
-
-            // Add page numbers as footers
-            int totalPages = document.getNumberOfPages();
-            for (int pageIndex = 0; pageIndex < totalPages; pageIndex++) {
-                PDPage currentPage = document.getPage(pageIndex);
-                try (PDPageContentStream footerStream = new PDPageContentStream(document, currentPage, PDPageContentStream.AppendMode.APPEND, true, true)) {
-                    String pageNumText = "Page " + (pageIndex + 1) + " of " + totalPages;
-                    footerStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 9);
-                    footerStream.setNonStrokingColor(new Color(120, 120, 120));
-                    float stringWidth = PDType1Font.HELVETICA_OBLIQUE.getStringWidth(pageNumText) / 1000 * 9;
-                    float x = (currentPage.getMediaBox().getWidth() - stringWidth) / 2;
-                    float yFooter = 25;
-                    footerStream.beginText();
-                    footerStream.newLineAtOffset(x, yFooter);
-                    footerStream.showText(pageNumText);
-                    footerStream.endText();
-                }
-            }
+        // Section: Notes
+        y = sectionHeader(layout, "Notes", y);
+        y = bulletList(layout, reportData.getNotes(), n -> "\u2022 " + n.getDateAdded() + ": " + n.getText(), y);
+        y -= 10;
 
-            document.save(file);
-            logger.info("Student summary PDF exported successfully to {}", file.getAbsolutePath());
-        } catch (Exception e) {
-            logger.error("Failed to export Student Summary PDF", e);
-            throw new RuntimeException("Failed to export Student Summary PDF: " + e.getMessage(), e);
-        }
+        // Section: Follow-Ups
+        y = sectionHeader(layout, "Follow-Ups", y);
+        bulletList(layout, reportData.getFollowUps(), f -> "\u2022 " + f.getDueDate() + ": " + f.getDescription() +
+            " [" + (f.isCompleted() ? "Done" : "Pending") + "]", y);
+    }
 
+    /**
+     * Adds a section title with a rule under it, starting a new page first if the
+     * title would otherwise end up at the bottom of the page on its own.
+     * @return baseline for the section's first line
+     */
+    private static int sectionHeader(PdfLayout layout, String title, int y) throws IOException {
+        if (y < PAGE_BOTTOM + 40) {
+            layout.newPage();
+            y = PAGE_TOP;
+        }
+        layout.text(ReportFonts.BOLD, 14, LEFT_MARGIN, y, title);
+        float ruleY = y - 8;
+        layout.add((cs, document) -> {
+            cs.setStrokingColor(RULE_COLOR);
+            cs.moveTo(LEFT_MARGIN, ruleY);
+            cs.lineTo(RIGHT_MARGIN, ruleY);
+            cs.stroke();
+            cs.setStrokingColor(Color.BLACK);
+        });
+        return y - 26;
     }
 
     /**
-     * Wraps text to fit within a specified width using the given font and font size.
-     *
-     * @param text The text to wrap
-     * @param font The PDType1Font to use for measuring text width
-     * @param fontSize The size of the font
-     * @param maxWidth The maximum width allowed for the text
-     * @return List of lines that fit within the specified width
-     * @throws Exception if an error occurs during text wrapping
+     * Adds wrapped 10pt list items, continuing on a new page whenever a line would
+     * fall below the bottom margin.
+     * @return baseline below the last line
      */
-    private List<String> wrapText(String text, PDType1Font font, int fontSize, float maxWidth) throws Exception {
-        List<String> lines = new ArrayList<>();
-        String[] words = text.split(" ");
-        StringBuilder line = new StringBuilder();
-        for (String word : words) {
-            String testLine = line.length() == 0 ? word : line + " " + word;
-            float size = font.getStringWidth(testLine) / 1000 * fontSize;
-            if (size > maxWidth) {
-                if (line.length() > 0) {
-                    lines.add(line.toString());
-                    line = new StringBuilder(word);
-                } else {
-                    lines.add(word);
-                    line = new StringBuilder();
+    private static <T> int bulletList(PdfLayout layout, List<T> items, Function<T, String> format, int y) throws IOException {
+        float maxWidth = RIGHT_MARGIN - LEFT_MARGIN - 20;
+        for (T item : items) {
+            // Formatted one at a time; a list of every formatted item would double the report's text in memory
+            for (String line : ReportFonts.REGULAR.wrap(format.apply(item), 10, maxWidth)) {
+                if (y < PAGE_BOTTOM) {
+                    layout.newPage();
+                    y = PAGE_TOP;
                 }
-            } else {
-                line = new StringBuilder(testLine);
+                layout.text(ReportFonts.REGULAR, 10, LEFT_MARGIN + 10, y, line);
+                y -= 14;
             }
         }
-        if (line.length() > 0) lines.add(line.toString());
-        return lines;
+        return y;
+    }
+
+    private static void drawText(PDPageContentStream cs, PdfLayout.FontMetrics metrics, float fontSize,
+                                 float x, float y, String text) throws IOException {
+        cs.beginText();
+        cs.setFont(metrics.getFont(), fontSize);
+        cs.newLineAtOffset(x, y);
+        cs.showText(text);
+        cs.endText();
+    }
+
+    /**
+     * Helvetica fonts used by the reports, with their glyph widths.
+     * <p>
+     * PDFBox 2's shared {@code PDType1Font.HELVETICA} constants fill their encoding and
+     * width caches lazily in plain HashMaps, which is unsafe when several reports are
+     * rendered at once. Measuring every WinAnsi glyph when this class loads (see
+     * {@link PdfLayout.FontMetrics}) fills those caches first, so concurrent rendering
+     * only ever reads them. (Building fresh font objects per document instead makes
+     * PDFBox look up a substitute system font each time.)
+     */
+    static final class ReportFonts {
+        static final PdfLayout.FontMetrics REGULAR = new PdfLayout.FontMetrics(PDType1Font.HELVETICA);
+        static final PdfLayout.FontMetrics BOLD = new PdfLayout.FontMetrics(PDType1Font.HELVETICA_BOLD);
+        static final PdfLayout.FontMetrics OBLIQUE = new PdfLayout.FontMetrics(PDType1Font.HELVETICA_OBLIQUE);
     }
 }
@@ -0,0 +1,215 @@
+package com.cole.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import com.cole.model.ToDoTask;
+import com.cole.util.DBUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A user's to-dos and recurrence exclusions held in memory, so the to-do panel can
+ * change date, filter or search without querying the database.
+ * <p>
+ * The cache is filled by {@link #load()} and kept current by {@link TodoService}, which
+ * writes every change through to it after the database accepted it. Answers are the
+ * same as {@link TodoService#getTasksForUserAndDate} and
+ * {@link TodoService#getOverdueTasks}, including recurring occurrences, and are fresh
+ * copies that callers may modify. Safe to use from several threads.
+ */
+public final class TodoCache {
+    private static final Logger logger = LoggerFactory.getLogger(TodoCache.class);
+
+    private static final Map<Integer, TodoCache> CACHES = new ConcurrentHashMap<>();
+
+    private final int userId;
+    /** Stored tasks by ID. */
+    private final Map<Integer, ToDoTask> tasks = new LinkedHashMap<>();
+    /** Excluded dates by task ID. */
+    private final Map<Integer, Set<LocalDate>> exclusions = new HashMap<>();
+    private boolean loaded;
+
+    private TodoCache(int userId) {
+        this.userId = userId;
+    }
+
+    /** @return the cache of a user's to-dos; empty until {@link #load()} */
+    public static TodoCache forUser(int userId) {
+        return CACHES.computeIfAbsent(userId, TodoCache::new);
+    }
+
+    /** Drops every cached user, e.g. after tasks were changed without going through the cache. */
+    public static void invalidateAll() {
+        for (TodoCache cache : CACHES.values()) {
+            synchronized (cache) {
+                cache.loaded = false;
+                cache.tasks.clear();
+                cache.exclusions.clear();
+            }
+        }
+    }
+
+    /** @return true once the user's tasks are in memory */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Reads the user's tasks and exclusions unless they are already in memory.
+     * @throws SQLException if they cannot be read
+     */
+    public synchronized void load() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        long started = System.nanoTime();
+        Map<Integer, ToDoTask> loadedTasks = new LinkedHashMap<>();
+        Map<Integer, Set<LocalDate>> loadedExclusions = new HashMap<>();
+        try (Connection conn = DBUtil.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM todos WHERE user_id = ?")) {
+                ps.setInt(1, userId);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    ToDoTask task = TodoService.mapRow(rs);
+                    loadedTasks.put(task.getId(), task);
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT task_id, excluded_date FROM todo_recurring_exclusions " +
+                    "WHERE task_id IN (SELECT id FROM todos WHERE user_id = ?)")) {
+                ps.setInt(1, userId);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    loadedExclusions.computeIfAbsent(rs.getInt(1), k -> new HashSet<>())
+                            .add(LocalDate.parse(rs.getString(2)));
+                }
+            }
+        }
+        tasks.putAll(loadedTasks);
+        exclusions.putAll(loadedExclusions);
+        loaded = true;
+        logger.debug("Loaded {} to-do(s) of user {} in {} ms", tasks.size(), userId,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** @return tasks due on a date, including recurring occurrences */
+    public List<ToDoTask> getTasksOn(LocalDate date) {
+        return collect(t -> t.getDueDate().equals(date), date, date);
+    }
+
+    /**
+     * @return all stored tasks, plus the recurring occurrences of the last
+     *         {@value TodoService#RECURRENCE_LOOKBACK_DAYS} days up to today
+     */
+    public List<ToDoTask> getAllTasks(LocalDate today) {
+        return collect(t -> true, today.minusDays(TodoService.RECURRENCE_LOOKBACK_DAYS), today);
+    }
+
+    /** @return incomplete tasks due before today, including recently missed occurrences */
+    public List<ToDoTask> getOverdueTasks(LocalDate today) {
+        return collect(t -> !t.isCompleted() && t.getDueDate().isBefore(today),
+                today.minusDays(TodoService.RECURRENCE_LOOKBACK_DAYS), today.minusDays(1));
+    }
+
+    /** Stored tasks matching {@code stored}, then occurrences expanded over {@code from} to {@code to}. */
+    private synchronized List<ToDoTask> collect(Predicate<ToDoTask> stored, LocalDate from, LocalDate to) {
+        if (!ensureLoaded()) {
+            return new ArrayList<>();
+        }
+        List<ToDoTask> result = new ArrayList<>();
+        List<ToDoTask> templates = new ArrayList<>();
+        Map<Integer, Set<LocalDate>> taken = new HashMap<>();
+        for (ToDoTask task : tasks.values()) {
+            if (stored.test(task) && !isExcludedTemplate(task)) {
+                result.add(task.copy());
+            }
+            if (isTemplate(task)) {
+                if (task.isActive() && task.getDueDate().isBefore(to)) {
+                    templates.add(task);
+                    taken.computeIfAbsent(task.getId(), k -> new HashSet<>())
+                            .addAll(exclusions.getOrDefault(task.getId(), Set.of()));
+                }
+            } else if (task.getParentId() != null && task.getOccurrenceDate() != null
+                    && !task.getOccurrenceDate().isBefore(from) && !task.getOccurrenceDate().isAfter(to)) {
+                taken.computeIfAbsent(task.getParentId(), k -> new HashSet<>()).add(task.getOccurrenceDate());
+            }
+        }
+        result.addAll(TodoService.expand(userId, templates, taken, from, to));
+        return result;
+    }
+
+    private boolean ensureLoaded() {
+        try {
+            load();
+            return true;
+        } catch (SQLException e) {
+            logger.error("Failed to load to-dos of user {}", userId, e);
+            return false;
+        }
+    }
+
+    private static boolean isTemplate(ToDoTask task) {
+        return task.getParentId() == null && task.getRecurring() != null;
+    }
+
+    /** A template whose own due date was excluded is not shown on it. */
+    private boolean isExcludedTemplate(ToDoTask task) {
+        return isTemplate(task) && exclusions.getOrDefault(task.getId(), Set.of()).contains(task.getDueDate());
+    }
+
+    /** Records a task the database stored or updated. */
+    static void saved(ToDoTask task) {
+        TodoCache cache = CACHES.get(task.getUserId());
+        if (cache != null) {
+            synchronized (cache) {
+                if (cache.loaded) {
+                    cache.tasks.put(task.getId(), task.copy());
+                }
+            }
+        }
+    }
+
+    /** Records a task the database deleted, with its exclusions. */
+    static void deleted(int taskId) {
+        for (TodoCache cache : CACHES.values()) {
+            synchronized (cache) {
+                if (cache.tasks.remove(taskId) != null) {
+                    cache.exclusions.remove(taskId);
+                }
+            }
+        }
+    }
+
+    /** Records an exclusion the database stored or deleted. */
+    static void exclusionChanged(int taskId, LocalDate date, boolean excluded) {
+        for (TodoCache cache : CACHES.values()) {
+            synchronized (cache) {
+                if (!cache.tasks.containsKey(taskId)) {
+                    continue;
+                }
+                if (excluded) {
+                    cache.exclusions.computeIfAbsent(taskId, k -> new HashSet<>()).add(date);
+                } else {
+                    Set<LocalDate> dates = cache.exclusions.get(taskId);
+                    if (dates != null) {
+                        dates.remove(date);
+                    }
+                }
+            }
+        }
+    }
+}
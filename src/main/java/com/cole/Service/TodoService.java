@@ -6,37 +6,83 @@ import com.cole.util.DBUtil;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * To-do storage. A recurring to-do (DAILY, WEEKLY or MONTHLY) is stored once as a
+ * template; its later occurrences are expanded for the dates being shown, and only
+ * stored when completed or edited. An excluded date has no occurrence. Every change is
+ * also written to the user's {@link TodoCache}.
+ */
 public class TodoService {
+    /** Days before today whose missed recurring occurrences are still shown as overdue. */
+    public static final int RECURRENCE_LOOKBACK_DAYS = 31;
+
+    /** Hides a template on its own due date once that date is excluded. */
+    private static final String NOT_EXCLUDED_TEMPLATE =
+        " AND NOT (parent_id IS NULL AND recurring IS NOT NULL AND EXISTS (" +
+        "SELECT 1 FROM todo_recurring_exclusions x WHERE x.task_id = todos.id AND x.excluded_date = todos.due_date))";
+
+    /**
+     * Gets a user's tasks due on a date, including recurring occurrences.
+     * @param date the date; null for all stored tasks plus the recurring occurrences of the
+     *        last {@value #RECURRENCE_LOOKBACK_DAYS} days up to today
+     */
     public static List<ToDoTask> getTasksForUserAndDate(int userId, LocalDate date) {
-        List<ToDoTask> tasks = new ArrayList<>();
-        String sql;
-        boolean filterByDate = date != null;
-        if (filterByDate) {
-            sql = "SELECT * FROM todos WHERE user_id = ? AND due_date = ?";
-        } else {
-            sql = "SELECT * FROM todos WHERE user_id = ?";
+        if (date != null) {
+            return getTasksForUserInRange(userId, date, date);
         }
+        List<ToDoTask> tasks = new ArrayList<>();
+        String sql = "SELECT * FROM todos WHERE user_id = ?" + NOT_EXCLUDED_TEMPLATE;
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
-            if (filterByDate) {
-                ps.setString(2, date.toString());
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                tasks.add(mapRow(rs));
             }
+            LocalDate today = LocalDate.now();
+            tasks.addAll(expandOccurrences(conn, userId, today.minusDays(RECURRENCE_LOOKBACK_DAYS), today));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return tasks;
+    }
+
+    /**
+     * Gets a user's tasks due between two dates, including recurring occurrences.
+     * The work done grows with the number of days, not with the task history.
+     */
+    public static List<ToDoTask> getTasksForUserInRange(int userId, LocalDate from, LocalDate to) {
+        List<ToDoTask> tasks = new ArrayList<>();
+        String sql = "SELECT * FROM todos WHERE user_id = ? AND due_date BETWEEN ? AND ?" + NOT_EXCLUDED_TEMPLATE;
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            ps.setString(2, from.toString());
+            ps.setString(3, to.toString());
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
                 tasks.add(mapRow(rs));
             }
+            tasks.addAll(expandOccurrences(conn, userId, from, to));
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return tasks;
     }
 
+    /**
+     * Gets a user's incomplete tasks due before today, including recurring occurrences
+     * missed in the last {@value #RECURRENCE_LOOKBACK_DAYS} days.
+     */
     public static List<ToDoTask> getOverdueTasks(int userId, LocalDate today) {
         List<ToDoTask> tasks = new ArrayList<>();
-        String sql = "SELECT * FROM todos WHERE user_id = ? AND due_date < ? AND completed = 0";
+        String sql = "SELECT * FROM todos WHERE user_id = ? AND due_date < ? AND completed = 0" + NOT_EXCLUDED_TEMPLATE;
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
@@ -45,16 +91,108 @@ public class TodoService {
             while (rs.next()) {
                 tasks.add(mapRow(rs));
             }
+            tasks.addAll(expandOccurrences(conn, userId, today.minusDays(RECURRENCE_LOOKBACK_DAYS), today.minusDays(1)));
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return tasks;
     }
 
+    /**
+     * Expands the user's active recurring templates over a date range. A date is skipped
+     * if it is excluded or already has a stored occurrence. A template itself is stored
+     * and covers its own due date.
+     * @return occurrences not stored yet, with ID 0
+     */
+    private static List<ToDoTask> expandOccurrences(Connection conn, int userId, LocalDate from, LocalDate to)
+            throws SQLException {
+        List<ToDoTask> templates = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT * FROM todos WHERE user_id = ? AND parent_id IS NULL AND recurring IS NOT NULL " +
+                "AND due_date < ? AND active = 1")) {
+            ps.setInt(1, userId);
+            ps.setString(2, to.toString());
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                templates.add(mapRow(rs));
+            }
+        }
+        if (templates.isEmpty()) {
+            return List.of();
+        }
+
+        // Dates taken per template
+        Map<Integer, Set<LocalDate>> taken = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT task_id, excluded_date FROM todo_recurring_exclusions " +
+                "WHERE task_id IN (SELECT id FROM todos WHERE user_id = ? AND parent_id IS NULL AND recurring IS NOT NULL) " +
+                "AND excluded_date BETWEEN ? AND ?")) {
+            ps.setInt(1, userId);
+            ps.setString(2, from.toString());
+            ps.setString(3, to.toString());
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                taken.computeIfAbsent(rs.getInt(1), k -> new HashSet<>()).add(LocalDate.parse(rs.getString(2)));
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT parent_id, occurrence_date FROM todos " +
+                "WHERE user_id = ? AND parent_id IS NOT NULL AND occurrence_date BETWEEN ? AND ?")) {
+            ps.setInt(1, userId);
+            ps.setString(2, from.toString());
+            ps.setString(3, to.toString());
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                taken.computeIfAbsent(rs.getInt(1), k -> new HashSet<>()).add(LocalDate.parse(rs.getString(2)));
+            }
+        }
+
+        return expand(userId, templates, taken, from, to);
+    }
+
+    /**
+     * Expands recurring templates over a date range.
+     * @param templates active templates of the user
+     * @param taken dates excluded or already stored, by template ID
+     * @return occurrences not stored yet, with ID 0
+     */
+    static List<ToDoTask> expand(int userId, List<ToDoTask> templates, Map<Integer, Set<LocalDate>> taken,
+                                 LocalDate from, LocalDate to) {
+        List<ToDoTask> occurrences = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            for (ToDoTask template : templates) {
+                if (!occursOn(template, day)
+                        || taken.getOrDefault(template.getId(), Set.of()).contains(day)) {
+                    continue;
+                }
+                ToDoTask occurrence = new ToDoTask(0, userId, template.getTaskText(), day, false,
+                        template.getNote(), template.getPriority(), template.getRecurring());
+                occurrence.setParentId(template.getId());
+                occurrence.setOccurrenceDate(day);
+                occurrences.add(occurrence);
+            }
+        }
+        return occurrences;
+    }
+
+    /** @return true if a recurring template has an occurrence on a day after its due date */
+    static boolean occursOn(ToDoTask template, LocalDate day) {
+        LocalDate start = template.getDueDate();
+        if (!day.isAfter(start) || template.getRecurring() == null) {
+            return false;
+        }
+        return switch (template.getRecurring()) {
+            case "DAILY" -> true;
+            case "WEEKLY" -> day.getDayOfWeek() == start.getDayOfWeek();
+            case "MONTHLY" -> day.getDayOfMonth() == start.getDayOfMonth();
+            default -> false;
+        };
+    }
+
     public static void addTask(ToDoTask task) {
-        String sql = "INSERT INTO todos (user_id, task_text, due_date, completed, note, priority, recurring, active, parent_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO todos (user_id, task_text, due_date, completed, note, priority, recurring, active, parent_id, occurrence_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, task.getUserId());
             ps.setString(2, task.getTaskText());
             ps.setString(3, task.getDueDate().toString());
@@ -68,13 +206,25 @@ public class TodoService {
             } else {
                 ps.setNull(9, java.sql.Types.INTEGER);
             }
+            ps.setString(10, task.getOccurrenceDate() != null ? task.getOccurrenceDate().toString() : null);
             ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    task.setId(keys.getInt(1));
+                }
+            }
+            TodoCache.saved(task);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    /** Saves a task; an occurrence not stored yet is stored now. */
     public static void updateTask(ToDoTask task) {
+        if (task.isVirtual()) {
+            addTask(task);
+            return;
+        }
         String sql = "UPDATE todos SET task_text=?, due_date=?, completed=?, note=?, priority=?, recurring=?, active=?, parent_id=? WHERE id=?";
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -92,48 +242,19 @@ public class TodoService {
             }
             ps.setInt(9, task.getId());
             ps.executeUpdate();
+            TodoCache.saved(task);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    public static List<ToDoTask> getRecurringTasksForUser(int userId) {
-        List<ToDoTask> tasks = new ArrayList<>();
-        String sql = "SELECT * FROM todos WHERE user_id = ? AND recurring IS NOT NULL AND active = 1";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, userId);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                tasks.add(mapRow(rs));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return tasks;
-    }
-
-    public static boolean existsForDate(ToDoTask task, LocalDate date) {
-        String sql = "SELECT COUNT(*) FROM todos WHERE user_id = ? AND task_text = ? AND due_date = ?";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, task.getUserId());
-            ps.setString(2, task.getTaskText());
-            ps.setString(3, date.toString());
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) return rs.getInt(1) > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return false;
-    }
-
     public static void deleteTask(int taskId) {
         String sql = "DELETE FROM todos WHERE id=?";
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, taskId);
             ps.executeUpdate();
+            TodoCache.deleted(taskId);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -146,6 +267,7 @@ public class TodoService {
             ps.setInt(1, active ? 1 : 0);
             ps.setInt(2, taskId);
             ps.executeUpdate();
+            TodoCache.invalidateAll();
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -172,6 +294,7 @@ public class TodoService {
             ps.setInt(1, taskId);
             ps.setString(2, date.toString());
             ps.executeUpdate();
+            TodoCache.exclusionChanged(taskId, date, true);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -200,12 +323,13 @@ public class TodoService {
             ps.setInt(1, taskId);
             ps.setString(2, date.toString());
             ps.executeUpdate();
+            TodoCache.exclusionChanged(taskId, date, false);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    private static ToDoTask mapRow(ResultSet rs) throws SQLException {
+    static ToDoTask mapRow(ResultSet rs) throws SQLException {
         ToDoTask task = new ToDoTask(
             rs.getInt("id"),
             rs.getInt("user_id"),
@@ -231,6 +355,15 @@ public class TodoService {
         } catch (SQLException e) {
             task.setParentId(null);
         }
+        // Set occurrenceDate if present
+        try {
+            String occurrenceDate = rs.getString("occurrence_date");
+            if (occurrenceDate != null) {
+                task.setOccurrenceDate(LocalDate.parse(occurrenceDate));
+            }
+        } catch (SQLException e) {
+            task.setOccurrenceDate(null);
+        }
         return task;
     }
 }
@@ -0,0 +1,41 @@
+package com.cole.Service;
+
+import com.cole.util.StreamingExcelWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes an export as a single-sheet Excel workbook through {@link StreamingExcelWriter}:
+ * title row, styled header, then the data rows.
+ */
+final class XlsxExportWriter implements ExportWriter {
+
+    private final StreamingExcelWriter excel;
+    private final OutputStream out;
+
+    XlsxExportWriter(ExportDefinition definition, OutputStream out) {
+        this.out = out;
+        this.excel = new StreamingExcelWriter(definition.sheetName(), definition.headings());
+        if (definition.fixedColumnWidth() > 0) {
+            excel.setFixedColumnWidth(definition.fixedColumnWidth());
+        }
+        excel.writeTitle(definition.title(), definition.titleFormat());
+        excel.writeHeader();
+    }
+
+    @Override
+    public void writeRow(String[] values) {
+        excel.writeRow(values);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        excel.write(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        excel.close();
+    }
+}
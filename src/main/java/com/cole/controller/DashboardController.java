@@ -2,20 +2,34 @@ package com.cole.controller;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.cole.model.StudentReportData;
+import com.cole.model.SLP;
+import com.cole.Service.BulkReportService;
+import com.cole.Service.SLPService;
+import com.cole.Service.TodoCache;
 import com.cole.Service.StudentReportsService;
 import com.cole.Service.GraduatesExportService;
 import com.cole.Service.FollowUpExportService;
 import com.cole.Service.DatabaseBackupService;
+import com.cole.Service.ExportDefinition;
+import com.cole.Service.ExportFormat;
+import com.cole.Service.ExportService;
+import com.cole.util.BackgroundTasks;
+import com.cole.util.BulkReportDialogUtil;
+import com.cole.util.DBInit;
+import com.cole.util.DBUtil;
+import com.cole.util.ProgressDialogUtil;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -142,8 +156,8 @@ public class DashboardController {
 
         confirm.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                Stage stage = (Stage) ((javafx.scene.Node) event.getSource()).getScene().getWindow();
-                stage.close();
+                // App.stop() lets in-flight saves finish and shuts the services down
+                Platform.exit();
             }
         });
     }
@@ -310,8 +324,8 @@ public class DashboardController {
         Optional<String> result = dialog.showAndWait();
 
         result.ifPresent(studentNumber -> {
-            StudentReportData reportData = reportsService.getStudentReportData(studentNumber);
-            if (reportData == null) {
+            StudentReportsService.ReportVersion reportVersion = reportsService.getReportVersion(studentNumber);
+            if (reportVersion == null) {
                 showError("Not Found", "No student found with number: " + studentNumber);
                 return;
             }
@@ -321,7 +335,7 @@ public class DashboardController {
             File file = fileChooser.showSaveDialog(null);
             if (file != null) {
                 try {
-                    reportsService.exportStudentSummaryPdf(reportData, file);
+                    reportsService.exportStudentSummaryPdf(reportVersion, file);
                     showInfo("Export Successful", "Student summary exported to:\n" + file.getAbsolutePath());
                 } catch (Exception e) {
                     showError("Export Error", "Could not export Student Summary as PDF.\n" + e.getMessage());
@@ -330,9 +344,34 @@ public class DashboardController {
         });
     }
 
+    /**
+     * Generates summary reports for every student in an SLP chosen by the user, in the
+     * background, into a zip file or a folder.
+     * @param event ActionEvent from the UI
+     */
+    @FXML
+    private void handleBulkStudentReports(ActionEvent event) {
+        List<SLP> slps = new SLPService().getAllSLPs();
+        if (slps.isEmpty()) {
+            showError("No SLPs", "There are no SLPs to generate reports for.");
+            return;
+        }
+        ChoiceDialog<SLP> dialog = new ChoiceDialog<>(slps.get(0), slps);
+        dialog.setTitle("Bulk Student Reports");
+        dialog.setHeaderText("Generate student summaries for an SLP cohort");
+        dialog.setContentText("SLP:");
+        Optional<SLP> result = dialog.showAndWait();
+        if (result.isEmpty()) return;
+
+        SLP slp = result.get();
+        Stage owner = (Stage) contentArea.getScene().getWindow();
+        BulkReportDialogUtil.run(owner, BulkReportService.Selection.forSlp(slp.getId(), slp.getName()),
+            "student_reports_" + slp.getSlpCode());
+    }
+
     /**
      * Handles the action to export the follow-up history report when the user clicks the corresponding button.
-     * Prompts the user to select a filter (e.g., completed, upcoming, due) and saves the report as an Excel file.
+     * Prompts the user to select a filter (e.g., completed, upcoming, due) and saves the report as an Excel or CSV file in the background.
      * @param event ActionEvent from the UI
      */
     @FXML
@@ -347,45 +386,53 @@ public class DashboardController {
 
         String filter = result.get();
 
-        FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Export Follow-Up History");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Excel Files", "*.xlsx"));
-        fileChooser.setInitialFileName("follow_up_history_" + filter + ".xlsx");
-        File file = fileChooser.showSaveDialog(null);
-        if (file == null) return;
-
         FollowUpExportService exportService = new FollowUpExportService();
-        try {
-            exportService.exportFollowUpHistoryToExcel(file, filter);
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Export Successful");
-            alert.setHeaderText(null);
-            alert.setContentText("Follow-Up History exported successfully:\n" + file.getAbsolutePath());
-            alert.showAndWait();
-        } catch (Exception e) {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Export Failed");
-            alert.setHeaderText(null);
-            alert.setContentText("Failed to export Follow-Up History:\n" + e.getMessage());
-            alert.showAndWait();
-        }
+        runExport(exportService.followUpHistoryDefinition(filter), "Export Follow-Up History",
+            "follow_up_history_" + filter, "Follow-Up History");
     }
 
     public void handleGraduatesReport(ActionEvent event) {
-        FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Export Graduates List");
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Excel Files", "*.xlsx"));
-        fileChooser.setInitialFileName("graduates.xlsx");
-        File file = fileChooser.showSaveDialog(null);
-        if (file == null) return;
-
         GraduatesExportService exportService = new GraduatesExportService();
-        try {
-            exportService.exportGraduatesToExcel(file);
-            showInfo("Export Successful", "Graduates list exported to:\n" + file.getAbsolutePath());
-        } catch (Exception e) {
-            showError("Export Error", "Could not export graduates list.\n" + e.getMessage());
+        runExport(exportService.graduatesDefinition(), "Export Graduates List", "graduates", "Graduates list");
+    }
+
+    /**
+     * Asks where to save an export, as Excel or CSV, then runs it as a background job
+     * with a progress dialog that can cancel it.
+     * @param definition What to export.
+     * @param chooserTitle File chooser title.
+     * @param defaultName Suggested file name without extension.
+     * @param what Name of the export for the result messages.
+     */
+    private void runExport(ExportDefinition definition, String chooserTitle, String defaultName, String what) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(chooserTitle);
+        for (ExportFormat format : ExportFormat.values()) {
+            fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(format.getDescription(), "*." + format.getExtension()));
         }
+        fileChooser.setInitialFileName(defaultName + "." + ExportFormat.XLSX.getExtension());
+        Stage owner = (Stage) contentArea.getScene().getWindow();
+        File chosen = fileChooser.showSaveDialog(owner);
+        if (chosen == null) return;
+
+        // Use the extension typed by the user, else the selected filter's format
+        ExportFormat format = ExportFormat.forFileName(chosen.getName());
+        if (format == null) {
+            int selected = fileChooser.getExtensionFilters().indexOf(fileChooser.getSelectedExtensionFilter());
+            format = selected >= 0 ? ExportFormat.values()[selected] : ExportFormat.XLSX;
+            chosen = new File(chosen.getParentFile(), chosen.getName() + "." + format.getExtension());
+        }
+        File file = chosen;
+
+        Task<Integer> task = new ExportService().exportTask(definition, format, file);
+        task.setOnSucceeded(e ->
+            showInfo("Export Successful", what + " exported (" + task.getValue() + " rows) to:\n" + file.getAbsolutePath()));
+        task.setOnFailed(e -> {
+            logger.error("Export of {} failed", what, task.getException());
+            showError("Export Failed", "Could not export " + what + ".\n" + task.getException().getMessage());
+        });
+        ProgressDialogUtil.show(owner, task, "Exporting " + what + "...", BackgroundTasks.Lane.EXPORT);
     }
 
     private final DatabaseBackupService dbBackupService = new DatabaseBackupService();
@@ -402,16 +449,11 @@ public class DashboardController {
         File backupFile = fileChooser.showSaveDialog(null);
         
         if (backupFile == null) return;
-        File dbFile = new File("database/data.db");
-        if (!dbFile.exists()) {
-            showError("Database Not Found", "Could not find the database file: " + dbFile.getAbsolutePath());
-            return;
-        }
 
         try {
-            dbBackupService.backupDatabase(dbFile, backupFile);
+            dbBackupService.backupDatabase(backupFile);
             showInfo("Backup Successful", "Database backed up to:\n" + backupFile.getAbsolutePath());
-        } catch (IOException e) {
+        } catch (IOException | java.sql.SQLException e) {
             showError("Backup Failed", "Could not backup database:\n" + e.getMessage());
         }
     }
@@ -442,10 +484,24 @@ public class DashboardController {
         if (answer.isEmpty() || answer.get() != ButtonType.OK) return;
 
         try {
+            // Release pooled handles on the old file before it is overwritten
+            DBUtil.shutdown();
             dbBackupService.restoreDatabase(backupFile, dbFile);
+            // Cached rows belong to the old file
+            TodoCache.invalidateAll();
+            SLPService.invalidateCache();
+            // A backup made by an older version lacks the newer tables; bring it up to date
+            DBInit.initializeDatabase();
+            if (dashboardHomeController != null) {
+                dashboardHomeController.onDatabaseReplaced();
+            }
             showInfo("Restore Successful", "Database restored from:\n" + backupFile.getAbsolutePath());
         } catch (IOException e) {
             showError("Restore Failed", "Could not restore database:\n" + e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Restored database could not be upgraded", e);
+            showError("Restore Failed", "The backup was restored but could not be upgraded to the current "
+                    + "database version. Please restart the application.\n" + e.getMessage());
         }
     }
 
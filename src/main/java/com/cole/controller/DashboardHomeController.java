@@ -1,14 +1,17 @@
 package com.cole.controller;
 
+import com.cole.Service.ActivityFeed;
 import com.cole.Service.ActivityService;
 import com.cole.Service.DashboardService;
+import com.cole.Service.TodoCache;
 import com.cole.Service.TodoService;
 import com.cole.model.RecentActivity;
 import com.cole.model.ToDoTask;
+import com.cole.util.BackgroundTasks;
 import com.cole.util.UserSession;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -24,7 +27,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Controller for the Dashboard Home view.
@@ -33,7 +38,7 @@ import java.util.List;
  */
 public class DashboardHomeController {
     @FXML
-    private TableView<Object> recentActivityTable;
+    private TableView<RecentActivity> recentActivityTable;
 
     @FXML
     private Label inactiveStudentsLabel;
@@ -73,14 +78,46 @@ public class DashboardHomeController {
     @FXML private ComboBox<String> roleFilterCombo;
 
     private ObservableList<ToDoTask> todoTasks = FXCollections.observableArrayList();
+    private final PauseTransition todoFilterDebounce = new PauseTransition(Duration.millis(200));
+    /** Completed and overdue tasks in {@link #todoTasks}, kept up to date as tasks change. */
+    private int shownCompleted;
+    private int shownOverdue;
     private static final Logger logger = LoggerFactory.getLogger(DashboardHomeController.class);
+    /** Choices when deleting a recurring to-do. */
+    private static final ButtonType DELETE_OCCURRENCE = new ButtonType("This occurrence");
+    private static final ButtonType DELETE_SERIES = new ButtonType("Whole series");
     private final DashboardService dashboardService = new DashboardService();
     private int currentUserId = UserSession.getInstance().getUserId(); // Set this from your login/session logic
 
     @FXML private Label activeStudentsLabel;
 
-    private Timeline recentActivityTimeline;
-    private List<RecentActivity> lastLoadedActivities = new java.util.ArrayList<>();
+    /** Newest activity first, updated by the activity feed as entries are logged. */
+    private final ObservableList<RecentActivity> recentActivities = FXCollections.observableArrayList();
+    private final ActivityFeed.Listener activityFeedListener = new ActivityFeed.Listener() {
+        @Override
+        public void added(List<RecentActivity> entries) {
+            Platform.runLater(() -> {
+                recentActivities.addAll(0, entries);
+                if (recentActivities.size() > ActivityFeed.CAPACITY) {
+                    recentActivities.remove(ActivityFeed.CAPACITY, recentActivities.size());
+                }
+                refreshFilteredActivities();
+            });
+        }
+
+        @Override
+        public void reset(List<RecentActivity> latest) {
+            Platform.runLater(() -> {
+                recentActivities.setAll(latest);
+                refreshFilteredActivities();
+            });
+        }
+    };
+
+    /** Activity of the user and role chosen in the filter combos; shown instead of the feed while set. */
+    private final ObservableList<RecentActivity> filteredActivities = FXCollections.observableArrayList();
+    private String activityFilterUser;
+    private String activityFilterRole;
 
     /**
      * Initializes the controller and loads dashboard statistics.
@@ -118,9 +155,17 @@ public class DashboardHomeController {
                     checkBox.setOnAction(e -> {
                         ToDoTask task = getItem();
                         if (task != null) {
+                            int index = todoTasks.indexOf(task);
+                            countTodo(task, -1);
                             task.setCompleted(checkBox.isSelected());
                             TodoService.updateTask(task);
-                            refreshTodoTasks();
+                            if (matchesTodoView(task)) {
+                                countTodo(task, 1);
+                                todoTasks.set(index, task);
+                            } else {
+                                todoTasks.remove(index);
+                            }
+                            updateTodoSummary();
                             if (task.isCompleted()) {
                                 ActivityService.logActivity(
                                     currentUserId,
@@ -133,25 +178,47 @@ public class DashboardHomeController {
                     deleteBtn.setOnAction(e -> {
                         ToDoTask task = getItem();
                         if (task != null) {
+                            boolean template = task.getParentId() == null && task.getRecurring() != null && task.isActive();
+                            boolean recurring = task.getParentId() != null || template;
                             Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
                             alert.setTitle("Delete Task");
-                            alert.setHeaderText("Are you sure you want to delete this task?");
+                            alert.setHeaderText(recurring
+                                ? "Delete only this occurrence, or the whole recurring task?"
+                                : "Are you sure you want to delete this task?");
                             alert.setContentText(task.getTaskText());
+                            if (recurring) {
+                                alert.getButtonTypes().setAll(DELETE_OCCURRENCE, DELETE_SERIES, ButtonType.CANCEL);
+                            }
                             alert.showAndWait().ifPresent(result -> {
-                                if (result == ButtonType.OK) {
-                                    try {
-                                        int exclusionId = (task.getParentId() != null) ? task.getParentId() : task.getId();
-                                        TodoService.addRecurringExclusion(exclusionId, task.getDueDate());
-                                        TodoService.deleteTask(task.getId());
-                                        refreshTodoTasks();
-                                        ActivityService.logActivity(
-                                            currentUserId,
-                                            "TODO_DELETED",
-                                            "Deleted to-do: " + task.getTaskText()
-                                        );
-                                    } catch (Exception ex) {
-                                        showError("Failed to delete task.", ex);
+                                if (result == ButtonType.CANCEL) {
+                                    return;
+                                }
+                                try {
+                                    if (result == DELETE_SERIES) {
+                                        // Occurrences already completed or edited stay as they are
+                                        TodoService.deleteTask(template ? task.getId() : task.getParentId());
+                                        showTodoTasks();
+                                    } else {
+                                        if (recurring) {
+                                            // Excluding the date keeps the other occurrences
+                                            int exclusionId = (task.getParentId() != null) ? task.getParentId() : task.getId();
+                                            LocalDate date = task.getOccurrenceDate() != null ? task.getOccurrenceDate() : task.getDueDate();
+                                            TodoService.addRecurringExclusion(exclusionId, date);
+                                        }
+                                        if (!task.isVirtual() && !template) {
+                                            TodoService.deleteTask(task.getId());
+                                        }
+                                        countTodo(task, -1);
+                                        todoTasks.remove(task);
+                                        updateTodoSummary();
                                     }
+                                    ActivityService.logActivity(
+                                        currentUserId,
+                                        "TODO_DELETED",
+                                        (result == DELETE_SERIES ? "Deleted recurring to-do: " : "Deleted to-do: ") + task.getTaskText()
+                                    );
+                                } catch (Exception ex) {
+                                    showError("Failed to delete task.", ex);
                                 }
                             });
                         }
@@ -204,16 +271,25 @@ public class DashboardHomeController {
                         return cell;
                     });
 
-        todoDatePicker.valueProperty().addListener((obs, oldDate, newDate) -> refreshTodoTasks());
-        overdueFilterCheckBox.selectedProperty().addListener((obs, wasSelected, isSelected) -> refreshTodoTasks());
+        // Answered from the to-do cache, once the user stops typing or clicking
+        todoFilterDebounce.setOnFinished(e -> showTodoTasks());
+        todoDatePicker.valueProperty().addListener((obs, oldDate, newDate) -> todoFilterDebounce.playFromStart());
+        overdueFilterCheckBox.selectedProperty().addListener((obs, wasSelected, isSelected) -> todoFilterDebounce.playFromStart());
         filterCombo.setItems(FXCollections.observableArrayList("All", "Completed", "Pending", "Overdue", "High", "Medium", "Low"));
         filterCombo.getSelectionModel().select("All");
-        filterCombo.valueProperty().addListener((obs, old, val) -> refreshTodoTasks());
-        searchField.textProperty().addListener((obs, old, val) -> refreshTodoTasks());
+        filterCombo.valueProperty().addListener((obs, old, val) -> todoFilterDebounce.playFromStart());
+        searchField.textProperty().addListener((obs, old, val) -> todoFilterDebounce.playFromStart());
         activityTimeColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getActivityTime().toString()));
         activityTypeColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getActivityType()));
         activityDescriptionColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getDescription()));
-        loadRecentActivity();
+        recentActivityTable.setItems(recentActivities);
+        ActivityFeed.shared().addListener(activityFeedListener);
+        recentActivityTable.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            ActivityFeed.shared().removeListener(activityFeedListener);
+            if (newScene != null) {
+                ActivityFeed.shared().addListener(activityFeedListener);
+            }
+        });
         loadDashboardStats();
         refreshTodoTasks();
 
@@ -226,13 +302,6 @@ public class DashboardHomeController {
         // Populate combos (fetch user list and roles from DB/service)
         userFilterCombo.setItems(FXCollections.observableArrayList(ActivityService.getAllUsernames()));
         roleFilterCombo.setItems(FXCollections.observableArrayList("ADMIN", "MANAGER", "USER"));
-
-        // Start periodic refresh for recent activity
-        recentActivityTimeline = new Timeline(
-            new KeyFrame(Duration.seconds(10), e -> refreshRecentActivityIfChanged())
-        );
-        recentActivityTimeline.setCycleCount(Timeline.INDEFINITE);
-        recentActivityTimeline.play();
     }
 
     /**
@@ -275,7 +344,7 @@ public class DashboardHomeController {
             activeStudentsLabel.setText("Error loading stats.");
             showError("Failed to load dashboard statistics.", task.getException());
         });
-        new Thread(task).start();
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, activeStudentsLabel);
     }
 
     @FXML
@@ -292,56 +361,118 @@ public class DashboardHomeController {
                 0, currentUserId, text, todoDatePicker.getValue(), false, note, priority, recurring
             );
             TodoService.addTask(newTask);
+            if (recurring != null) {
+                // Its occurrences may fall on the dates shown
+                showTodoTasks();
+            } else if (matchesTodoView(newTask)) {
+                todoTasks.add(newTask);
+                countTodo(newTask, 1);
+                updateTodoSummary();
+            }
             ActivityService.logActivity(currentUserId, "TODO_ADDED", "Added to-do: " + newTask.getTaskText());
             todoInput.clear();
             todoNoteInput.clear();
             todoPriorityCombo.getSelectionModel().select("Medium");
             todoRecurringCombo.getSelectionModel().select("None");
-            refreshTodoTasks();
         } catch (Exception e) {
             showError("Failed to add task.", e);
         }
     }
 
+    /**
+     * Shows the current user's tasks, first loading them into the to-do cache in the
+     * background if needed.
+     */
     private void refreshTodoTasks() {
+        TodoCache cache = TodoCache.forUser(currentUserId);
+        if (cache.isLoaded()) {
+            showTodoTasks();
+            return;
+        }
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                cache.load();
+                return null;
+            }
+        };
+        task.setOnSucceeded(e -> showTodoTasks());
+        task.setOnFailed(e -> showError("Failed to load tasks.", task.getException()));
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, todoListView);
+    }
+
+    /** Shows the tasks matching the date, filter and search, from the to-do cache. */
+    private void showTodoTasks() {
         try {
-            checkAndGenerateRecurringTasks();
-            String filter = filterCombo.getValue();
-            String search = searchField.getText().toLowerCase();
+            TodoCache cache = TodoCache.forUser(currentUserId);
+            LocalDate today = LocalDate.now();
             List<ToDoTask> loaded;
-            if ("All".equals(filter)) {
+            if ("All".equals(filterCombo.getValue())) {
                 // Default: show tasks for selected date or overdue if checked
-                if (overdueFilterCheckBox.isSelected()) {
-                    loaded = TodoService.getOverdueTasks(currentUserId, LocalDate.now());
-                } else {
-                    loaded = TodoService.getTasksForUserAndDate(currentUserId, todoDatePicker.getValue());
-                }
+                loaded = overdueFilterCheckBox.isSelected()
+                    ? cache.getOverdueTasks(today)
+                    : cache.getTasksOn(todoDatePicker.getValue());
             } else {
                 // For any other filter, show ALL tasks for the user (ignore date)
-                loaded = TodoService.getTasksForUserAndDate(currentUserId, null); // null means all dates
+                loaded = cache.getAllTasks(today);
+            }
+            List<ToDoTask> filtered = new ArrayList<>();
+            for (ToDoTask task : loaded) {
+                if (matchesFilterAndSearch(task)) {
+                    filtered.add(task);
+                }
             }
-
-            List<ToDoTask> filtered = loaded.stream()
-                .filter(t -> {
-                    if ("Completed".equals(filter)) return t.isCompleted();
-                    if ("Pending".equals(filter)) return !t.isCompleted();
-                    if ("Overdue".equals(filter)) return !t.isCompleted() && t.getDueDate().isBefore(LocalDate.now());
-                    if ("High".equals(filter) || "Medium".equals(filter) || "Low".equals(filter))
-                        return filter.equals(t.getPriority());
-                    return true;
-                })
-                .filter(t -> t.getTaskText().toLowerCase().contains(search) || (t.getNote() != null && t.getNote().toLowerCase().contains(search)))
-                .toList();
             todoTasks.setAll(filtered);
 
-            long completed = filtered.stream().filter(ToDoTask::isCompleted).count();
-            long overdue = filtered.stream().filter(t -> !t.isCompleted() && t.getDueDate().isBefore(LocalDate.now())).count();
-            todoSummaryLabel.setText(completed + " of " + filtered.size() + " completed, " + overdue + " overdue");
+            shownCompleted = 0;
+            shownOverdue = 0;
+            filtered.forEach(t -> countTodo(t, 1));
+            updateTodoSummary();
         } catch (Exception e) {
             showError("Failed to refresh tasks.", e);
         }
     }
 
+    /** @return true if a task belongs in the list as currently filtered */
+    private boolean matchesTodoView(ToDoTask task) {
+        if ("All".equals(filterCombo.getValue())) {
+            boolean onDate = overdueFilterCheckBox.isSelected()
+                ? !task.isCompleted() && task.getDueDate().isBefore(LocalDate.now())
+                : task.getDueDate().equals(todoDatePicker.getValue());
+            if (!onDate) {
+                return false;
+            }
+        }
+        return matchesFilterAndSearch(task);
+    }
+
+    private boolean matchesFilterAndSearch(ToDoTask t) {
+        String filter = filterCombo.getValue();
+        boolean matchesFilter = switch (filter == null ? "All" : filter) {
+            case "Completed" -> t.isCompleted();
+            case "Pending" -> !t.isCompleted();
+            case "Overdue" -> !t.isCompleted() && t.getDueDate().isBefore(LocalDate.now());
+            case "High", "Medium", "Low" -> filter.equals(t.getPriority());
+            default -> true;
+        };
+        String search = searchField.getText() == null ? "" : searchField.getText().toLowerCase();
+        return matchesFilter && (t.getTaskText().toLowerCase().contains(search)
+            || (t.getNote() != null && t.getNote().toLowerCase().contains(search)));
+    }
+
+    /** Adds ({@code sign} 1) or removes (-1) a shown task from the summary counts. */
+    private void countTodo(ToDoTask task, int sign) {
+        if (task.isCompleted()) {
+            shownCompleted += sign;
+        } else if (task.getDueDate().isBefore(LocalDate.now())) {
+            shownOverdue += sign;
+        }
+    }
+
+    private void updateTodoSummary() {
+        todoSummaryLabel.setText(shownCompleted + " of " + todoTasks.size() + " completed, " + shownOverdue + " overdue");
+    }
+
     /**
      * Refreshes the dashboard statistics.
      * This method can be called to reload the statistics manually.
@@ -420,35 +551,13 @@ public class DashboardHomeController {
         dialog.showAndWait().ifPresent(updatedTask -> {
             try {
                 TodoService.updateTask(updatedTask);
-                refreshTodoTasks();
+                showTodoTasks();
             } catch (Exception e) {
                 showError("Failed to update task.", e);
             }
         });
     }
 
-    private void checkAndGenerateRecurringTasks() {
-        List<ToDoTask> recTasks = TodoService.getRecurringTasksForUser(currentUserId);
-        LocalDate today = LocalDate.now();
-        for (ToDoTask task : recTasks) {
-            // FIX: Check for exclusion before generating
-            if (TodoService.isDateExcluded(task.getId(), today)) {
-                continue; // Skip if excluded
-            }
-            boolean shouldGenerate = switch (task.getRecurring()) {
-                case "DAILY" -> !TodoService.existsForDate(task, today);
-                case "WEEKLY" -> today.getDayOfWeek() == task.getDueDate().getDayOfWeek() && !TodoService.existsForDate(task, today);
-                case "MONTHLY" -> today.getDayOfMonth() == task.getDueDate().getDayOfMonth() && !TodoService.existsForDate(task, today);
-                default -> false;
-            };
-            if (shouldGenerate) {
-                ToDoTask newTask = new ToDoTask(0, currentUserId, task.getTaskText(), today, false, task.getNote(), task.getPriority(), task.getRecurring());
-                newTask.setParentId(task.getId());
-                TodoService.addTask(newTask);
-            }
-        }
-    }
-
     private void showError(String message, Throwable e) {
         logger.error(message, e);
         Alert alert = new Alert(Alert.AlertType.ERROR);
@@ -458,48 +567,57 @@ public class DashboardHomeController {
         alert.showAndWait();
     }
 
-    private void loadRecentActivity() {
-        List<RecentActivity> activities = ActivityService.getRecentActivities(10);
-        recentActivityTable.setItems(FXCollections.observableArrayList(activities));
+    /**
+     * Shows the activity of the selected user and role, or the live feed again when
+     * neither is selected. The filtered view is queried again whenever the feed changes.
+     */
+    @FXML
+    private void handleActivityFilter() {
+        activityFilterUser = userFilterCombo.getValue();
+        activityFilterRole = roleFilterCombo.getValue();
+        if (activityFilterUser == null && activityFilterRole == null) {
+            filteredActivities.clear();
+            recentActivityTable.setItems(recentActivities);
+            return;
+        }
+        recentActivityTable.setItems(filteredActivities);
+        refreshFilteredActivities();
     }
 
-    // Efficient refresh: only update if changed
-    private void refreshRecentActivityIfChanged() {
-        List<RecentActivity> activities = ActivityService.getRecentActivities(10);
-        // Compare by id and timestamp for efficiency
-        boolean changed = false;
-        if (activities.size() != lastLoadedActivities.size()) {
-            changed = true;
-        } else {
-            for (int i = 0; i < activities.size(); i++) {
-                if (activities.get(i).getId() != lastLoadedActivities.get(i).getId() ||
-                    !activities.get(i).getActivityTime().equals(lastLoadedActivities.get(i).getActivityTime())) {
-                    changed = true;
-                    break;
-                }
-            }
-        }
-        if (changed) {
-            recentActivityTable.setItems(FXCollections.observableArrayList(activities));
-            lastLoadedActivities = activities;
+    private void refreshFilteredActivities() {
+        String user = activityFilterUser;
+        String role = activityFilterRole;
+        if (user == null && role == null) {
+            return;
         }
+        Task<List<RecentActivity>> task = new Task<>() {
+            @Override
+            protected List<RecentActivity> call() {
+                Integer userId = user != null ? ActivityService.getUserIdByUsername(user) : null;
+                return ActivityService.getRecentActivitiesByUserOrRole(userId, role, 10);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            // Skip results of a filter that was changed while the query ran
+            if (Objects.equals(user, activityFilterUser) && Objects.equals(role, activityFilterRole)) {
+                filteredActivities.setAll(task.getValue());
+            }
+        });
+        task.setOnFailed(e -> logger.error("Failed to load filtered activity", task.getException()));
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
     }
 
-    @FXML
-    private void handleActivityFilter() {
-        String selectedUser = userFilterCombo.getValue();
-        String selectedRole = roleFilterCombo.getValue();
-        Integer userId = selectedUser != null ? ActivityService.getUserIdByUsername(selectedUser) : null;
-        String role = selectedRole != null ? selectedRole : null;
-        List<RecentActivity> activities = ActivityService.getRecentActivitiesByUserOrRole(userId, role, 10);
-        recentActivityTable.setItems(FXCollections.observableArrayList(activities));
+    /** Shows the to-dos again after the database file was replaced, e.g. by a restore. */
+    public void onDatabaseReplaced() {
+        refreshTodoTasks();
     }
 
-    // Optional: stop/start timeline if dashboard is hidden/shown
+    // Follow the activity feed only while the dashboard is shown
     public void onDashboardHidden() {
-        if (recentActivityTimeline != null) recentActivityTimeline.stop();
+        ActivityFeed.shared().removeListener(activityFeedListener);
     }
     public void onDashboardShown() {
-        if (recentActivityTimeline != null) recentActivityTimeline.play();
+        ActivityFeed.shared().removeListener(activityFeedListener);
+        ActivityFeed.shared().addListener(activityFeedListener);
     }
 }
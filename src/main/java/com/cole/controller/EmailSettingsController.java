@@ -1,10 +1,12 @@
 package com.cole.controller;
 
+import com.cole.Service.ConfigService;
+
 import javafx.fxml.FXML;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Alert;
-import java.util.Properties;
-import java.io.*;
+import java.io.IOException;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,38 +20,30 @@ public class EmailSettingsController {
     @FXML private TextField emailField;
     @FXML private TextField smtpField;      
     @FXML private TextField portField;
-    
-    private static final String SETTINGS_FILE = "email_settings.properties";
 
     /**
-     * Initializes the controller by loading email settings from a properties file.
+     * Initializes the controller by loading the email settings.
      * This method is called automatically by the JavaFX framework after FXML loading.
      */
     @FXML
     public void initialize() {
-        try (FileInputStream fis = new FileInputStream(SETTINGS_FILE)) {
-            Properties props = new Properties();
-            props.load(fis);
-            emailField.setText(props.getProperty("email.sender", ""));
-            smtpField.setText(props.getProperty("email.smtp", ""));
-            portField.setText(props.getProperty("email.port", ""));
-        } catch (IOException e) {
-            logger.error("Error Retrieving Follow-Ups", e);
-        }
+        ConfigService config = ConfigService.shared();
+        emailField.setText(config.get(ConfigService.ConfigFile.EMAIL, "email.sender", ""));
+        smtpField.setText(config.get(ConfigService.ConfigFile.EMAIL, "email.smtp", ""));
+        portField.setText(config.get(ConfigService.ConfigFile.EMAIL, "email.port", ""));
     }
 
     /**
      * Handles the save action for email settings.
-     * Saves the current email configuration to a properties file.
+     * Saves the current email configuration; settings not shown here are kept.
      */
     @FXML
     private void handleSave() {
-        Properties props = new Properties();
-        props.setProperty("email.sender", emailField.getText());
-        props.setProperty("email.smtp", smtpField.getText());
-        props.setProperty("email.port", portField.getText());
-        try (FileOutputStream fos = new FileOutputStream(SETTINGS_FILE)) {
-            props.store(fos, "Email Settings");
+        try {
+            ConfigService.shared().save(ConfigService.ConfigFile.EMAIL, Map.of(
+                    "email.sender", emailField.getText(),
+                    "email.smtp", smtpField.getText(),
+                    "email.port", portField.getText()));
             showInfo("Saved", "Email settings saved successfully.");
         } catch (IOException e) {
             logger.error("Error Saving Email Settings", e);
@@ -3,6 +3,7 @@ package com.cole.controller;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Properties;
@@ -10,7 +11,9 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.cole.Service.ActivityService;
+import com.cole.Service.EmailOutbox;
 import com.cole.Service.EmailServices;
+import com.cole.Service.SmtpSettings;
 import com.cole.model.FollowUpRow;
 import com.cole.util.DBUtil;
 import com.cole.util.EmailDialogUtil;
@@ -21,7 +24,6 @@ import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.CheckBoxTableCell;
-import javafx.concurrent.Task;
 import javafx.stage.Stage;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
@@ -236,9 +238,7 @@ public class FollowUpController {
             return;
         }
         String from = config.getProperty("email.sender", "");
-        String smtp = config.getProperty("email.smtp", "");
-        String port = config.getProperty("email.port", "");
-        if (from.isEmpty() || smtp.isEmpty() || port.isEmpty()) {
+        if (SmtpSettings.fromProperties(config, "") == null) {
             showError("Settings Error", "Email settings are incomplete.");
             return;
         }
@@ -248,24 +248,16 @@ public class FollowUpController {
             showError("No Password", "Email not sent: password required.");
             return;
         }
-        Task<Void> emailTask = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                updateMessage("Authenticating...");
-                Thread.sleep(200); // Reduced sleep for faster feedback
-                updateMessage("Sending email...");
-                EmailServices.sendEmail(from, password, from, null, subject, body, smtp, port);
-                updateMessage("Finishing up...");
-                Thread.sleep(100);
-                return null;
+        try {
+            if (EmailOutbox.shared().enqueue(EmailOutbox.Kind.FOLLOW_UP_REMINDER, null, null, from, null, subject, body)) {
+                showInfo("Reminders Queued", "Email reminders are being sent to you.");
+            } else {
+                showInfo("Already Queued", "These reminders are already waiting to be sent.");
             }
-        };
-        emailTask.setOnSucceeded(e -> showInfo("Reminders Sent", "Email reminders have been sent to you."));
-        emailTask.setOnFailed(e -> {
-            logger.error("Email Error", emailTask.getException());
-            showError("Email Error", emailTask.getException().getMessage());
-        });
-        EmailDialogUtil.showEmailProgressDialog(owner, emailTask, "Sending Email...");
+        } catch (SQLException e) {
+            logger.error("Could not queue reminder email", e);
+            showError("Email Error", "Could not queue the reminder email: " + e.getMessage());
+        }
     }
 
     private void showError(String title, String message) {
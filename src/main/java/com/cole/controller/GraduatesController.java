@@ -1,6 +1,9 @@
 package com.cole.controller;
 
+import com.cole.Service.BulkEmailSender;
+import com.cole.Service.EmailOutbox;
 import com.cole.Service.EmailServices;
+import com.cole.Service.SmtpSettings;
 import com.cole.model.StudentToGraduate;
 import com.cole.util.DBUtil;
 import com.cole.util.EmailDialogUtil;
@@ -14,17 +17,27 @@ import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.cell.CheckBoxTableCell;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.io.FileInputStream;
+import java.util.stream.Collectors;
 import javafx.stage.Stage;
 import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class GraduatesController {
+    private static final Logger logger = LoggerFactory.getLogger(GraduatesController.class);
+
     @FXML
     private Button bukRequestButton;
     @FXML
@@ -91,6 +104,31 @@ public class GraduatesController {
         });
 
         bukRequestButton.setOnAction(event -> handleBulkTranscriptRequest());
+
+        // Reflect queued transcript requests as they are delivered, while this view is shown
+        EmailOutbox.Listener outboxListener = new EmailOutbox.Listener() {
+            @Override
+            public void delivered(EmailOutbox.Entry entry) {
+                if (entry.kind() == EmailOutbox.Kind.TRANSCRIPT_REQUEST) {
+                    Platform.runLater(GraduatesController.this::loadGraduationList);
+                }
+            }
+
+            @Override
+            public void failed(EmailOutbox.Entry entry) {
+                if (entry.kind() == EmailOutbox.Kind.TRANSCRIPT_REQUEST) {
+                    Platform.runLater(() -> showError("Email Error", "Transcript request for student "
+                            + entry.reference() + " could not be sent:\n" + entry.lastError()));
+                }
+            }
+        };
+        EmailOutbox.shared().addListener(outboxListener);
+        graduationTable.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            EmailOutbox.shared().removeListener(outboxListener);
+            if (newScene != null) {
+                EmailOutbox.shared().addListener(outboxListener);
+            }
+        });
     }
 
     /**
@@ -149,8 +187,9 @@ public class GraduatesController {
     }
 
     /**
-     * Sends a transcript request email for the selected student.
-     * This method retrieves email settings, prompts for password, and sends the email in a background task.
+     * Queues a transcript request email for the selected student.
+     * This method checks the email settings, prompts for the password the outbox sends with,
+     * and adds the email to the outbox. The student is marked as requested once it is delivered.
      *
      * @param student the student for whom the transcript request is being sent
      */
@@ -162,19 +201,13 @@ public class GraduatesController {
             return;
         }
 
-        // 2. Get sender, smtp, port from main email settings
-        Properties emailProps = new Properties();
-        try (FileInputStream fis = new FileInputStream("email_settings.properties")) {
-            emailProps.load(fis);
-        } catch (Exception e) {
+        // 2. Check the main email settings the outbox sends with
+        Properties emailProps = EmailServices.loadEmailSettings();
+        if (emailProps == null) {
             showError("Email Settings Error", "Could not load email settings.");
             return;
         }
-        String sender = emailProps.getProperty("email.sender", "");
-        String smtp = emailProps.getProperty("email.smtp", "");
-        String port = emailProps.getProperty("email.port", "");
-
-        if (sender.isEmpty() || smtp.isEmpty() || port.isEmpty()) {
+        if (SmtpSettings.fromProperties(emailProps, "") == null) {
             showError("Email Settings Error", "Email settings are incomplete.");
             return;
         }
@@ -187,36 +220,27 @@ public class GraduatesController {
             return;
         }
 
-        // 4. Compose email
+        // 4. Compose email and queue it
         String subject = "Transcript Request: " + student.getFullName();
         String body = "Dear SCAA,\n\nPlease process the transcript for:\n\n"
                 + "Student: " + student.getFullName() + "\n"
                 + "Student Number: " + student.getStudentNumber() + "\n"
                 + "SLP Course: " + student.getSlpCourse() + "\n\nThank you.";
-
-        // 5. Show progress dialog and send email in background
-        Task<Void> emailTask = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                updateMessage("Authenticating...");
-                Thread.sleep(500);
-                updateMessage("Sending email...");
-                EmailServices.sendEmail(sender, password, scaaRecipient, null, subject, body, smtp, port);
-                updateMessage("Finishing up...");
-                Thread.sleep(300);
-                return null;
+        try {
+            boolean queued = EmailOutbox.shared().enqueue(EmailOutbox.Kind.TRANSCRIPT_REQUEST,
+                    student.getStudentNumber(), "transcript:" + student.getStudentNumber(),
+                    scaaRecipient, null, subject, body);
+            if (queued) {
+                showInfo("Email Queued", "Transcript request for " + student.getFullName()
+                        + " is being sent. It will be marked as requested once it has been delivered.");
+            } else {
+                showInfo("Already Queued", "A transcript request for " + student.getFullName()
+                        + " is already waiting to be sent.");
             }
-        };
-        emailTask.setOnSucceeded(e -> {
-            updateTranscriptRequestedInDB(student.getStudentNumber(), true);
-            student.setTranscriptRequested(true);
-            loadGraduationList();
-            showInfo("Email Sent", "Transcript request sent for " + student.getFullName());
-        });
-        emailTask.setOnFailed(e -> {
-            showError("Email Error", emailTask.getException().getMessage());
-        });
-        EmailDialogUtil.showEmailProgressDialog(owner, emailTask, "Sending Email...");
+        } catch (SQLException e) {
+            logger.error("Could not queue transcript request for {}", student.getStudentNumber(), e);
+            showError("Email Error", "Could not queue the transcript request: " + e.getMessage());
+        }
     }
 
     /**
@@ -263,18 +287,12 @@ public class GraduatesController {
         }
 
         // 2. Get sender, smtp, port from main email settings
-        Properties emailProps = new Properties();
-        try (FileInputStream fis = new FileInputStream("email_settings.properties")) {
-            emailProps.load(fis);
-        } catch (Exception e) {
+        Properties emailProps = EmailServices.loadEmailSettings();
+        if (emailProps == null) {
             showError("Email Settings Error", "Could not load email settings.");
             return;
         }
-        String sender = emailProps.getProperty("email.sender", "");
-        String smtp = emailProps.getProperty("email.smtp", "");
-        String port = emailProps.getProperty("email.port", "");
-
-        if (sender.isEmpty() || smtp.isEmpty() || port.isEmpty()) {
+        if (SmtpSettings.fromProperties(emailProps, "") == null) {
             showError("Email Settings Error", "Email settings are incomplete.");
             return;
         }
@@ -286,50 +304,72 @@ public class GraduatesController {
             showError("No Password", "Email not sent: password required.");
             return;
         }
-
-        // 4. Send emails in background with progress dialog
-        Task<Void> bulkTask = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                int total = students.size();
-                int count = 0;
-                for (StudentToGraduate student : students) {
-                    count++;
-                    updateProgress(count - 1, total);
-                    updateMessage("Sending for: " + student.getFullName());
-
-                    String subject = "Transcript Request: " + student.getFullName();
-                    String body = "Dear SCAA,\n\nPlease process the transcript for:\n\n"
-                            + "Student: " + student.getFullName() + "\n"
-                            + "Student Number: " + student.getStudentNumber() + "\n"
-                            + "SLP Course: " + student.getSlpCourse() + "\n\nThank you.";
-
-                    try {
-                        EmailServices.sendEmail(sender, password, scaaRecipient, null, subject, body, smtp, port);
-                        updateTranscriptRequestedInDB(student.getStudentNumber(), true);
-                        Platform.runLater(() -> student.setTranscriptRequested(true));
-                    } catch (Exception e) {
-                        // Optionally, log or collect failed students
-                    }
-                    Thread.sleep(300); // Optional: avoid spamming server
-                }
-                updateProgress(total, total);
-                updateMessage("All emails sent.");
-                return null;
+        SmtpSettings settings = SmtpSettings.fromProperties(emailProps, password);
+
+        // 4. Send emails in background over pooled connections, marking each student as it is sent
+        Map<String, StudentToGraduate> byNumber = new HashMap<>();
+        List<BulkEmailSender.Email> emails = new ArrayList<>();
+        for (StudentToGraduate student : students) {
+            byNumber.put(student.getStudentNumber(), student);
+            emails.add(new BulkEmailSender.Email(student.getStudentNumber(), scaaRecipient, null,
+                    "Transcript Request: " + student.getFullName(),
+                    "Dear SCAA,\n\nPlease process the transcript for:\n\n"
+                    + "Student: " + student.getFullName() + "\n"
+                    + "Student Number: " + student.getStudentNumber() + "\n"
+                    + "SLP Course: " + student.getSlpCourse() + "\n\nThank you."));
+        }
+        Task<BulkEmailSender.Result> bulkTask = new BulkEmailSender(settings).sendTask(emails, delivery -> {
+            if (delivery.sent()) {
+                StudentToGraduate student = byNumber.get(delivery.email().key());
+                updateTranscriptRequestedInDB(student.getStudentNumber(), true);
+                Platform.runLater(() -> student.setTranscriptRequested(true));
             }
-        };
+        });
 
         bulkTask.setOnSucceeded(e -> {
             loadGraduationList();
-            showInfo("Bulk Email Sent", "Transcript requests sent for " + students.size() + " students.");
+            showBulkResult(bulkTask.getValue());
         });
+        bulkTask.setOnCancelled(e -> loadGraduationList());
         bulkTask.setOnFailed(e -> {
-            showError("Bulk Email Error", "An error occurred while sending bulk emails.");
+            loadGraduationList();
+            showError("Bulk Email Error", "An error occurred while sending bulk emails:\n"
+                    + bulkTask.getException().getMessage());
         });
 
         EmailDialogUtil.showEmailProgressDialog(owner, bulkTask, "Sending Bulk Emails...");
     }
 
+    /**
+     * Reports how many transcript requests were sent, listing any that failed.
+     * A rejected login clears the saved password so the next attempt asks for it again.
+     *
+     * @param result the outcome of the bulk send
+     */
+    private void showBulkResult(BulkEmailSender.Result result) {
+        List<BulkEmailSender.Delivery> failures = result.failures();
+        if (result.loginRejected()) {
+            EmailDialogUtil.clearSessionPassword();
+        }
+        if (failures.isEmpty()) {
+            showInfo("Bulk Email Sent", "Transcript requests sent for " + result.sentCount() + " students.");
+            return;
+        }
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Bulk Email Sent");
+        alert.setHeaderText(null);
+        alert.setContentText("Transcript requests sent for " + result.sentCount() + " students.\n\n"
+                + failures.size() + " request(s) could not be sent"
+                + (result.loginRejected() ? " because the email login was rejected." : "."));
+        TextArea details = new TextArea(failures.stream()
+                .map(failure -> failure.email().key() + ": " + failure.error())
+                .collect(Collectors.joining("\n")));
+        details.setEditable(false);
+        details.setWrapText(true);
+        alert.getDialogPane().setExpandableContent(details);
+        alert.showAndWait();
+    }
+
     /**
      * Displays an error alert with the specified title and message.
      * This method is used to show error messages to the user.
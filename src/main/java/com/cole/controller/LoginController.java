@@ -2,9 +2,11 @@ package com.cole.controller;
 
 import java.io.IOException;
 
+import com.cole.App;
 import com.cole.Service.ActivityService;
 import com.cole.Service.AuthService;
 import com.cole.model.User;
+import com.cole.util.BackgroundTasks;
 import com.cole.util.UserSession; // <-- Use util, not session package
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,7 +78,9 @@ public class LoginController {
 
         Task<Boolean> task = new Task<>() {
             @Override
-            protected Boolean call() {
+            protected Boolean call() throws Exception {
+                // Login only needs the schema; graduation and preloads keep running
+                App.getStartup().awaitStage(App.STAGE_SCHEMA);
                 return authService.login(username, password);
             }
         };
@@ -110,7 +114,7 @@ public class LoginController {
             logger.error("Login process failed", task.getException());
             showAlert(Alert.AlertType.ERROR, "Login Error", task.getException().getMessage());
         });
-        new Thread(task).start();
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
     }
 
     /**
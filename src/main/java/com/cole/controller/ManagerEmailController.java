@@ -1,9 +1,9 @@
 package com.cole.controller;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Properties;
+import java.util.Map;
+
+import com.cole.Service.ConfigService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,21 +19,13 @@ public class ManagerEmailController {
     private static final Logger logger = LoggerFactory.getLogger(ManagerEmailController.class);
     @FXML private TextField managerEmailField;
 
-    private static final String SETTINGS_FILE = "manager_email_settings.properties";
-
     /**
      * Initializes the ManagerEmailController.
-     * This method loads the manager email settings from a properties file.
+     * This method loads the manager email settings.
      */
     @FXML
     public void initialize() {
-        try (FileInputStream fis = new FileInputStream(SETTINGS_FILE)) {
-            Properties props = new Properties();
-            props.load(fis);
-            managerEmailField.setText(props.getProperty("manager.cc", ""));
-        } catch (IOException e) {
-            logger.error("Error loading manager email settings", e);
-        }
+        managerEmailField.setText(ConfigService.shared().getManagerCC());
     }
 
     /**
@@ -42,10 +34,9 @@ public class ManagerEmailController {
      */
     @FXML
     private void handleSave() {
-        Properties props = new Properties();
-        props.setProperty("manager.cc", managerEmailField.getText());
-        try (FileOutputStream fos = new FileOutputStream(SETTINGS_FILE)) {
-            props.store(fos, "Manager Email Settings");
+        try {
+            ConfigService.shared().save(ConfigService.ConfigFile.MANAGER_EMAIL,
+                    Map.of("manager.cc", managerEmailField.getText()));
             showInfo("Saved", "Manager cc saved successfully.");
         } catch (IOException e) {
             logger.error("Error saving manager email settings", e);
@@ -1,6 +1,7 @@
 package com.cole.controller;
 
 import com.cole.Service.ModuleService;
+import com.cole.util.BackgroundTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javafx.concurrent.Task;
@@ -63,7 +64,7 @@ public class ModuleFormController {
             logger.error("Failed to save module", task.getException());
             showAlert("Database Error", task.getException().getMessage());
         });
-        new Thread(task).start();
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
     }
 
     /**
@@ -2,6 +2,7 @@ package com.cole.controller;
 
 import com.cole.Service.ActivityService;
 import com.cole.Service.SLPService;
+import com.cole.util.BackgroundTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javafx.concurrent.Task;
@@ -58,7 +59,7 @@ public class SLPController {
             logger.error("Failed to load SLPs", task.getException());
             showError("Database Error", task.getException().getMessage());
         });
-        new Thread(task).start();
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, slpTable);
     }
 
     /**
@@ -129,7 +130,7 @@ public class SLPController {
                 logger.error("Failed to add SLP", task.getException());
                 showError("Database Error", task.getException().getMessage());
             });
-            new Thread(task).start();
+            BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
         });
     }
 
@@ -182,7 +183,7 @@ public class SLPController {
                 logger.error("Failed to update SLP", task.getException());
                 showError("Database Error", task.getException().getMessage());
             });
-            new Thread(task).start();
+            BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
         });
     }
 
@@ -205,17 +206,26 @@ public class SLPController {
 
         confirm.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                Task<Boolean> task = new Task<>() {
+                Task<Integer> task = new Task<>() {
                     @Override
-                    protected Boolean call() {
-                        return slpService.deleteSLP(selected.getId());
+                    protected Integer call() {
+                        // Students still on the SLP reference it, so the delete would be refused
+                        int enrolled = slpService.countStudentsOnSLP(selected.getId());
+                        if (enrolled > 0) {
+                            return enrolled;
+                        }
+                        return slpService.deleteSLP(selected.getId()) ? 0 : -1;
                     }
                 };
                 task.setOnSucceeded(e -> {
-                    if (task.getValue()) {
+                    int result = task.getValue();
+                    if (result == 0) {
                         showInfo("SLP Deleted", "The SLP was successfully deleted.");
                         ActivityService.logActivity(0, "Delete SLP", "Deleted SLP: " + selected.getSlpCode() + " - " + selected.getName());
                         loadSLPs();
+                    } else if (result > 0) {
+                        showError("SLP In Use", result + " student(s) are still enrolled on " + selected.getSlpCode()
+                                + ". Move them to another SLP before deleting it.");
                     } else {
                         showError("Delete Failed", "No SLP was deleted. Please try again.");
                     }
@@ -224,7 +234,7 @@ public class SLPController {
                     logger.error("Failed to delete SLP", task.getException());
                     showError("Database Error", task.getException().getMessage());
                 });
-                new Thread(task).start();
+                BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
             }
         });
     }
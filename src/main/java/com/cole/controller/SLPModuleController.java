@@ -3,6 +3,7 @@ package com.cole.controller;
 import com.cole.model.Module;
 import com.cole.model.SLP;
 import com.cole.Service.SLPModuleService;
+import com.cole.util.BackgroundTasks;
 import javafx.concurrent.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,7 +74,7 @@ public class SLPModuleController {
             logger.error("Failed to load SLPs", task.getException());
             showError("Failed to load SLPs", task.getException().getMessage());
         });
-        new Thread(task).start();
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, slpComboBox);
     }
 
     /**
@@ -96,7 +97,7 @@ public class SLPModuleController {
             logger.error("Failed to load modules for SLP {}", slpId, task.getException());
             showError("Failed to load modules", task.getException().getMessage());
         });
-        new Thread(task).start();
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, moduleTable);
     }
 
     /**
@@ -132,7 +133,7 @@ public class SLPModuleController {
             logger.error("Failed to load all modules", task.getException());
             showError("Database Error", task.getException().getMessage());
         });
-        new Thread(task).start();
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, moduleTable);
 
     }
 
@@ -161,7 +162,7 @@ public class SLPModuleController {
             logger.error("Failed to link modules to SLP {}", slp.getId(), task.getException());
             showError("Database Error", task.getException().getMessage());
         });
-        new Thread(task).start();
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
     }
 
     /**
@@ -251,7 +252,7 @@ public class SLPModuleController {
                 logger.error("Failed to remove module from SLP", task.getException());
                 showError("Database Error", task.getException().getMessage());
             });
-            new Thread(task).start();
+            BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
         }
     }
 
@@ -303,7 +304,7 @@ public class SLPModuleController {
                         logger.error("Failed to reload SLPs after module add", reloadTask.getException());
                         showError("Failed to reload SLPs", reloadTask.getException().getMessage());
                     });
-                    new Thread(reloadTask).start();
+                    BackgroundTasks.submit(BackgroundTasks.Lane.DB, reloadTask, slpComboBox);
                 } else {
                     showError("Database Error", "Failed to add new module.");
                 }
@@ -312,7 +313,7 @@ public class SLPModuleController {
                 logger.error("Failed to add new module", task.getException());
                 showError("Database Error", task.getException().getMessage());
             });
-            new Thread(task).start();
+            BackgroundTasks.submit(BackgroundTasks.Lane.DB, task);
         });
     }
 
@@ -1,29 +1,23 @@
 package com.cole.controller;
 
+import com.cole.Service.ConfigService;
+
 import javafx.fxml.FXML;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Alert;
-import java.util.Properties;
-import java.io.*;
+import java.io.IOException;
+import java.util.Map;
 
 public class ScaaEmailController {
     @FXML private TextField scaaRecipientField;
 
-    private static final String SETTINGS_FILE = "transcript_email_settings.properties";
-
     /**
      * Initializes the ScaaEmailController.
-     * This method loads the SCAA recipient email from a properties file.
+     * This method loads the SCAA recipient email from the transcript email settings.
      */
     @FXML
     public void initialize() {
-        try (FileInputStream fis = new FileInputStream(SETTINGS_FILE)) {
-            Properties props = new Properties();
-            props.load(fis);
-            scaaRecipientField.setText(props.getProperty("scaa.recipient", ""));
-        } catch (IOException e) {
-            // File may not exist yet; that's OK
-        }
+        scaaRecipientField.setText(ConfigService.shared().getScaaRecipient());
     }
 
     /**
@@ -32,10 +26,9 @@ public class ScaaEmailController {
      */
     @FXML
     private void handleSave() {
-        Properties props = new Properties();
-        props.setProperty("scaa.recipient", scaaRecipientField.getText());
-        try (FileOutputStream fos = new FileOutputStream(SETTINGS_FILE)) {
-            props.store(fos, "Transcript Email Settings");
+        try {
+            ConfigService.shared().save(ConfigService.ConfigFile.TRANSCRIPT_EMAIL,
+                    Map.of("scaa.recipient", scaaRecipientField.getText()));
             showInfo("Saved", "Transcript recipient saved successfully.");
         } catch (IOException e) {
             showError("Save Error", e.getMessage());
@@ -79,12 +72,6 @@ public class ScaaEmailController {
      * @return true if the email is valid, false otherwise
      */
     public static String getScaaRecipient() {
-        Properties props = new Properties();
-        try (FileInputStream fis = new FileInputStream(SETTINGS_FILE)) {
-            props.load(fis);
-            return props.getProperty("scaa.recipient", "");
-        } catch (IOException e) {
-            return "";
-        }
+        return ConfigService.shared().getScaaRecipient();
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.cole.model.SLP;
 import com.cole.model.Module;
 import com.cole.Service.ActivityService;
 import com.cole.Service.SLPModuleService;
+import com.cole.Service.SLPService;
 import com.cole.util.DBUtil;
 import com.cole.util.UserSession;
 
@@ -13,7 +14,11 @@ import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
-import java.sql.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
@@ -61,18 +66,8 @@ public class StudentRegistrationController {
      * This method retrieves all SLPs and adds them to the ComboBox for selection.
      */
     private void loadSLPs() {
-        slps.clear();
-        try (Connection conn = DBUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT slp_id, slp_code, name FROM slps")) {
-            while (rs.next()) {
-                SLP slp = new SLP(
-                        rs.getInt("slp_id"),
-                        rs.getString("slp_code"),
-                        rs.getString("name")
-                );
-                slps.add(slp);
-            }
+        try {
+            slps.setAll(new SLPService().loadAllSLPs());
         } catch (SQLException e) {
             logger.error("Failed to load SLPs", e);
             showError("Failed to load SLPs", e.getMessage());
@@ -1,27 +1,31 @@
 package com.cole.controller;
 
-import java.sql.Statement;
-
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
+import com.cole.Service.BulkReportService;
+import com.cole.Service.StudentDirectoryService;
 import com.cole.Service.StudentReportsService;
 import com.cole.model.Student;
-import com.cole.model.StudentReportData;
-import com.cole.util.DBUtil;
+import com.cole.util.BackgroundTasks;
+import com.cole.util.BulkReportDialogUtil;
+import com.cole.util.PagedList;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.animation.PauseTransition;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.collections.transformation.FilteredList;
+import javafx.util.Callback;
+import javafx.util.Duration;
 
 import javafx.scene.input.MouseButton;
 
@@ -64,49 +68,66 @@ public class StudentViewController {
 
     @FXML private TableColumn<Student, String> branchColumn;
 
-    private final ObservableList<Student> studentList = FXCollections.observableArrayList();
-    
-    private FilteredList<Student> filteredStudents;
-
     @FXML
     private TextField searchField; // fx:id must match your FXML
 
+    /** Rows fetched per page. */
+    private static final int PAGE_SIZE = 200;
+    /** Pages kept in memory; older pages are reloaded when scrolled back into view. */
+    private static final int MAX_CACHED_PAGES = 25;
+
+    private final StudentDirectoryService directoryService = new StudentDirectoryService();
+    private final Map<TableColumn<Student, ?>, StudentDirectoryService.SortColumn> sortColumns = new HashMap<>();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(250));
+    /** Query currently shown in the table. */
+    private StudentDirectoryService.Query currentQuery;
+    /** Incremented on every reload so results of superseded loads are dropped. */
+    private int loadGeneration;
+    /** Count query of the latest reload; cancelled if a newer reload starts first. */
+    private Task<Integer> countTask;
+
     /**
      * Initializes the StudentViewController.
      * This method sets up the TableView columns and loads students from the database.
      */
     @FXML
     private void initialize() {
-        numberColumn.setCellValueFactory(cellData -> cellData.getValue().studentNumberProperty());
-        nameColumn.setCellValueFactory(cellData -> new javafx.beans.property.SimpleStringProperty(
-            cellData.getValue().getFirstName() + " " + cellData.getValue().getSecondName() + " " + cellData.getValue().getLastName()));
-        idNumberColumn.setCellValueFactory(cellData -> cellData.getValue().idNumberProperty());
-        branchColumn.setCellValueFactory(cellData -> cellData.getValue().branchProperty());
-        emailColumn.setCellValueFactory(cellData -> cellData.getValue().emailProperty());
-        phoneColumn.setCellValueFactory(cellData -> cellData.getValue().phoneNumberProperty());
-        slpColumn.setCellValueFactory(cellData -> cellData.getValue().slpProperty());
-        statusColumn.setCellValueFactory(cellData -> cellData.getValue().statusProperty());
-
-        filteredStudents = new FilteredList<>(studentList, p -> true);
-        studentTable.setItems(filteredStudents);
-        loadStudents();
+        // Rows of pages that are not loaded yet are null until their page arrives
+        numberColumn.setCellValueFactory(loadedValue(Student::studentNumberProperty));
+        nameColumn.setCellValueFactory(loadedValue(student -> new javafx.beans.property.SimpleStringProperty(
+            student.getFirstName() + " " + student.getSecondName() + " " + student.getLastName())));
+        idNumberColumn.setCellValueFactory(loadedValue(Student::idNumberProperty));
+        branchColumn.setCellValueFactory(loadedValue(Student::branchProperty));
+        emailColumn.setCellValueFactory(loadedValue(Student::emailProperty));
+        phoneColumn.setCellValueFactory(loadedValue(Student::phoneNumberProperty));
+        slpColumn.setCellValueFactory(loadedValue(Student::slpProperty));
+        statusColumn.setCellValueFactory(loadedValue(Student::statusProperty));
+
+        sortColumns.put(numberColumn, StudentDirectoryService.SortColumn.STUDENT_NUMBER);
+        sortColumns.put(nameColumn, StudentDirectoryService.SortColumn.NAME);
+        sortColumns.put(idNumberColumn, StudentDirectoryService.SortColumn.ID_NUMBER);
+        sortColumns.put(branchColumn, StudentDirectoryService.SortColumn.BRANCH);
+        sortColumns.put(emailColumn, StudentDirectoryService.SortColumn.EMAIL);
+        sortColumns.put(phoneColumn, StudentDirectoryService.SortColumn.PHONE);
+        sortColumns.put(slpColumn, StudentDirectoryService.SortColumn.SLP);
+        sortColumns.put(statusColumn, StudentDirectoryService.SortColumn.STATUS);
+
+        // Sorting is done by the database; reload instead of sorting the items in memory
+        studentTable.setSortPolicy(table -> {
+            StudentDirectoryService.Query query = buildQuery();
+            if (!sameQuery(query, currentQuery)) {
+                loadStudents();
+            }
+            return true;
+        });
+        studentTable.setPlaceholder(new Label("Loading students..."));
+        if (currentQuery == null) {
+            loadStudents();
+        }
 
         if (searchField != null) {
-            searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-                filteredStudents.setPredicate(student -> {
-                    if (newValue == null || newValue.isEmpty()) {
-                        return true;
-                    }
-                    String lowerCaseFilter = newValue.toLowerCase();
-                    // Filter by student number or SLP (case-insensitive)
-                    if (student.getStudentNumber().toLowerCase().contains(lowerCaseFilter)) {
-                        return true;
-                    } else if (student.getSlp().toLowerCase().contains(lowerCaseFilter)) {
-                        return true;
-                    }
-                    return false;
-                });
-            });
+            searchDebounce.setOnFinished(e -> loadStudents());
+            searchField.textProperty().addListener((observable, oldValue, newValue) -> searchDebounce.playFromStart());
         }
 
         // Add double-click event to open virtual record card
@@ -115,7 +136,8 @@ public class StudentViewController {
 
             // Double-click to open virtual record card
             row.setOnMouseClicked(event -> {
-                if (!row.isEmpty() && event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+                if (!row.isEmpty() && row.getItem() != null
+                        && event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
                     Student clickedStudent = row.getItem();
                     openVirtualRecordCard(clickedStudent);
                 }
@@ -130,13 +152,26 @@ public class StudentViewController {
                     generateStudentReport(selectedStudent.getStudentNumber());
                 }
             });
-            contextMenu.getItems().add(generateReportItem);
+            MenuItem bulkReportItem = new MenuItem("Generate Reports for All Listed Students");
+            bulkReportItem.setOnAction(event -> {
+                String filter = currentQuery == null ? null : currentQuery.getFilter();
+                BulkReportDialogUtil.run((Stage) studentTable.getScene().getWindow(),
+                    BulkReportService.Selection.forFilter(filter), "student_reports");
+            });
+            generateReportItem.disableProperty().bind(row.itemProperty().isNull());
+            contextMenu.getItems().addAll(generateReportItem, bulkReportItem);
             row.setContextMenu(contextMenu);
 
             return row;
         });
     }
 
+    /** Cell value factory that shows an empty cell while the row is still loading. */
+    private static Callback<TableColumn.CellDataFeatures<Student, String>, ObservableValue<String>> loadedValue(
+            Function<Student, ObservableValue<String>> value) {
+        return cellData -> cellData.getValue() == null ? null : value.apply(cellData.getValue());
+    }
+
     /**
      * Generates a report for the selected student.
      * @param studentNumber The student number of the selected student.
@@ -146,8 +181,8 @@ public class StudentViewController {
         try{
             // Get the report data using your service
             StudentReportsService reportsService = new StudentReportsService();
-            StudentReportData reportData = reportsService.getStudentReportData(studentNumber);
-            if(reportData == null){
+            StudentReportsService.ReportVersion reportVersion = reportsService.getReportVersion(studentNumber);
+            if(reportVersion == null){
                 showError("Report Generation Error", "No data found for student number: " + studentNumber);
                 return;
             }
@@ -162,7 +197,7 @@ public class StudentViewController {
             java.io.File file = fileChooser.showSaveDialog(studentTable.getScene().getWindow());
             if(file != null){
                 // Call the service to generate the report
-                reportsService.exportStudentSummaryPdf(reportData, file);
+                reportsService.exportStudentSummaryPdf(reportVersion, file);
                 javafx.application.Platform.runLater(() -> {
                     Alert alert = new Alert(Alert.AlertType.INFORMATION);
                     alert.setTitle("Report Generated");
@@ -202,42 +237,74 @@ public class StudentViewController {
 
 
     /**
-     * Loads students from the database and populates the studentList.
+     * Reloads the table for the current search text and sort order, cancelling any
+     * loads still pending for the previous one.
+     * <p>
+     * Only the matching row count is queried up front; rows are fetched a page at a
+     * time as they scroll into view. Searches without a sort column are shown best
+     * match first.
      */
     private void loadStudents() {
-        studentList.clear();
-
-        String sql = "SELECT s.student_id, s.student_number, s.first_name, s.second_name, s.last_name, " +
-                     "s.id_number, s.email, s.phone, s.branch, sl.name AS slp_name, s.status, s.enrollment_date " +
-                     "FROM students s " +
-                     "LEFT JOIN slps sl ON s.current_slp_id = sl.slp_id " +
-                     "ORDER BY s.enrollment_date DESC";
-
-        try (Connection conn = DBUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Student student = new Student(
-                    rs.getInt("student_id"),
-                    rs.getString("student_number"),
-                    rs.getString("first_name"),
-                    rs.getString("second_name"),
-                    rs.getString("last_name"),
-                    rs.getString("id_number"),
-                    rs.getString("email"),
-                    rs.getString("phone"),
-                    rs.getString("branch"),
-                    rs.getString("slp_name"),
-                    rs.getString("status"),
-                    rs.getString("enrollment_date")
-                );
-                studentList.add(student);
+        StudentDirectoryService.Query query = buildQuery();
+        currentQuery = query;
+        int generation = ++loadGeneration;
+        if (countTask != null) {
+            countTask.cancel();
+        }
+        if (studentTable.getItems() instanceof PagedList<?> previous) {
+            previous.cancelPendingLoads();
+        }
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                return directoryService.countStudents(query);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (generation != loadGeneration) {
+                return;
+            }
+            studentTable.setPlaceholder(new Label(query.getFilter() == null ? "No students found." : "No matching students."));
+            studentTable.setItems(new PagedList<>(task.getValue(), PAGE_SIZE, MAX_CACHED_PAGES,
+                    new PagedList.PageSource<>() {
+                        @Override
+                        public java.util.List<Student> fetchAfter(Student after, int limit) throws Exception {
+                            return directoryService.fetchPage(query, after, limit);
+                        }
+
+                        @Override
+                        public Student fetchAt(int position) throws Exception {
+                            return directoryService.fetchAt(query, position);
+                        }
+                    }, studentTable));
+        });
+        task.setOnFailed(e -> {
+            logger.error("Error loading students", task.getException());
+            showError("Error loading students", task.getException().getMessage());
+        });
+        countTask = task;
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, studentTable);
+    }
+
+    /**
+     * Builds the directory query from the search field and the table's sort order.
+     * Without a sort column the original order, newest enrolment first, is used.
+     */
+    private StudentDirectoryService.Query buildQuery() {
+        String filter = searchField == null ? null : searchField.getText();
+        for (TableColumn<Student, ?> column : studentTable.getSortOrder()) {
+            StudentDirectoryService.SortColumn sortColumn = sortColumns.get(column);
+            if (sortColumn != null) {
+                return new StudentDirectoryService.Query(sortColumn,
+                        column.getSortType() == TableColumn.SortType.ASCENDING, filter);
             }
-            studentTable.setItems(studentList);
-        } catch (SQLException e) {
-            logger.error("Error loading students", e);
-            showError("Error loading students", e.getMessage());
         }
+        return StudentDirectoryService.Query.defaultOrder(filter);
+    }
+
+    private static boolean sameQuery(StudentDirectoryService.Query a, StudentDirectoryService.Query b) {
+        return b != null && a.getSortColumn() == b.getSortColumn() && a.isAscending() == b.isAscending()
+                && java.util.Objects.equals(a.getFilter(), b.getFilter());
     }
 
     /**
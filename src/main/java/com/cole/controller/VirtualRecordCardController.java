@@ -9,7 +9,7 @@ import com.cole.Service.GraduationService;
 import com.cole.Service.StudentReportsService;
 import com.cole.model.Student;
 import com.cole.model.StudentModule;
-import com.cole.model.StudentReportData;
+import com.cole.util.BackgroundTasks;
 import com.cole.util.DBUtil;
 import com.cole.model.SLP;
 import com.cole.Service.SLPService;
@@ -18,6 +18,7 @@ import com.cole.Service.ActivityService;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
@@ -29,11 +30,14 @@ import javafx.scene.control.TableView;
 import javafx.scene.control.cell.CheckBoxTableCell;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.TextField;
 import javafx.scene.control.DatePicker;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -360,15 +364,15 @@ private void handleStudentReport() {
 
     // Gather all data for the report using your service
     StudentReportsService reportsService = new StudentReportsService();
-    StudentReportData reportData = reportsService.getStudentReportData(selectedStudent.getStudentNumber());
+    StudentReportsService.ReportVersion reportVersion = reportsService.getReportVersion(selectedStudent.getStudentNumber());
 
-    if (reportData == null) {
+    if (reportVersion == null) {
         showError("Export Failed", "Could not gather student data for export.");
         return;
     }
 
     try {
-        reportsService.exportStudentSummaryPdf(reportData, file);
+        reportsService.exportStudentSummaryPdf(reportVersion, file);
     } catch (Exception e) {
         showError("Export Failed", e.getMessage());
     }
@@ -600,7 +604,7 @@ private void handleStudentReport() {
 
             // Always check graduation flags after editing student
             GraduationService graduationService = new GraduationService();
-            graduationService.checkAndUpdateGraduationFlags();
+            graduationService.reevaluateStudent(selectedStudent.getId());
 
             // Refresh parent view if callback is set
             if (refreshCallback != null) {
@@ -777,44 +781,106 @@ private void handleStudentReport() {
     private final ObservableList<Note> notes = FXCollections.observableArrayList();
     private final ObservableList<FollowUp> followUps = FXCollections.observableArrayList();
 
+    /** System.nanoTime() when the current student was set, for the open-to-interactive log. */
+    private long openStartedNanos;
+    /** Sections of the current open still loading; the card is interactive when this reaches zero. */
+    private int pendingSections;
+
     /**
      * Sets the selected student and loads their details and modules.
+     * <p>
+     * Details come from the student object and are shown immediately. Modules (after
+     * syncing them with the SLP), notes and follow-ups are loaded in parallel on the
+     * database lane, and each section is filled in as soon as its query returns.
      * @param student The student to display.
      */
     public void setStudent(Student student) {
         this.selectedStudent = student;
-        syncStudentModulesWithSLP();
+        openStartedNanos = System.nanoTime();
+        pendingSections = 3;
         loadStudentDetails();
-        loadStudentModules();
-        loadNotes();
-        loadFollowUps();
+        loadStudentModules(true, this::sectionLoaded);
+        loadNotes(this::sectionLoaded);
+        loadFollowUps(this::sectionLoaded);
+    }
+
+    /** Counts down the sections of the current open and logs when the last one is shown. */
+    private void sectionLoaded() {
+        if (pendingSections > 0 && --pendingSections == 0 && selectedStudent != null) {
+            logger.info("Record card for student_id {} interactive in {} ms",
+                selectedStudent.getId(), (System.nanoTime() - openStartedNanos) / 1_000_000);
+        }
     }
+
     /**
-     * Loads the follow-ups for the selected student from the database.
-     * Populates the followUps ObservableList.
+     * Runs a section load on the database lane, bound to {@code owner} so it is cancelled
+     * if the card is closed first. {@code render} runs on the FX thread only if the card
+     * still shows the same student; {@code done} runs once the load has finished either way.
      */
+    private <T> void loadSection(String section, Callable<T> query, Node owner,
+                                 java.util.function.Consumer<T> render, Runnable done) {
+        int studentId = selectedStudent.getId();
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return query.call();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (selectedStudent != null && selectedStudent.getId() == studentId) {
+                render.accept(task.getValue());
+            }
+            done.run();
+        });
+        task.setOnFailed(e -> {
+            logger.error("Error loading {}", section, task.getException());
+            done.run();
+        });
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, owner);
+    }
+
     private void loadFollowUps() {
-        followUps.clear();
-        if (selectedStudent == null) return;
+        loadFollowUps(() -> {});
+    }
+
+    /**
+     * Loads the follow-ups for the selected student in the background.
+     * Replaces the contents of the followUps ObservableList when they arrive.
+     */
+    private void loadFollowUps(Runnable done) {
+        if (selectedStudent == null) {
+            followUps.clear();
+            done.run();
+            return;
+        }
+        int studentId = selectedStudent.getId();
+        loadSection("follow-ups", () -> fetchFollowUps(studentId), followUpTable, loaded -> {
+            // Add listener to update DB when completed checkbox is clicked
+            for (FollowUp fu : loaded) {
+                fu.completedProperty().addListener((obs, oldVal, newVal) -> updateFollowUpInDB(fu));
+            }
+            followUps.setAll(loaded);
+        }, done);
+    }
+
+    private static List<FollowUp> fetchFollowUps(int studentId) throws SQLException {
         String sql = "SELECT followup_id, due_date, description, completed FROM follow_ups WHERE student_id = ? ORDER BY due_date DESC";
+        List<FollowUp> loaded = new ArrayList<>();
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, selectedStudent.getId());
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                FollowUp fu = new FollowUp(
-                    rs.getInt("followup_id"),
-                    rs.getString("due_date"),
-                    rs.getString("description"),
-                    rs.getInt("completed") == 1
-                );
-                // Add listener to update DB when completed checkbox is clicked
-                fu.completedProperty().addListener((obs, oldVal, newVal) -> updateFollowUpInDB(fu));
-                followUps.add(fu);
+            stmt.setInt(1, studentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    loaded.add(new FollowUp(
+                        rs.getInt("followup_id"),
+                        rs.getString("due_date"),
+                        rs.getString("description"),
+                        rs.getInt("completed") == 1
+                    ));
+                }
             }
-        } catch (SQLException e) {
-            logger.error("Error loading follow-ups", e);
         }
+        return loaded;
     }
 
 
@@ -824,22 +890,34 @@ private void handleStudentReport() {
      */
     // (All duplicate methods removed. Only one implementation of each method remains.)
 
-    // Load notes from DB
     private void loadNotes() {
-        notes.clear();
-        if (selectedStudent == null) return;
+        loadNotes(() -> {});
+    }
+
+    // Load notes from DB in the background
+    private void loadNotes(Runnable done) {
+        if (selectedStudent == null) {
+            notes.clear();
+            done.run();
+            return;
+        }
+        int studentId = selectedStudent.getId();
+        loadSection("notes", () -> fetchNotes(studentId), noteList, notes::setAll, done);
+    }
+
+    private static List<Note> fetchNotes(int studentId) throws SQLException {
         String sql = "SELECT note_id, note_text, date_added FROM notes WHERE student_id = ? ORDER BY date_added DESC";
+        List<Note> loaded = new ArrayList<>();
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, selectedStudent.getId());
+            stmt.setInt(1, studentId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    notes.add(new Note(rs.getInt("note_id"), rs.getString("note_text"), rs.getString("date_added")));
+                    loaded.add(new Note(rs.getInt("note_id"), rs.getString("note_text"), rs.getString("date_added")));
                 }
             }
-        } catch (SQLException e) {
-            logger.error("Error loading notes", e);
         }
+        return loaded;
     }
 
     /**
@@ -946,50 +1024,80 @@ private void handleStudentReport() {
         if (studentBranchField != null) studentBranchField.setText(selectedStudent.getBranch());
     }
 
+    private void loadStudentModules() {
+        loadStudentModules(false, () -> {});
+    }
+
     /**
-     * Loads the modules for the selected student from the database.
-     * Populates the studentModules ObservableList.
+     * Loads the modules for the selected student in the background, optionally syncing
+     * them with the student's SLP first. Replaces the contents of the studentModules
+     * ObservableList when they arrive.
+     * @param syncWithSlp Whether to run {@link #syncStudentModulesWithSLP(int)} before loading.
+     * @param done Called on the FX thread once the load has finished.
      */
-    private void loadStudentModules() {
-        studentModules.clear();
-        if (selectedStudent == null) return;
-        logger.info("Loading modules for student_id: {}", selectedStudent.getId());
+    private void loadStudentModules(boolean syncWithSlp, Runnable done) {
+        if (selectedStudent == null) {
+            studentModules.clear();
+            done.run();
+            return;
+        }
+        int studentId = selectedStudent.getId();
+        loadSection("student modules", () -> {
+            if (syncWithSlp) {
+                try {
+                    syncStudentModulesWithSLP(studentId);
+                } catch (SQLException e) {
+                    // Still show the modules the student already has
+                    logger.error("Error syncing student modules with SLP", e);
+                }
+            }
+            return fetchStudentModules(studentId);
+        }, moduleTable, loaded -> {
+            studentModules.setAll(loaded);
+            logger.info("Loaded {} modules for student_id {}", loaded.size(), studentId);
+            if (moduleTable != null) {
+                // Force refresh to ensure custom cell rendering (color coding) is applied
+                moduleTable.refresh();
+            }
+            if (loaded.isEmpty()) {
+                showError("No Modules Found", "This student is not registered for any modules.");
+            }
+        }, done);
+    }
+
+    private static List<StudentModule> fetchStudentModules(int studentId) throws SQLException {
         String sql = "SELECT sm.*, m.pass_rate FROM student_modules sm JOIN modules m ON sm.module_id = m.module_id WHERE sm.student_id = ? AND (sm.status IS NULL OR sm.status != 'replaced')";
+        List<StudentModule> loaded = new ArrayList<>();
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, selectedStudent.getId());
-            ResultSet rs = stmt.executeQuery();
-            int count = 0;
-            while (rs.next()) {
-                StudentModule sm = new StudentModule(
-                    rs.getInt("student_id"),
-                    rs.getInt("module_id"),
-                    rs.getString("module_code"),
-                    rs.getString("module_name"),
-                    rs.getObject("formative") != null ? rs.getDouble("formative") : 0.0,
-                    rs.getObject("summative") != null ? rs.getDouble("summative") : 0.0,
-                    rs.getObject("supplementary") != null ? rs.getDouble("supplementary") : 0.0,
-                    rs.getBoolean("received_book"),
-                    rs.getString("signature_path"),
-                    rs.getString("date_issued")
-                );
-                // Set passRate if setter exists
-                try {
-                    int passRate = rs.getObject("pass_rate") != null ? rs.getInt("pass_rate") : 50;
-                    java.lang.reflect.Method setPassRate = sm.getClass().getMethod("setPassRate", int.class);
-                    setPassRate.invoke(sm, passRate);
-                } catch (Exception ignore) {}
-                studentModules.add(sm);
-                count++;
+            stmt.setInt(1, studentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    StudentModule sm = new StudentModule(
+                        rs.getInt("student_id"),
+                        rs.getInt("module_id"),
+                        rs.getString("module_code"),
+                        rs.getString("module_name"),
+                        rs.getObject("formative") != null ? rs.getDouble("formative") : 0.0,
+                        rs.getObject("summative") != null ? rs.getDouble("summative") : 0.0,
+                        rs.getObject("supplementary") != null ? rs.getDouble("supplementary") : 0.0,
+                        rs.getBoolean("received_book"),
+                        rs.getString("signature_path"),
+                        rs.getString("date_issued")
+                    );
+                    sm.setPassRate(rs.getObject("pass_rate") != null ? rs.getInt("pass_rate") : 50);
+                    loaded.add(sm);
+                }
             }
-            logger.info("Loaded {} modules for student_id {}", count, selectedStudent.getId());
-        } catch (SQLException e) {
-            logger.error("Error loading student modules", e);
-        }
-        if (studentModules.isEmpty()) {
-            showError("No Modules Found", "This student is not registered for any modules.");
         }
+        return loaded;
+    }
 
+    /**
+     * Binds the module table, notes list and follow-up table to their lists and sets up
+     * their columns. Called once from {@link #initialize()}.
+     */
+    private void setupSectionViews() {
         // --- TableView Column Setup ---
         if (moduleCodeColumn != null) {
             moduleCodeColumn.setCellValueFactory(new PropertyValueFactory<>("moduleCode"));
@@ -1016,10 +1124,6 @@ private void handleStudentReport() {
         }
         if (moduleTable != null) {
             moduleTable.setItems(studentModules);
-            System.out.println("[VirtualRecordCardController] moduleTable items set, row count: " + studentModules.size());
-            // Force refresh to ensure custom cell rendering (color coding) is applied
-            moduleTable.refresh();
-            System.out.println("[VirtualRecordCardController] moduleTable refreshed, row count: " + moduleTable.getItems().size());
         }
 
         // Notes ListView setup
@@ -1147,17 +1251,15 @@ private void handleStudentReport() {
             showError("Error saving exam result", e.getMessage());
         }
 
-        // Check graduation flags after updating marks
-        GraduationService graduationService = new GraduationService();
-        graduationService.checkAndUpdateGraduationFlags();
-
-        // Reload student details to reflect updated status
-        reloadStudentStatus();
-
-        // Refresh parent view if callback is set
-        if (refreshCallback != null) {
-            refreshCallback.run();
-        }
+        // Re-check this student's graduation flag in the background, then reflect the
+        // updated status once the (debounced) evaluation has run
+        GraduationService.queueReevaluation(sm.getStudentId())
+            .thenRun(() -> javafx.application.Platform.runLater(() -> {
+                reloadStudentStatus();
+                if (refreshCallback != null) {
+                    refreshCallback.run();
+                }
+            }));
     }
 
     @FXML
@@ -1290,6 +1392,7 @@ private void handleStudentReport() {
                 }
             });
         }
+        setupSectionViews();
     }
 
     private Runnable refreshCallback;
@@ -1318,92 +1421,40 @@ private void handleStudentReport() {
     }
 
     /**
- * Ensures the student's modules exactly match the modules currently linked to their SLP.
- * Removes modules not in the SLP and adds any new ones from the SLP.
- */
-    private void syncStudentModulesWithSLP() {
-        if (selectedStudent == null) return;
-        int studentId = selectedStudent.getId();
-        int slpId = -1;
-
-        // Get the student's current SLP ID
-        String getSlpIdSql = "SELECT current_slp_id FROM students WHERE student_id = ?";
-        try (Connection conn = DBUtil.getConnection();
-            PreparedStatement getSlpStmt = conn.prepareStatement(getSlpIdSql)) {
-            getSlpStmt.setInt(1, studentId);
-            try (ResultSet rs = getSlpStmt.executeQuery()) {
-                if (rs.next()) {
-                    slpId = rs.getInt("current_slp_id");
-                }
-            }
-            if (slpId == -1) return;
-
-            // 1. Get all module IDs currently linked to the SLP
-            List<Integer> slpModuleIds = new java.util.ArrayList<>();
-            String slpModulesSql = "SELECT module_id FROM slp_modules WHERE slp_id = ?";
-            try (PreparedStatement slpModulesStmt = conn.prepareStatement(slpModulesSql)) {
-                slpModulesStmt.setInt(1, slpId);
-                try (ResultSet rs = slpModulesStmt.executeQuery()) {
-                    while (rs.next()) {
-                        slpModuleIds.add(rs.getInt("module_id"));
-                    }
-                }
-            }
-
-            // 2. Get all module IDs currently assigned to the student (excluding replaced)
-            List<Integer> studentModuleIds = new java.util.ArrayList<>();
-            String studentModulesSql = "SELECT module_id FROM student_modules WHERE student_id = ? AND (status IS NULL OR status != 'replaced')";
-            try (PreparedStatement studentModulesStmt = conn.prepareStatement(studentModulesSql)) {
-                studentModulesStmt.setInt(1, studentId);
-                try (ResultSet rs = studentModulesStmt.executeQuery()) {
-                    while (rs.next()) {
-                        studentModuleIds.add(rs.getInt("module_id"));
-                    }
-                }
-            }
-
-            // 3. Remove modules from student that are no longer in the SLP
-            for (Integer moduleId : studentModuleIds) {
-                if (!slpModuleIds.contains(moduleId)) {
-                    String deleteSql = "DELETE FROM student_modules WHERE student_id = ? AND module_id = ?";
-                    try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-                        deleteStmt.setInt(1, studentId);
-                        deleteStmt.setInt(2, moduleId);
-                        deleteStmt.executeUpdate();
-                    }
-                }
-            }
-
-            // 4. Add modules to student that are in the SLP but not yet assigned
-            String getModuleDetailsSql = "SELECT module_code, name FROM modules WHERE module_id = ?";
-            for (Integer moduleId : slpModuleIds) {
-                if (!studentModuleIds.contains(moduleId)) {
-                    // Get module details
-                    String moduleCode = null, moduleName = null;
-                    try (PreparedStatement getModuleStmt = conn.prepareStatement(getModuleDetailsSql)) {
-                        getModuleStmt.setInt(1, moduleId);
-                        try (ResultSet rs = getModuleStmt.executeQuery()) {
-                            if (rs.next()) {
-                                moduleCode = rs.getString("module_code");
-                                moduleName = rs.getString("name");
-                            }
-                        }
-                    }
-                    if (moduleCode != null && moduleName != null) {
-                        String insertSql = "INSERT INTO student_modules (student_id, module_id, module_code, module_name, formative, summative, supplementary, received_book) VALUES (?, ?, ?, ?, 0, 0, 0, 0)";
-                        try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-                            insertStmt.setInt(1, studentId);
-                            insertStmt.setInt(2, moduleId);
-                            insertStmt.setString(3, moduleCode);
-                            insertStmt.setString(4, moduleName);
-                            insertStmt.executeUpdate();
-                        }
-                    }
-                }
+     * Ensures the student's modules exactly match the modules currently linked to their SLP.
+     * Removes modules not in the SLP and adds any new ones from the SLP, as two set-based
+     * statements in one transaction. Runs on a background thread.
+     * @param studentId The student ID.
+     */
+    private static void syncStudentModulesWithSLP(int studentId) throws SQLException {
+        String slpModules = "SELECT module_id FROM slp_modules WHERE slp_id = (SELECT current_slp_id FROM students WHERE student_id = ?)";
+        String deleteSql = "DELETE FROM student_modules WHERE student_id = ? " +
+            "AND module_id IN (SELECT module_id FROM student_modules WHERE student_id = ? AND (status IS NULL OR status != 'replaced')) " +
+            "AND module_id NOT IN (" + slpModules + ")";
+        String insertSql = "INSERT INTO student_modules (student_id, module_id, module_code, module_name, formative, summative, supplementary, received_book) " +
+            "SELECT ?, m.module_id, m.module_code, m.name, 0, 0, 0, 0 FROM modules m " +
+            "WHERE m.module_id IN (" + slpModules + ") AND m.module_code IS NOT NULL AND m.name IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM student_modules sm WHERE sm.student_id = ? AND sm.module_id = m.module_id " +
+            "AND (sm.status IS NULL OR sm.status != 'replaced'))";
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql);
+                 PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
+                deleteStmt.setInt(1, studentId);
+                deleteStmt.setInt(2, studentId);
+                deleteStmt.setInt(3, studentId);
+                deleteStmt.executeUpdate();
+                insertStmt.setInt(1, studentId);
+                insertStmt.setInt(2, studentId);
+                insertStmt.setInt(3, studentId);
+                insertStmt.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-        } catch (SQLException e) {
-            logger.error("Error syncing student modules with SLP", e);
-            showError("Sync Error", "Could not sync modules with SLP: " + e.getMessage());
         }
     }
 
@@ -0,0 +1,34 @@
+package com.cole.model;
+
+import java.time.LocalDate;
+
+/** Number of activities of one type a user had on one day. */
+public class ActivityCount {
+    private final LocalDate day;
+    private final int userId;
+    private final String activityType;
+    private final int count;
+
+    public ActivityCount(LocalDate day, int userId, String activityType, int count) {
+        this.day = day;
+        this.userId = userId;
+        this.activityType = activityType;
+        this.count = count;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getActivityType() {
+        return activityType;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -8,6 +8,8 @@ public class RecentActivity {
     private String activityType;
     private String description;
     private LocalDateTime activityTime;
+    private String userDisplayName;
+    private String userRole;
 
     public RecentActivity(int id, int userId, String activityType, String description, LocalDateTime activityTime) {
         this.id = id;
@@ -57,13 +59,19 @@ public class RecentActivity {
         this.activityTime = activityTime;
     }
 
-    public void setUserDisplayName(String string) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'setUserDisplayName'");
+    public String getUserDisplayName() {
+        return userDisplayName;
     }
 
-    public void setUserRole(String string) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'setUserRole'");
+    public void setUserDisplayName(String userDisplayName) {
+        this.userDisplayName = userDisplayName;
+    }
+
+    public String getUserRole() {
+        return userRole;
+    }
+
+    public void setUserRole(String userRole) {
+        this.userRole = userRole;
     }
 }
@@ -13,6 +13,7 @@ public class ToDoTask {
     private String recurring; // e.g., "DAILY", "WEEKLY", "MONTHLY", or null
     private boolean active = true;
     private Integer parentId; // ID of the parent task if this is a subtask
+    private LocalDate occurrenceDate; // Date of the recurrence this occurrence stands for
 
     public ToDoTask(int id, int userId, String taskText, 
             LocalDate dueDate, boolean completed, String note, String priority, String recurring) {
@@ -104,4 +105,29 @@ public class ToDoTask {
     public Integer getParentId() {
         return parentId;
     }
+
+    public LocalDate getOccurrenceDate() {
+        return occurrenceDate;
+    }
+
+    public void setOccurrenceDate(LocalDate occurrenceDate) {
+        this.occurrenceDate = occurrenceDate;
+    }
+
+    /** @return a copy of this task */
+    public ToDoTask copy() {
+        ToDoTask copy = new ToDoTask(id, userId, taskText, dueDate, completed, note, priority, recurring);
+        copy.setActive(active);
+        copy.setParentId(parentId);
+        copy.setOccurrenceDate(occurrenceDate);
+        return copy;
+    }
+
+    /**
+     * @return true if this occurrence of a recurring task is not stored yet; it is
+     *         stored when first completed or edited
+     */
+    public boolean isVirtual() {
+        return id == 0 && parentId != null;
+    }
 }
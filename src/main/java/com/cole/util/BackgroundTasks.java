@@ -0,0 +1,275 @@
+package com.cole.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.beans.value.ChangeListener;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared executor for JavaFX {@link Task}s started from controllers.
+ * <p>
+ * Each {@link Lane} runs its tasks on named virtual threads, so blocking JDBC or SMTP
+ * calls do not tie up platform threads, and caps how many run at once; tasks beyond the
+ * cap wait in the lane's queue. Tasks submitted with an owner node are cancelled when
+ * that node leaves its scene, i.e. when the user navigates away from the view.
+ * {@link #shutdown(long)} is called on exit before the connection pool is closed.
+ */
+public final class BackgroundTasks {
+    /** SLF4J logger for BackgroundTasks operations. */
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundTasks.class);
+
+    /** Named groups of background work, each with its own concurrency limit. */
+    public enum Lane {
+        /** Database reads and writes; limited to the connection pool size. */
+        DB("db", 8),
+        /** Outgoing email and other network I/O. */
+        EMAIL("email", 4),
+        /** File exports; each holds a connection while it streams, so few run at once. */
+        EXPORT("export", 2);
+
+        private final String threadPrefix;
+        private final int maxConcurrency;
+
+        Lane(String threadPrefix, int maxConcurrency) {
+            this.threadPrefix = threadPrefix;
+            this.maxConcurrency = maxConcurrency;
+        }
+    }
+
+    /** How long {@link #shutdown()} waits for running tasks before interrupting them. */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+
+    private static final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+    private static volatile boolean shutdown;
+
+    static {
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneState(lane));
+        }
+    }
+
+    private BackgroundTasks() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Runs a task in the given lane.
+     *
+     * @param lane lane to run in
+     * @param task task to run
+     * @param <T> task result type
+     * @return the task, for chaining
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    public static <T> Task<T> submit(Lane lane, Task<T> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Background tasks have been shut down");
+        }
+        lanes.get(lane).execute(task);
+        return task;
+    }
+
+    /**
+     * Runs a task in the given lane and cancels it if {@code owner} is removed from its
+     * scene before the task finishes. Use this for loads whose result is only shown in
+     * that view; writes should use {@link #submit(Lane, Task)} so they always complete.
+     *
+     * @param lane lane to run in
+     * @param task task to run
+     * @param owner node of the view that displays the result
+     * @param <T> task result type
+     * @return the task, for chaining
+     */
+    public static <T> Task<T> submit(Lane lane, Task<T> task, Node owner) {
+        ChangeListener<Scene> detachListener = (obs, oldScene, newScene) -> {
+            if (newScene == null && !task.isDone()) {
+                logger.debug("Cancelling {} task: owning view was closed", lane.threadPrefix);
+                task.cancel();
+            }
+        };
+        owner.sceneProperty().addListener(detachListener);
+        task.stateProperty().addListener((obs, oldState, state) -> {
+            if (state == Worker.State.SUCCEEDED || state == Worker.State.FAILED
+                    || state == Worker.State.CANCELLED) {
+                owner.sceneProperty().removeListener(detachListener);
+            }
+        });
+        return submit(lane, task);
+    }
+
+    /**
+     * Gets a snapshot of a lane's queue and latency figures.
+     *
+     * @param lane lane to inspect
+     * @return current lane statistics
+     */
+    public static Stats getStats(Lane lane) {
+        return lanes.get(lane).stats();
+    }
+
+    /**
+     * Shuts down with the default timeout of {@value #SHUTDOWN_TIMEOUT_MILLIS} ms.
+     */
+    public static void shutdown() {
+        shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Stops accepting tasks, cancels queued ones and waits for running tasks to finish.
+     * Tasks still running after the timeout are interrupted. Safe to call more than once.
+     *
+     * @param timeoutMillis how long to wait for running tasks
+     */
+    public static synchronized void shutdown(long timeoutMillis) {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (LaneState state : lanes.values()) {
+            state.executor.shutdown();
+        }
+        for (LaneState state : lanes.values()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!state.executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    logger.warn("Interrupting {} unfinished {} task(s)", state.active.get(), state.lane.threadPrefix);
+                    state.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                state.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            logger.info("Background {} lane stopped: {}", state.lane.threadPrefix, state.stats());
+        }
+    }
+
+    /**
+     * Executor and counters for one lane.
+     */
+    private static final class LaneState {
+        private final Lane lane;
+        private final ExecutorService executor;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAdder totalRunNanos = new LongAdder();
+        private final AtomicLong maxRunNanos = new AtomicLong();
+
+        LaneState(Lane lane) {
+            this.lane = lane;
+            this.permits = new Semaphore(lane.maxConcurrency, true);
+            this.executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("bg-" + lane.threadPrefix + "-", 1).factory());
+        }
+
+        void execute(Task<?> task) {
+            long submitted = System.nanoTime();
+            queued.incrementAndGet();
+            executor.execute(() -> {
+                boolean acquired = false;
+                try {
+                    permits.acquire();
+                    acquired = true;
+                } catch (InterruptedException e) {
+                    task.cancel();
+                    Thread.currentThread().interrupt();
+                } finally {
+                    queued.decrementAndGet();
+                }
+                if (!acquired || task.isCancelled() || executor.isShutdown()) {
+                    if (acquired) {
+                        permits.release();
+                    }
+                    task.cancel();
+                    cancelled.increment();
+                    return;
+                }
+                long started = System.nanoTime();
+                totalWaitNanos.add(started - submitted);
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    long runNanos = System.nanoTime() - started;
+                    active.decrementAndGet();
+                    permits.release();
+                    completed.increment();
+                    totalRunNanos.add(runNanos);
+                    maxRunNanos.accumulateAndGet(runNanos, Math::max);
+                }
+            });
+        }
+
+        Stats stats() {
+            long done = completed.sum();
+            return new Stats(lane.threadPrefix, lane.maxConcurrency, queued.get(), active.get(), done,
+                    cancelled.sum(),
+                    done == 0 ? 0.0 : totalWaitNanos.sum() / (double) done / 1_000_000.0,
+                    done == 0 ? 0.0 : totalRunNanos.sum() / (double) done / 1_000_000.0,
+                    maxRunNanos.get() / 1_000_000.0);
+        }
+    }
+
+    /**
+     * Point-in-time lane statistics.
+     */
+    public static final class Stats {
+        private final String lane;
+        private final int maxConcurrency;
+        private final int queuedTasks;
+        private final int activeTasks;
+        private final long completedTasks;
+        private final long cancelledTasks;
+        private final double averageWaitMillis;
+        private final double averageRunMillis;
+        private final double maxRunMillis;
+
+        Stats(String lane, int maxConcurrency, int queuedTasks, int activeTasks, long completedTasks,
+              long cancelledTasks, double averageWaitMillis, double averageRunMillis, double maxRunMillis) {
+            this.lane = lane;
+            this.maxConcurrency = maxConcurrency;
+            this.queuedTasks = queuedTasks;
+            this.activeTasks = activeTasks;
+            this.completedTasks = completedTasks;
+            this.cancelledTasks = cancelledTasks;
+            this.averageWaitMillis = averageWaitMillis;
+            this.averageRunMillis = averageRunMillis;
+            this.maxRunMillis = maxRunMillis;
+        }
+
+        public String getLane() { return lane; }
+        public int getMaxConcurrency() { return maxConcurrency; }
+        public int getQueuedTasks() { return queuedTasks; }
+        public int getActiveTasks() { return activeTasks; }
+        public long getCompletedTasks() { return completedTasks; }
+        public long getCancelledTasks() { return cancelledTasks; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+        public double getAverageRunMillis() { return averageRunMillis; }
+        public double getMaxRunMillis() { return maxRunMillis; }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s[max=%d, queued=%d, active=%d, completed=%d, cancelled=%d, avgWait=%.2fms, avgRun=%.2fms, maxRun=%.2fms]",
+                    lane, maxConcurrency, queuedTasks, activeTasks, completedTasks, cancelledTasks,
+                    averageWaitMillis, averageRunMillis, maxRunMillis);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.cole.util;
+
+import java.io.File;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import com.cole.Service.BulkReportService;
+
+import javafx.concurrent.Task;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.TextArea;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dialog flow for generating student summary PDFs in bulk: asks whether to write a zip
+ * file or a folder, runs {@link BulkReportService} as a background job with a progress
+ * dialog, and reports which documents, if any, failed.
+ */
+public class BulkReportDialogUtil {
+    private static final Logger logger = LoggerFactory.getLogger(BulkReportDialogUtil.class);
+
+    private static final String ZIP = "Single zip file";
+    private static final String FOLDER = "Folder of PDF files";
+
+    private BulkReportDialogUtil() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Generates reports for the selected students.
+     *
+     * @param owner the owner stage for the dialogs
+     * @param selection the students to report on
+     * @param defaultName suggested zip file name without extension
+     */
+    public static void run(Stage owner, BulkReportService.Selection selection, String defaultName) {
+        ChoiceDialog<String> outputDialog = new ChoiceDialog<>(ZIP, ZIP, FOLDER);
+        outputDialog.initOwner(owner);
+        outputDialog.setTitle("Bulk Student Reports");
+        outputDialog.setHeaderText("Generate summaries for " + selection.getDescription());
+        outputDialog.setContentText("Save reports as:");
+        Optional<String> choice = outputDialog.showAndWait();
+        if (choice.isEmpty()) return;
+
+        boolean zip = ZIP.equals(choice.get());
+        File output;
+        if (zip) {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Save Student Reports");
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip Files", "*.zip"));
+            fileChooser.setInitialFileName(defaultName.replaceAll("[^A-Za-z0-9._-]", "_") + ".zip");
+            output = fileChooser.showSaveDialog(owner);
+        } else {
+            DirectoryChooser directoryChooser = new DirectoryChooser();
+            directoryChooser.setTitle("Choose Folder for Student Reports");
+            output = directoryChooser.showDialog(owner);
+        }
+        if (output == null) return;
+
+        Task<BulkReportService.Result> task = new BulkReportService().generateTask(selection, output, zip);
+        task.setOnSucceeded(e -> showResult(owner, task.getValue()));
+        task.setOnFailed(e -> {
+            logger.error("Bulk report generation failed", task.getException());
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.initOwner(owner);
+            alert.setTitle("Report Generation Error");
+            alert.setHeaderText(null);
+            alert.setContentText("Could not generate reports:\n" + task.getException().getMessage());
+            alert.showAndWait();
+        });
+        ProgressDialogUtil.show(owner, task, "Generating Student Reports...", BackgroundTasks.Lane.EXPORT);
+    }
+
+    private static void showResult(Stage owner, BulkReportService.Result result) {
+        Alert alert = new Alert(result.errors().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.initOwner(owner);
+        alert.setTitle("Reports Generated");
+        alert.setHeaderText(null);
+        alert.setContentText(result.generated() + " report(s) saved to:\n" + result.output()
+            + (result.errors().isEmpty() ? "" : "\n\n" + result.errors().size() + " report(s) could not be generated."));
+        if (!result.errors().isEmpty()) {
+            TextArea details = new TextArea(result.errors().stream()
+                .map(error -> error.studentNumber() + ": " + error.message())
+                .collect(Collectors.joining("\n")));
+            details.setEditable(false);
+            details.setWrapText(true);
+            alert.getDialogPane().setExpandableContent(details);
+        }
+        alert.showAndWait();
+    }
+}
@@ -0,0 +1,402 @@
+package com.cole.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of physical SQLite connections.
+ * <p>
+ * Callers receive a proxy whose {@code close()} hands the physical connection back
+ * to the pool instead of closing it, so existing try-with-resources code keeps working
+ * unchanged. On return, any statements the caller left open are closed and an
+ * uncommitted transaction is rolled back, matching what closing a real connection did.
+ * Calling {@code abort()} on the proxy instead closes the physical connection, for a
+ * caller that left it in a state the next borrower must not see.
+ * <p>
+ * Connections held longer than the leak threshold are reported once, together with
+ * the stack trace of the code that borrowed them.
+ */
+public final class ConnectionPool implements AutoCloseable {
+    /** SLF4J logger for ConnectionPool operations. */
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * Callback applied to every new physical connection before it is first handed out
+     * (e.g. to run PRAGMA statements).
+     */
+    @FunctionalInterface
+    public interface ConnectionInitializer {
+        void initialize(Connection connection) throws SQLException;
+    }
+
+    private final String url;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final ConnectionInitializer initializer;
+
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger physicalCount = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool. No connections are opened until {@link #prewarm(int)} or
+     * {@link #getConnection()} is called.
+     *
+     * @param url JDBC URL of the database
+     * @param maxSize maximum number of physical connections
+     * @param borrowTimeoutMillis how long a caller waits for a free connection
+     * @param leakThresholdMillis how long a connection may be held before it is reported as leaked
+     * @param initializer setup applied to each new physical connection, may be null
+     */
+    public ConnectionPool(String url, int maxSize, long borrowTimeoutMillis, long leakThresholdMillis,
+                          ConnectionInitializer initializer) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.initializer = initializer;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, leakThresholdMillis / 2);
+        housekeeper.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens physical connections until at least {@code count} are idle or the pool is full.
+     *
+     * @param count number of connections to have ready
+     * @throws SQLException if a connection cannot be opened
+     */
+    public void prewarm(int count) throws SQLException {
+        int target = Math.min(count, maxSize);
+        while (!closed && idle.size() < target) {
+            int current = physicalCount.get();
+            if (current >= maxSize) {
+                break;
+            }
+            if (physicalCount.compareAndSet(current, current + 1)) {
+                try {
+                    idle.offerLast(openPhysical());
+                } catch (SQLException | RuntimeException e) {
+                    physicalCount.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+        logger.info("Connection pool warmed: {} idle of {} max", idle.size(), maxSize);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the borrow timeout if all
+     * connections are in use.
+     * <p>
+     * Caller is responsible for closing the connection, which returns it to the pool.
+     *
+     * @return pooled connection
+     * @throws SQLException if the pool is closed, the wait times out or a connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                    + " ms waiting for a database connection; " + getStats());
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - start);
+        try {
+            Connection physical = takeIdleOrOpen();
+            Lease lease = new Lease(physical);
+            leases.add(lease);
+            borrowCount.incrementAndGet();
+            peakActive.accumulateAndGet(leases.size(), Math::max);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool's counters.
+     *
+     * @return current pool statistics
+     */
+    public Stats getStats() {
+        long borrows = borrowCount.get();
+        return new Stats(
+                maxSize,
+                physicalCount.get(),
+                idle.size(),
+                leases.size(),
+                peakActive.get(),
+                permits.getQueueLength(),
+                borrows,
+                createdCount.get(),
+                timeoutCount.get(),
+                leakCount.get(),
+                borrows == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / borrows);
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeper. Connections still
+     * borrowed are closed when their holders return them.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+        Connection c;
+        while ((c = idle.pollFirst()) != null) {
+            closePhysical(c);
+        }
+        if (!leases.isEmpty()) {
+            logger.warn("Connection pool closed with {} connection(s) still borrowed", leases.size());
+        }
+        logger.info("Connection pool closed: {}", getStats());
+    }
+
+    private Connection takeIdleOrOpen() throws SQLException {
+        Connection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            if (!physical.isClosed()) {
+                return physical;
+            }
+            physicalCount.decrementAndGet();
+        }
+        physicalCount.incrementAndGet();
+        try {
+            return openPhysical();
+        } catch (SQLException | RuntimeException e) {
+            physicalCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection physical = DriverManager.getConnection(url);
+        try {
+            if (initializer != null) {
+                initializer.initialize(physical);
+            }
+        } catch (SQLException | RuntimeException e) {
+            physical.close();
+            throw e;
+        }
+        createdCount.incrementAndGet();
+        return physical;
+    }
+
+    private void release(Lease lease, boolean discard) {
+        if (!leases.remove(lease)) {
+            return;
+        }
+        Connection physical = lease.physical;
+        boolean reusable = !closed && !discard;
+        try {
+            for (Statement st : lease.statements) {
+                if (!st.isClosed()) {
+                    st.close();
+                }
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            reusable &= !physical.isClosed();
+        } catch (SQLException e) {
+            logger.warn("Discarding pooled connection that could not be reset: {}", e.getMessage());
+            reusable = false;
+        }
+        if (reusable) {
+            idle.offerFirst(physical);
+        } else {
+            closePhysical(physical);
+        }
+        permits.release();
+    }
+
+    private void closePhysical(Connection physical) {
+        physicalCount.decrementAndGet();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            logger.warn("Failed to close pooled connection: {}", e.getMessage());
+        }
+    }
+
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : leases) {
+            if (!lease.leakReported && now - lease.borrowedAt > leakThresholdMillis) {
+                lease.leakReported = true;
+                leakCount.incrementAndGet();
+                logger.warn("Possible connection leak: connection borrowed by thread '{}' has been held for {} ms",
+                        lease.threadName, now - lease.borrowedAt, lease.origin);
+            }
+        }
+    }
+
+    /**
+     * One borrow of a physical connection. Intercepts {@code close()} on the proxy
+     * and tracks statements created through it.
+     */
+    private final class Lease implements InvocationHandler {
+        private final Connection physical;
+        private final Connection proxy;
+        private final long borrowedAt = System.currentTimeMillis();
+        private final String threadName = Thread.currentThread().getName();
+        private final Throwable origin = new Throwable("Connection borrowed here");
+        private final List<Statement> statements = new ArrayList<>();
+        private volatile boolean returned;
+        private volatile boolean leakReported;
+
+        private Lease(Connection physical) {
+            this.physical = physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(), new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "abort":
+                    if (!returned) {
+                        returned = true;
+                        release(this, method.getName().equals("abort"));
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            Object result;
+            try {
+                result = method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                synchronized (statements) {
+                    statements.add((Statement) result);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Immutable snapshot of pool counters.
+     */
+    public static final class Stats {
+        private final int maxSize;
+        private final int totalConnections;
+        private final int idleConnections;
+        private final int activeConnections;
+        private final int peakActiveConnections;
+        private final int waitingThreads;
+        private final long borrowCount;
+        private final long createdCount;
+        private final long timeoutCount;
+        private final long leakCount;
+        private final double averageWaitMillis;
+
+        Stats(int maxSize, int totalConnections, int idleConnections, int activeConnections,
+              int peakActiveConnections, int waitingThreads, long borrowCount, long createdCount,
+              long timeoutCount, long leakCount, double averageWaitMillis) {
+            this.maxSize = maxSize;
+            this.totalConnections = totalConnections;
+            this.idleConnections = idleConnections;
+            this.activeConnections = activeConnections;
+            this.peakActiveConnections = peakActiveConnections;
+            this.waitingThreads = waitingThreads;
+            this.borrowCount = borrowCount;
+            this.createdCount = createdCount;
+            this.timeoutCount = timeoutCount;
+            this.leakCount = leakCount;
+            this.averageWaitMillis = averageWaitMillis;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getTotalConnections() { return totalConnections; }
+        public int getIdleConnections() { return idleConnections; }
+        public int getActiveConnections() { return activeConnections; }
+        public int getPeakActiveConnections() { return peakActiveConnections; }
+        public int getWaitingThreads() { return waitingThreads; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getLeakCount() { return leakCount; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "pool[max=%d, total=%d, idle=%d, active=%d, peak=%d, waiting=%d, borrows=%d, created=%d, timeouts=%d, leaks=%d, avgWait=%.2fms]",
+                    maxSize, totalConnections, idleConnections, activeConnections, peakActiveConnections,
+                    waitingThreads, borrowCount, createdCount, timeoutCount, leakCount, averageWaitMillis);
+        }
+    }
+}
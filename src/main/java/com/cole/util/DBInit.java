@@ -1,6 +1,7 @@
 package com.cole.util;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import org.slf4j.Logger;
@@ -10,6 +11,485 @@ public final class DBInit {
     /** SLF4J logger for DBInit operations. */
     private static final Logger logger = LoggerFactory.getLogger(DBInit.class);
 
+    /**
+     * Version 1: the original schema. Every statement is idempotent so databases
+     * created before versioning existed are adopted as version 1 unchanged.
+     */
+    private static final String[] BASELINE_SCHEMA = {
+        // Users table
+        "CREATE TABLE IF NOT EXISTS users (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "username TEXT UNIQUE NOT NULL, " +
+        "password_hash TEXT NOT NULL, " +
+        "salt TEXT NOT NULL, " +
+        "role TEXT NOT NULL" +
+        ");",
+
+        // SLPs table
+        "CREATE TABLE IF NOT EXISTS slps (" +
+        "slp_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "slp_code TEXT NOT NULL, " +
+        "name TEXT, " +
+        "description TEXT" +
+        ");",
+
+        // Students table
+        "CREATE TABLE IF NOT EXISTS students (" +
+        "student_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_number TEXT UNIQUE NOT NULL, " +
+        "first_name TEXT NOT NULL, " +
+        "second_name TEXT NOT NULL, " + // NEW
+        "last_name TEXT NOT NULL, " +
+        "id_number TEXT UNIQUE, " +     // NEW
+        "email TEXT, " +
+        "phone TEXT, " +
+        "branch TEXT, " +               // NEW
+        "enrollment_date TEXT, " +
+        "current_slp_id INTEGER, " +
+        "status TEXT, " +
+        "FOREIGN KEY (current_slp_id) REFERENCES slps(slp_id)" +
+        ");",
+
+        // Modules table
+        "CREATE TABLE IF NOT EXISTS modules (" +
+        "module_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "module_code TEXT NOT NULL UNIQUE, " +
+        "name TEXT, " +
+        "pass_rate INTEGER NOT NULL" +
+        ");",
+
+        // SLP-Modules junction table
+        "CREATE TABLE IF NOT EXISTS slp_modules (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "slp_id INTEGER NOT NULL, " +
+        "module_id INTEGER NOT NULL, " +
+        "FOREIGN KEY (slp_id) REFERENCES slps(slp_id), " +
+        "FOREIGN KEY (module_id) REFERENCES modules(module_id)" +
+        ");",
+
+        // Student-Modules junction table
+        "CREATE TABLE IF NOT EXISTS student_modules (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_id INTEGER NOT NULL, " +
+        "module_id INTEGER NOT NULL, " +
+        "module_code TEXT, " +
+        "module_name TEXT, " +
+        "formative INTEGER DEFAULT 0, " +
+        "summative INTEGER DEFAULT 0, " +
+        "supplementary INTEGER DEFAULT 0, " +
+        "status TEXT, " +
+        "received_book INTEGER DEFAULT 0, " +
+        "signature_path TEXT, " +
+        "date_issued TEXT, " +
+        "registration_type TEXT, " +
+        "FOREIGN KEY (student_id) REFERENCES students(student_id), " +
+        "FOREIGN KEY (module_id) REFERENCES modules(module_id)" +
+        ");",
+
+        // Notes table
+        "CREATE TABLE IF NOT EXISTS notes (" +
+        "note_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_id INTEGER NOT NULL, " +
+        "note_text TEXT, " +
+        "date_added TEXT, " +
+        "FOREIGN KEY (student_id) REFERENCES students(student_id)" +
+        ");",
+
+        // Follow-ups table
+        "CREATE TABLE IF NOT EXISTS follow_ups (" +
+        "followup_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_id INTEGER NOT NULL, " +
+        "due_date TEXT NOT NULL, " +
+        "description TEXT, " +
+        "completed INTEGER DEFAULT 0, " +
+        "FOREIGN KEY (student_id) REFERENCES students(student_id)" +
+        ");",
+
+        // Students to graduate table
+        "CREATE TABLE IF NOT EXISTS students_to_graduate (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_id INTEGER NOT NULL, " +
+        "student_number TEXT NOT NULL, " +
+        "first_name TEXT NOT NULL, " +
+        "second_name TEXT, " +
+        "last_name TEXT NOT NULL, " +
+        "id_number TEXT NOT NULL, " +
+        "slp_course TEXT NOT NULL, " +
+        "email TEXT, " +
+        "phone TEXT, " +
+        "branch TEXT, " +
+        "transcript_requested INTEGER DEFAULT 0, " +
+        "date_flagged TEXT DEFAULT CURRENT_TIMESTAMP, " +
+        "FOREIGN KEY (student_id) REFERENCES students(student_id)" +
+        ");",
+        "CREATE UNIQUE INDEX IF NOT EXISTS idx_students_to_graduate_student_id ON students_to_graduate(student_id);",
+        
+        // To-Do Tasks table
+        "CREATE TABLE IF NOT EXISTS todos (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "user_id INTEGER NOT NULL, " +
+        "task_text TEXT NOT NULL, " +
+        "due_date TEXT NOT NULL, " +
+        "completed INTEGER DEFAULT 0, " +
+        "note TEXT, " +
+        "recurring TEXT, " +
+        "priority TEXT DEFAULT 'Medium', " +
+        "active INTEGER DEFAULT 1, " +
+        "parent_id INTEGER, " +
+        "created_at TEXT DEFAULT CURRENT_TIMESTAMP, " +
+        "FOREIGN KEY (user_id) REFERENCES users(id)" +
+        ");",
+        
+        //To-Do Recurring Exclusions table
+        "CREATE TABLE IF NOT EXISTS todo_recurring_exclusions (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "task_id INTEGER NOT NULL, " +
+        "excluded_date TEXT NOT NULL, " +
+        "FOREIGN KEY (task_id) REFERENCES todos(id)" +
+        ");",
+
+        //activity log table
+        "CREATE TABLE IF NOT EXISTS activity_log (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "user_id INTEGER, " +
+        "activity_type TEXT, " +
+        "description TEXT, " +
+        "activity_time TEXT DEFAULT CURRENT_TIMESTAMP" +
+        ");"
+    };
+
+    /**
+     * Version 2: rebuilds child tables so their foreign keys cascade when the parent
+     * student, SLP, module link or to-do is deleted. Rows whose parent no longer
+     * exists are removed first, since the cascade would have removed them.
+     */
+    private static final String[] FOREIGN_KEY_CASCADES = {
+        // SLP-Modules: links go away with either side
+        "DELETE FROM slp_modules WHERE slp_id NOT IN (SELECT slp_id FROM slps) " +
+        "OR module_id NOT IN (SELECT module_id FROM modules);",
+        "CREATE TABLE slp_modules_new (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "slp_id INTEGER NOT NULL, " +
+        "module_id INTEGER NOT NULL, " +
+        "FOREIGN KEY (slp_id) REFERENCES slps(slp_id) ON DELETE CASCADE, " +
+        "FOREIGN KEY (module_id) REFERENCES modules(module_id) ON DELETE CASCADE" +
+        ");",
+        "INSERT INTO slp_modules_new (id, slp_id, module_id) SELECT id, slp_id, module_id FROM slp_modules;",
+        "DROP TABLE slp_modules;",
+        "ALTER TABLE slp_modules_new RENAME TO slp_modules;",
+
+        // Student-Modules: cascade with the student; a module with marks recorded cannot be deleted
+        "DELETE FROM student_modules WHERE student_id NOT IN (SELECT student_id FROM students);",
+        "CREATE TABLE student_modules_new (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_id INTEGER NOT NULL, " +
+        "module_id INTEGER NOT NULL, " +
+        "module_code TEXT, " +
+        "module_name TEXT, " +
+        "formative INTEGER DEFAULT 0, " +
+        "summative INTEGER DEFAULT 0, " +
+        "supplementary INTEGER DEFAULT 0, " +
+        "status TEXT, " +
+        "received_book INTEGER DEFAULT 0, " +
+        "signature_path TEXT, " +
+        "date_issued TEXT, " +
+        "registration_type TEXT, " +
+        "FOREIGN KEY (student_id) REFERENCES students(student_id) ON DELETE CASCADE, " +
+        "FOREIGN KEY (module_id) REFERENCES modules(module_id)" +
+        ");",
+        "INSERT INTO student_modules_new (id, student_id, module_id, module_code, module_name, formative, summative, " +
+        "supplementary, status, received_book, signature_path, date_issued, registration_type) " +
+        "SELECT id, student_id, module_id, module_code, module_name, formative, summative, " +
+        "supplementary, status, received_book, signature_path, date_issued, registration_type FROM student_modules;",
+        "DROP TABLE student_modules;",
+        "ALTER TABLE student_modules_new RENAME TO student_modules;",
+
+        // Notes
+        "DELETE FROM notes WHERE student_id NOT IN (SELECT student_id FROM students);",
+        "CREATE TABLE notes_new (" +
+        "note_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_id INTEGER NOT NULL, " +
+        "note_text TEXT, " +
+        "date_added TEXT, " +
+        "FOREIGN KEY (student_id) REFERENCES students(student_id) ON DELETE CASCADE" +
+        ");",
+        "INSERT INTO notes_new (note_id, student_id, note_text, date_added) " +
+        "SELECT note_id, student_id, note_text, date_added FROM notes;",
+        "DROP TABLE notes;",
+        "ALTER TABLE notes_new RENAME TO notes;",
+
+        // Follow-ups
+        "DELETE FROM follow_ups WHERE student_id NOT IN (SELECT student_id FROM students);",
+        "CREATE TABLE follow_ups_new (" +
+        "followup_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_id INTEGER NOT NULL, " +
+        "due_date TEXT NOT NULL, " +
+        "description TEXT, " +
+        "completed INTEGER DEFAULT 0, " +
+        "FOREIGN KEY (student_id) REFERENCES students(student_id) ON DELETE CASCADE" +
+        ");",
+        "INSERT INTO follow_ups_new (followup_id, student_id, due_date, description, completed) " +
+        "SELECT followup_id, student_id, due_date, description, completed FROM follow_ups;",
+        "DROP TABLE follow_ups;",
+        "ALTER TABLE follow_ups_new RENAME TO follow_ups;",
+
+        // Students to graduate
+        "DELETE FROM students_to_graduate WHERE student_id NOT IN (SELECT student_id FROM students);",
+        "CREATE TABLE students_to_graduate_new (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "student_id INTEGER NOT NULL, " +
+        "student_number TEXT NOT NULL, " +
+        "first_name TEXT NOT NULL, " +
+        "second_name TEXT, " +
+        "last_name TEXT NOT NULL, " +
+        "id_number TEXT NOT NULL, " +
+        "slp_course TEXT NOT NULL, " +
+        "email TEXT, " +
+        "phone TEXT, " +
+        "branch TEXT, " +
+        "transcript_requested INTEGER DEFAULT 0, " +
+        "date_flagged TEXT DEFAULT CURRENT_TIMESTAMP, " +
+        "FOREIGN KEY (student_id) REFERENCES students(student_id) ON DELETE CASCADE" +
+        ");",
+        "INSERT INTO students_to_graduate_new (id, student_id, student_number, first_name, second_name, last_name, " +
+        "id_number, slp_course, email, phone, branch, transcript_requested, date_flagged) " +
+        "SELECT id, student_id, student_number, first_name, second_name, last_name, " +
+        "id_number, slp_course, email, phone, branch, transcript_requested, date_flagged FROM students_to_graduate;",
+        "DROP TABLE students_to_graduate;",
+        "ALTER TABLE students_to_graduate_new RENAME TO students_to_graduate;",
+        "CREATE UNIQUE INDEX IF NOT EXISTS idx_students_to_graduate_student_id ON students_to_graduate(student_id);",
+
+        // To-Do Recurring Exclusions
+        "DELETE FROM todo_recurring_exclusions WHERE task_id NOT IN (SELECT id FROM todos);",
+        "CREATE TABLE todo_recurring_exclusions_new (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "task_id INTEGER NOT NULL, " +
+        "excluded_date TEXT NOT NULL, " +
+        "FOREIGN KEY (task_id) REFERENCES todos(id) ON DELETE CASCADE" +
+        ");",
+        "INSERT INTO todo_recurring_exclusions_new (id, task_id, excluded_date) " +
+        "SELECT id, task_id, excluded_date FROM todo_recurring_exclusions;",
+        "DROP TABLE todo_recurring_exclusions;",
+        "ALTER TABLE todo_recurring_exclusions_new RENAME TO todo_recurring_exclusions;"
+    };
+
+    /**
+     * Version 3: indexes for the lookups the services run on every screen, plus
+     * indexes on foreign key child columns so cascades do not scan.
+     */
+    private static final String[] PERFORMANCE_INDEXES = {
+        "CREATE INDEX IF NOT EXISTS idx_students_current_slp ON students(current_slp_id);",
+        "CREATE INDEX IF NOT EXISTS idx_slp_modules_slp_module ON slp_modules(slp_id, module_id);",
+        "CREATE INDEX IF NOT EXISTS idx_slp_modules_module ON slp_modules(module_id);",
+        "CREATE INDEX IF NOT EXISTS idx_student_modules_student_module ON student_modules(student_id, module_id);",
+        "CREATE INDEX IF NOT EXISTS idx_student_modules_module ON student_modules(module_id);",
+        "CREATE INDEX IF NOT EXISTS idx_notes_student_date ON notes(student_id, date_added);",
+        "CREATE INDEX IF NOT EXISTS idx_follow_ups_student_due ON follow_ups(student_id, due_date);",
+        "CREATE INDEX IF NOT EXISTS idx_follow_ups_completed_due ON follow_ups(completed, due_date);",
+        "CREATE INDEX IF NOT EXISTS idx_students_to_graduate_number ON students_to_graduate(student_number);",
+        "CREATE INDEX IF NOT EXISTS idx_todos_user_due ON todos(user_id, due_date);",
+        "CREATE INDEX IF NOT EXISTS idx_todo_exclusions_task_date ON todo_recurring_exclusions(task_id, excluded_date);",
+        "CREATE INDEX IF NOT EXISTS idx_activity_log_time ON activity_log(activity_time);",
+        "CREATE INDEX IF NOT EXISTS idx_activity_log_user_time ON activity_log(user_id, activity_time);",
+        "ANALYZE;"
+    };
+
+    /**
+     * Version 4: FTS5 search index over the student directory, kept in sync with the
+     * students table by triggers, and a case-insensitive index on student_number.
+     */
+    private static final String[] STUDENT_SEARCH_INDEX = {
+        "CREATE VIRTUAL TABLE IF NOT EXISTS student_search USING fts5(" +
+        "student_number, first_name, second_name, last_name, id_number, email, phone, branch, " +
+        "content='students', content_rowid='student_id', " +
+        "tokenize='unicode61 remove_diacritics 2', prefix='1 2 3');",
+        "CREATE TRIGGER IF NOT EXISTS students_search_insert AFTER INSERT ON students BEGIN " +
+        "INSERT INTO student_search (rowid, student_number, first_name, second_name, last_name, id_number, email, phone, branch) " +
+        "VALUES (new.student_id, new.student_number, new.first_name, new.second_name, new.last_name, " +
+        "new.id_number, new.email, new.phone, new.branch); END;",
+        "CREATE TRIGGER IF NOT EXISTS students_search_delete AFTER DELETE ON students BEGIN " +
+        "INSERT INTO student_search (student_search, rowid, student_number, first_name, second_name, last_name, id_number, email, phone, branch) " +
+        "VALUES ('delete', old.student_id, old.student_number, old.first_name, old.second_name, old.last_name, " +
+        "old.id_number, old.email, old.phone, old.branch); END;",
+        "CREATE TRIGGER IF NOT EXISTS students_search_update AFTER UPDATE OF " +
+        "student_number, first_name, second_name, last_name, id_number, email, phone, branch ON students BEGIN " +
+        "INSERT INTO student_search (student_search, rowid, student_number, first_name, second_name, last_name, id_number, email, phone, branch) " +
+        "VALUES ('delete', old.student_id, old.student_number, old.first_name, old.second_name, old.last_name, " +
+        "old.id_number, old.email, old.phone, old.branch); " +
+        "INSERT INTO student_search (rowid, student_number, first_name, second_name, last_name, id_number, email, phone, branch) " +
+        "VALUES (new.student_id, new.student_number, new.first_name, new.second_name, new.last_name, " +
+        "new.id_number, new.email, new.phone, new.branch); END;",
+        "INSERT INTO student_search (student_search) VALUES ('rebuild');",
+        "CREATE INDEX IF NOT EXISTS idx_students_number_nocase ON students(student_number COLLATE NOCASE);"
+    };
+
+    /**
+     * Version 5: a per-student data stamp for the report cache. Triggers replace a
+     * student's stamp with a new random value whenever anything shown in their summary
+     * report changes: the student row, their modules, notes and follow-ups, the pass rate
+     * of one of their modules or the name of their SLP. A stamp therefore identifies one
+     * state of the data, even after a backup is restored.
+     */
+    private static final String[] STUDENT_DATA_STAMPS = {
+        "CREATE TABLE IF NOT EXISTS student_data_stamps (" +
+        "student_id INTEGER PRIMARY KEY, " +
+        "stamp INTEGER NOT NULL" +
+        ");",
+        "INSERT OR IGNORE INTO student_data_stamps (student_id, stamp) SELECT student_id, random() FROM students;",
+        "CREATE TRIGGER IF NOT EXISTS students_stamp_insert AFTER INSERT ON students BEGIN " +
+        "INSERT OR REPLACE INTO student_data_stamps (student_id, stamp) VALUES (new.student_id, random()); END;",
+        "CREATE TRIGGER IF NOT EXISTS students_stamp_update AFTER UPDATE ON students " +
+        "WHEN new.student_number IS NOT old.student_number OR new.first_name IS NOT old.first_name " +
+        "OR new.second_name IS NOT old.second_name OR new.last_name IS NOT old.last_name " +
+        "OR new.email IS NOT old.email OR new.phone IS NOT old.phone OR new.current_slp_id IS NOT old.current_slp_id " +
+        "OR new.status IS NOT old.status OR new.enrollment_date IS NOT old.enrollment_date BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id = new.student_id; END;",
+        "CREATE TRIGGER IF NOT EXISTS students_stamp_delete AFTER DELETE ON students BEGIN " +
+        "DELETE FROM student_data_stamps WHERE student_id = old.student_id; END;",
+        "CREATE TRIGGER IF NOT EXISTS student_modules_stamp_insert AFTER INSERT ON student_modules BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id = new.student_id; END;",
+        "CREATE TRIGGER IF NOT EXISTS student_modules_stamp_update AFTER UPDATE ON student_modules BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id IN (old.student_id, new.student_id); END;",
+        "CREATE TRIGGER IF NOT EXISTS student_modules_stamp_delete AFTER DELETE ON student_modules BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id = old.student_id; END;",
+        "CREATE TRIGGER IF NOT EXISTS notes_stamp_insert AFTER INSERT ON notes BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id = new.student_id; END;",
+        "CREATE TRIGGER IF NOT EXISTS notes_stamp_update AFTER UPDATE ON notes BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id IN (old.student_id, new.student_id); END;",
+        "CREATE TRIGGER IF NOT EXISTS notes_stamp_delete AFTER DELETE ON notes BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id = old.student_id; END;",
+        "CREATE TRIGGER IF NOT EXISTS follow_ups_stamp_insert AFTER INSERT ON follow_ups BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id = new.student_id; END;",
+        "CREATE TRIGGER IF NOT EXISTS follow_ups_stamp_update AFTER UPDATE ON follow_ups BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id IN (old.student_id, new.student_id); END;",
+        "CREATE TRIGGER IF NOT EXISTS follow_ups_stamp_delete AFTER DELETE ON follow_ups BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() WHERE student_id = old.student_id; END;",
+        "CREATE TRIGGER IF NOT EXISTS modules_stamp_update AFTER UPDATE OF pass_rate ON modules BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() " +
+        "WHERE student_id IN (SELECT student_id FROM student_modules WHERE module_id = new.module_id); END;",
+        "CREATE TRIGGER IF NOT EXISTS slps_stamp_update AFTER UPDATE OF name ON slps BEGIN " +
+        "UPDATE student_data_stamps SET stamp = random() " +
+        "WHERE student_id IN (SELECT student_id FROM students WHERE current_slp_id = new.slp_id); END;"
+    };
+
+    /**
+     * Version 6: outgoing emails waiting to be delivered. A row stays PENDING until the
+     * delivery worker sends it (SENT) or gives up (FAILED); {@code dedup_key} is unique
+     * among rows not yet finished, so the same email cannot be queued twice.
+     */
+    private static final String[] EMAIL_OUTBOX = {
+        "CREATE TABLE IF NOT EXISTS email_outbox (" +
+        "outbox_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "kind TEXT NOT NULL, " +
+        "reference TEXT, " +
+        "dedup_key TEXT NOT NULL, " +
+        "recipient TEXT NOT NULL, " +
+        "cc TEXT, " +
+        "subject TEXT NOT NULL, " +
+        "body TEXT NOT NULL, " +
+        "status TEXT NOT NULL DEFAULT 'PENDING', " +
+        "attempts INTEGER NOT NULL DEFAULT 0, " +
+        "next_attempt_at INTEGER NOT NULL, " +
+        "last_error TEXT, " +
+        "created_at TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+        "sent_at TEXT" +
+        ");",
+        "CREATE UNIQUE INDEX IF NOT EXISTS idx_email_outbox_dedup ON email_outbox(dedup_key) " +
+        "WHERE status IN ('PENDING', 'SENDING');",
+        "CREATE INDEX IF NOT EXISTS idx_email_outbox_due ON email_outbox(status, next_attempt_at);"
+    };
+
+    /**
+     * Version 7: the last day recurring to-dos were generated for, so each day is
+     * generated once for all users and days the application was closed can be caught up.
+     */
+    private static final String[] TODO_RECURRENCE_STATE = {
+        "CREATE TABLE IF NOT EXISTS todo_recurrence_state (" +
+        "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+        "last_generated_date TEXT NOT NULL, " +
+        "updated_at TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP" +
+        ");"
+    };
+
+    /**
+     * Version 8: occurrences of recurring to-dos are expanded when shown instead of being
+     * copied into {@code todos} every day. A stored occurrence (completed or edited)
+     * records the date it stands for in {@code occurrence_date}, so moving its due date
+     * does not bring the original back. Copies from the last 31 days that were never
+     * touched are removed, as they are expanded again; older ones are kept so overdue
+     * tasks do not disappear. The generation state of version 7 is dropped.
+     */
+    private static final String[] LAZY_TODO_RECURRENCE = {
+        "ALTER TABLE todos ADD COLUMN occurrence_date TEXT;",
+        "UPDATE todos SET occurrence_date = due_date WHERE parent_id IS NOT NULL;",
+        "DELETE FROM todos WHERE parent_id IS NOT NULL AND completed = 0 AND EXISTS (" +
+        "SELECT 1 FROM todos p WHERE p.id = todos.parent_id AND p.parent_id IS NULL AND p.active = 1 " +
+        "AND p.task_text = todos.task_text AND p.note IS todos.note AND p.priority IS todos.priority " +
+        "AND todos.due_date > p.due_date " +
+        // Older copies are past the lookback window of the expansion, so they stay stored
+        "AND todos.due_date >= date('now', 'localtime', '-31 days') " +
+        "AND (p.recurring = 'DAILY' " +
+        "OR (p.recurring = 'WEEKLY' AND strftime('%w', todos.due_date) = strftime('%w', p.due_date)) " +
+        "OR (p.recurring = 'MONTHLY' AND strftime('%d', todos.due_date) = strftime('%d', p.due_date))));",
+        "DROP TABLE IF EXISTS todo_recurrence_state;",
+        "CREATE INDEX IF NOT EXISTS idx_todos_user_occurrence ON todos(user_id, occurrence_date) " +
+        "WHERE parent_id IS NOT NULL;",
+        "CREATE INDEX IF NOT EXISTS idx_todos_user_templates ON todos(user_id, due_date) " +
+        "WHERE parent_id IS NULL AND recurring IS NOT NULL;"
+    };
+
+    /**
+     * Version 9: daily activity counts per user and type. Entries moved out of
+     * {@code activity_log} into the archive database are counted here first, so totals
+     * stay available without keeping the raw rows.
+     */
+    private static final String[] ACTIVITY_DAILY_ROLLUP = {
+        "CREATE TABLE IF NOT EXISTS activity_daily_rollup (" +
+        "day TEXT NOT NULL, " +
+        "user_id INTEGER NOT NULL, " +
+        "activity_type TEXT NOT NULL, " +
+        "activity_count INTEGER NOT NULL, " +
+        "PRIMARY KEY (day, user_id, activity_type)" +
+        ") WITHOUT ROWID;",
+        "CREATE INDEX IF NOT EXISTS idx_activity_daily_rollup_user_day ON activity_daily_rollup(user_id, day);"
+    };
+
+    /**
+     * Version 10: a trigram index over student numbers, so a search for digits from the
+     * middle of a number is an index lookup instead of a LIKE scan of every student.
+     */
+    private static final String[] STUDENT_NUMBER_TRIGRAMS = {
+        "CREATE VIRTUAL TABLE IF NOT EXISTS student_number_search USING fts5(" +
+        "student_number, content='students', content_rowid='student_id', tokenize='trigram');",
+        "CREATE TRIGGER IF NOT EXISTS students_number_search_insert AFTER INSERT ON students BEGIN " +
+        "INSERT INTO student_number_search (rowid, student_number) VALUES (new.student_id, new.student_number); END;",
+        "CREATE TRIGGER IF NOT EXISTS students_number_search_delete AFTER DELETE ON students BEGIN " +
+        "INSERT INTO student_number_search (student_number_search, rowid, student_number) " +
+        "VALUES ('delete', old.student_id, old.student_number); END;",
+        "CREATE TRIGGER IF NOT EXISTS students_number_search_update AFTER UPDATE OF student_number ON students BEGIN " +
+        "INSERT INTO student_number_search (student_number_search, rowid, student_number) " +
+        "VALUES ('delete', old.student_id, old.student_number); " +
+        "INSERT INTO student_number_search (rowid, student_number) VALUES (new.student_id, new.student_number); END;",
+        "INSERT INTO student_number_search (student_number_search) VALUES ('rebuild');"
+    };
+
+    /** All migrations in the order they are applied. Never edit a released entry; append a new one. */
+    private static final Migration[] MIGRATIONS = {
+        new Migration(1, "baseline schema", false, BASELINE_SCHEMA),
+        new Migration(2, "foreign key cascades", true, FOREIGN_KEY_CASCADES),
+        new Migration(3, "performance indexes", false, PERFORMANCE_INDEXES),
+        new Migration(4, "student search index", false, STUDENT_SEARCH_INDEX),
+        new Migration(5, "student data stamps", false, STUDENT_DATA_STAMPS),
+        new Migration(6, "email outbox", false, EMAIL_OUTBOX),
+        new Migration(7, "todo recurrence state", false, TODO_RECURRENCE_STATE),
+        new Migration(8, "lazy todo recurrence", false, LAZY_TODO_RECURRENCE),
+        new Migration(9, "activity daily rollup", false, ACTIVITY_DAILY_ROLLUP),
+        new Migration(10, "student number trigram index", false, STUDENT_NUMBER_TRIGRAMS)
+    };
+
+    /** Schema version this build of the application expects. */
+    public static final int LATEST_VERSION = MIGRATIONS[MIGRATIONS.length - 1].version;
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -18,8 +498,12 @@ public final class DBInit {
     }
 
     /**
-     * Initializes the database schema by creating all required tables if they do
-     * not exist.
+     * Brings the database schema up to {@link #LATEST_VERSION}.
+     * <p>
+     * The current version is read from {@code PRAGMA user_version}. When it is already
+     * current no DDL runs at all; otherwise each pending migration is applied in its own
+     * transaction together with the version bump, so a failed migration leaves the
+     * database at the previous version.
      * <p>
      * This method should be called once at application startup.
      * It logs success or failure using SLF4J.
@@ -27,158 +511,120 @@ public final class DBInit {
      * @throws RuntimeException if database initialization fails
      */
     public static void initializeDatabase() {
-        String[] schemaStatements = {
-            // Users table
-            "CREATE TABLE IF NOT EXISTS users (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "username TEXT UNIQUE NOT NULL, " +
-            "password_hash TEXT NOT NULL, " +
-            "salt TEXT NOT NULL, " +
-            "role TEXT NOT NULL" +
-            ");",
-
-            // SLPs table
-            "CREATE TABLE IF NOT EXISTS slps (" +
-            "slp_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "slp_code TEXT NOT NULL, " +
-            "name TEXT, " +
-            "description TEXT" +
-            ");",
-
-            // Students table
-            "CREATE TABLE IF NOT EXISTS students (" +
-            "student_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "student_number TEXT UNIQUE NOT NULL, " +
-            "first_name TEXT NOT NULL, " +
-            "second_name TEXT NOT NULL, " + // NEW
-            "last_name TEXT NOT NULL, " +
-            "id_number TEXT UNIQUE, " +     // NEW
-            "email TEXT, " +
-            "phone TEXT, " +
-            "branch TEXT, " +               // NEW
-            "enrollment_date TEXT, " +
-            "current_slp_id INTEGER, " +
-            "status TEXT, " +
-            "FOREIGN KEY (current_slp_id) REFERENCES slps(slp_id)" +
-            ");",
-
-            // Modules table
-            "CREATE TABLE IF NOT EXISTS modules (" +
-            "module_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "module_code TEXT NOT NULL UNIQUE, " +
-            "name TEXT, " +
-            "pass_rate INTEGER NOT NULL" +
-            ");",
-
-            // SLP-Modules junction table
-            "CREATE TABLE IF NOT EXISTS slp_modules (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "slp_id INTEGER NOT NULL, " +
-            "module_id INTEGER NOT NULL, " +
-            "FOREIGN KEY (slp_id) REFERENCES slps(slp_id), " +
-            "FOREIGN KEY (module_id) REFERENCES modules(module_id)" +
-            ");",
-
-            // Student-Modules junction table
-            "CREATE TABLE IF NOT EXISTS student_modules (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "student_id INTEGER NOT NULL, " +
-            "module_id INTEGER NOT NULL, " +
-            "module_code TEXT, " +
-            "module_name TEXT, " +
-            "formative INTEGER DEFAULT 0, " +
-            "summative INTEGER DEFAULT 0, " +
-            "supplementary INTEGER DEFAULT 0, " +
-            "status TEXT, " +
-            "received_book INTEGER DEFAULT 0, " +
-            "signature_path TEXT, " +
-            "date_issued TEXT, " +
-            "registration_type TEXT, " +
-            "FOREIGN KEY (student_id) REFERENCES students(student_id), " +
-            "FOREIGN KEY (module_id) REFERENCES modules(module_id)" +
-            ");",
-
-            // Notes table
-            "CREATE TABLE IF NOT EXISTS notes (" +
-            "note_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "student_id INTEGER NOT NULL, " +
-            "note_text TEXT, " +
-            "date_added TEXT, " +
-            "FOREIGN KEY (student_id) REFERENCES students(student_id)" +
-            ");",
-
-            // Follow-ups table
-            "CREATE TABLE IF NOT EXISTS follow_ups (" +
-            "followup_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "student_id INTEGER NOT NULL, " +
-            "due_date TEXT NOT NULL, " +
-            "description TEXT, " +
-            "completed INTEGER DEFAULT 0, " +
-            "FOREIGN KEY (student_id) REFERENCES students(student_id)" +
-            ");",
-
-            // Students to graduate table
-            "CREATE TABLE IF NOT EXISTS students_to_graduate (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "student_id INTEGER NOT NULL, " +
-            "student_number TEXT NOT NULL, " +
-            "first_name TEXT NOT NULL, " +
-            "second_name TEXT, " +
-            "last_name TEXT NOT NULL, " +
-            "id_number TEXT NOT NULL, " +
-            "slp_course TEXT NOT NULL, " +
-            "email TEXT, " +
-            "phone TEXT, " +
-            "branch TEXT, " +
-            "transcript_requested INTEGER DEFAULT 0, " +
-            "date_flagged TEXT DEFAULT CURRENT_TIMESTAMP, " +
-            "FOREIGN KEY (student_id) REFERENCES students(student_id)" +
-            ");",
-            "CREATE UNIQUE INDEX IF NOT EXISTS idx_students_to_graduate_student_id ON students_to_graduate(student_id);",
-            
-            // To-Do Tasks table
-            "CREATE TABLE IF NOT EXISTS todos (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "user_id INTEGER NOT NULL, " +
-            "task_text TEXT NOT NULL, " +
-            "due_date TEXT NOT NULL, " +
-            "completed INTEGER DEFAULT 0, " +
-            "note TEXT, " +
-            "recurring TEXT, " +
-            "priority TEXT DEFAULT 'Medium', " +
-            "active INTEGER DEFAULT 1, " +
-            "parent_id INTEGER, " +
-            "created_at TEXT DEFAULT CURRENT_TIMESTAMP, " +
-            "FOREIGN KEY (user_id) REFERENCES users(id)" +
-            ");",
-            
-            //To-Do Recurring Exclusions table
-            "CREATE TABLE IF NOT EXISTS todo_recurring_exclusions (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "task_id INTEGER NOT NULL, " +
-            "excluded_date TEXT NOT NULL, " +
-            "FOREIGN KEY (task_id) REFERENCES todos(id)" +
-            ");",
-
-            //activity log table
-            "CREATE TABLE IF NOT EXISTS activity_log (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "user_id INTEGER, " +
-            "activity_type TEXT, " +
-            "description TEXT, " +
-            "activity_time TEXT DEFAULT CURRENT_TIMESTAMP" +
-            ");"
-        };
-
-        // Execute schema statements
-        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement()) {
-            for (String sql : schemaStatements) {
-                stmt.execute(sql);
+        try (Connection conn = DBUtil.getConnection()) {
+            int current = getSchemaVersion(conn);
+            if (current == LATEST_VERSION) {
+                logger.info("Database schema is current (version {}).", current);
+            } else if (current > LATEST_VERSION) {
+                logger.warn("Database schema version {} is newer than this application supports ({}).",
+                        current, LATEST_VERSION);
+            } else {
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.version > current) {
+                        applyMigration(conn, migration);
+                    }
+                }
+                logger.info("Database initialized successfully (version {} -> {}).", current, LATEST_VERSION);
             }
-            logger.info("Database initialized successfully.");
+            refreshStatistics(conn);
         } catch (SQLException e) {
             logger.error("Database initialization failed: {}", e.getMessage(), e);
             throw new RuntimeException("Database initialization failed", e);
         }
     }
+
+    /**
+     * Re-analyzes tables whose size has changed a lot since their planner statistics
+     * were collected. Statistics gathered while a table was small (e.g. by the ANALYZE
+     * in version 3 on a new database) otherwise make the planner scan it instead of
+     * using its indexes. analysis_limit keeps the cost bounded on large tables.
+     */
+    private static void refreshStatistics(Connection conn) {
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA analysis_limit = 1000");
+            // 0x10002: check every table, not only those this connection has queried
+            stmt.execute("PRAGMA optimize = 0x10002");
+            logger.debug("Planner statistics refreshed in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            logger.warn("Could not refresh planner statistics: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the schema version stored in the database header.
+     *
+     * @param conn connection to the database
+     * @return value of {@code PRAGMA user_version}
+     * @throws SQLException if the pragma cannot be read
+     */
+    public static int getSchemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void applyMigration(Connection conn, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            // foreign_keys cannot change inside a transaction, and must be off while
+            // tables are dropped and renamed or the DROP would cascade
+            if (migration.rebuildsTables) {
+                stmt.execute("PRAGMA foreign_keys = OFF");
+            }
+            conn.setAutoCommit(false);
+            try {
+                for (String sql : migration.statements) {
+                    stmt.execute(sql);
+                    if (sql.startsWith("DELETE") && stmt.getUpdateCount() > 0) {
+                        logger.info("Migration {}: removed {} row(s): {}",
+                                migration.version, stmt.getUpdateCount(), sql);
+                    }
+                }
+                if (migration.rebuildsTables) {
+                    reportForeignKeyViolations(stmt, migration);
+                }
+                stmt.execute("PRAGMA user_version = " + migration.version);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Migration " + migration.version + " (" + migration.description
+                        + ") failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(true);
+                if (migration.rebuildsTables) {
+                    stmt.execute("PRAGMA foreign_keys = ON");
+                }
+            }
+        }
+        logger.info("Applied migration {} ({}) in {} ms", migration.version, migration.description,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void reportForeignKeyViolations(Statement stmt, Migration migration) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA foreign_key_check")) {
+            while (rs.next()) {
+                logger.warn("Migration {}: row {} in {} references missing {} row",
+                        migration.version, rs.getLong(2), rs.getString(1), rs.getString(3));
+            }
+        }
+    }
+
+    /**
+     * One ordered schema change.
+     */
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final boolean rebuildsTables;
+        private final String[] statements;
+
+        private Migration(int version, String description, boolean rebuildsTables, String[] statements) {
+            this.version = version;
+            this.description = description;
+            this.rebuildsTables = rebuildsTables;
+            this.statements = statements;
+        }
+    }
 }
@@ -6,7 +6,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,6 +27,27 @@ public final class DBUtil {
     /** JDBC URL for SQLite database. */
     private static final String DB_URL = "jdbc:sqlite:" + DB_PATH;
 
+    /** Maximum number of pooled connections. */
+    private static final int POOL_MAX_SIZE = 8;
+    /** Number of connections opened ahead of time by {@link #warmUp()}. */
+    private static final int POOL_WARM_SIZE = 3;
+    /** How long a caller waits for a free pooled connection. */
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = 30_000;
+    /** How long a connection may be held before it is reported as leaked. */
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = 60_000;
+
+    /** Storage settings applied to every new physical connection. */
+    private static final StorageProfile STORAGE_PROFILE = StorageProfile.load();
+
+    /** Lazily created connection pool; recreated after {@link #shutdown()}. */
+    private static volatile ConnectionPool pool;
+    /** Background WAL checkpointer, running only while the pool is open in WAL mode. */
+    private static ScheduledExecutorService checkpointer;
+    /** Unpooled connection that only reads PRAGMA data_version; see {@link #getDataVersion()}. */
+    private static Connection versionConnection;
+    /** Incremented whenever {@link #versionConnection} is reopened. */
+    private static long versionConnectionGeneration;
+
     static {
         createDatabaseFileIfMissing();
     }
@@ -60,14 +87,179 @@ public final class DBUtil {
     }
 
     /**
-     * Gets a connection to the SQLite database.
+     * Gets a pooled connection to the SQLite database.
      * <p>
-     * Caller is responsible for closing the connection.
+     * Caller is responsible for closing the connection, which returns it to the pool.
      *
      * @return Connection object to the database
      * @throws SQLException if connection fails
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        return pool().getConnection();
+    }
+
+    /**
+     * Opens the pool's initial connections so the first queries do not pay the
+     * cost of opening the database file.
+     *
+     * @throws SQLException if a connection cannot be opened
+     */
+    public static void warmUp() throws SQLException {
+        pool().prewarm(POOL_WARM_SIZE);
+    }
+
+    /**
+     * Gets a snapshot of the connection pool statistics.
+     *
+     * @return current pool statistics
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return pool().getStats();
+    }
+
+    /**
+     * Gets a number that changes whenever another connection, pooled or in another
+     * process, commits a change to the database, so callers can skip re-reading data
+     * that cannot have changed. Reads SQLite's {@code PRAGMA data_version} on a
+     * connection of its own, which costs no disk I/O. Values are only comparable with
+     * each other; after {@link #shutdown()} the value always differs.
+     *
+     * @return the current data version
+     * @throws SQLException if the database cannot be read
+     */
+    public static synchronized long getDataVersion() throws SQLException {
+        if (versionConnection == null) {
+            versionConnection = DriverManager.getConnection(DB_URL);
+            versionConnectionGeneration++;
+        }
+        try (Statement stmt = versionConnection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA data_version")) {
+            rs.next();
+            return (versionConnectionGeneration << 32) | rs.getLong(1);
+        } catch (SQLException e) {
+            // Reopened on the next call
+            try {
+                versionConnection.close();
+            } catch (SQLException ignored) {
+                // Already broken
+            }
+            versionConnection = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the connection pool. Must be called before the database file is
+     * replaced (e.g. on restore) and on application exit. The next call to
+     * {@link #getConnection()} creates a fresh pool.
+     */
+    public static synchronized void shutdown() {
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+            checkpointer = null;
+        }
+        if (versionConnection != null) {
+            try {
+                versionConnection.close();
+            } catch (SQLException e) {
+                logger.debug("Closing data version connection failed: {}", e.getMessage());
+            }
+            versionConnection = null;
+        }
+        if (pool != null) {
+            try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+                // Updates planner statistics for tables whose size changed during this session
+                stmt.execute("PRAGMA optimize");
+            } catch (SQLException e) {
+                logger.warn("PRAGMA optimize failed: {}", e.getMessage());
+            }
+            if (STORAGE_PROFILE.isWal()) {
+                try {
+                    checkpoint("TRUNCATE");
+                } catch (SQLException e) {
+                    logger.warn("Final WAL checkpoint failed: {}", e.getMessage());
+                }
+            }
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /**
+     * Writes a consistent copy of the database, including content still in the WAL, to
+     * a new file using {@code VACUUM INTO}. Writers may keep working while it runs.
+     *
+     * @param target file to create; must not exist yet
+     * @throws SQLException if the copy cannot be written
+     */
+    public static void backupTo(Path target) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement("VACUUM INTO ?")) {
+            ps.setString(1, target.toString());
+            ps.execute();
+        }
+    }
+
+    /**
+     * Gets the storage profile applied to database connections.
+     *
+     * @return active storage profile
+     */
+    public static StorageProfile getStorageProfile() {
+        return STORAGE_PROFILE;
+    }
+
+    private static void checkpoint(String mode) throws SQLException {
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+            if (rs.next() && rs.getInt(1) != 0) {
+                logger.debug("WAL checkpoint ({}) could not complete while readers were active", mode);
+            }
+        }
+    }
+
+    private static synchronized void startCheckpointer() {
+        int interval = STORAGE_PROFILE.getCheckpointIntervalSeconds();
+        if (checkpointer != null || !STORAGE_PROFILE.isWal() || interval <= 0) {
+            return;
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-wal-checkpointer");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint("PASSIVE");
+            } catch (SQLException e) {
+                logger.warn("Background WAL checkpoint failed: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    private static ConnectionPool pool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DBUtil.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(DB_URL, POOL_MAX_SIZE, POOL_BORROW_TIMEOUT_MILLIS,
+                            POOL_LEAK_THRESHOLD_MILLIS, DBUtil::configureConnection);
+                    pool = p;
+                    logger.info("Using {}", STORAGE_PROFILE);
+                    startCheckpointer();
+                }
+            }
+        }
+        return p;
+    }
+
+    private static void configureConnection(Connection conn) throws SQLException {
+        STORAGE_PROFILE.apply(conn);
+        // Foreign keys are off by default in SQLite; cascades depend on them
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON");
+        }
     }
 }
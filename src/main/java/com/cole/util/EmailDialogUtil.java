@@ -1,10 +1,11 @@
 package com.cole.util;
 
+import com.cole.Service.EmailOutbox;
+
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
@@ -12,10 +13,29 @@ public class EmailDialogUtil {
     /** Session password for email operations. */
     private static String sessionPassword = null;
 
+    static {
+        // A rejected password is forgotten, so the next email asks for it again
+        EmailOutbox.shared().addListener(new EmailOutbox.Listener() {
+            @Override
+            public void loginRejected() {
+                Platform.runLater(() -> {
+                    sessionPassword = null;
+                    Alert alert = new Alert(Alert.AlertType.WARNING);
+                    alert.setTitle("Email Login Rejected");
+                    alert.setHeaderText(null);
+                    alert.setContentText("The email server rejected your password. Queued emails will be sent "
+                            + "once you enter it again.");
+                    alert.show();
+                });
+            }
+        });
+    }
+
     /**
      * Gets the session password for email operations.
      * If the password is already set, it returns the existing value.
      * Otherwise, it prompts the user to enter their email password.
+     * The password is also handed to the email outbox, which sends queued emails with it.
      *
      * @param owner the owner stage for the dialog
      * @return the email password entered by the user
@@ -84,6 +104,7 @@ public class EmailDialogUtil {
         String result = dialog.showAndWait().orElse(null);
         if (result != null && !result.isEmpty()) {
             sessionPassword = result;
+            EmailOutbox.shared().setPassword(result);
         }
         return sessionPassword;
     }
@@ -98,43 +119,7 @@ public class EmailDialogUtil {
      * @param <T> the type of result produced by the task
      */
     public static <T> void showEmailProgressDialog(Stage owner, Task<T> task, String title) {
-        Dialog<Void> dialog = new Dialog<>();
-        dialog.setTitle(title);
-        dialog.initOwner(owner);
-        dialog.initModality(Modality.APPLICATION_MODAL);
-        dialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
-
-        ProgressBar progressBar = new ProgressBar();
-        progressBar.setPrefWidth(300);
-        progressBar.setPrefHeight(20);
-        progressBar.setStyle("-fx-accent: #2196F3; -fx-background-radius: 10; -fx-border-radius: 10;");
-
-        progressBar.progressProperty().bind(task.progressProperty());
-
-        Label messageLabel = new Label();
-        messageLabel.textProperty().bind(task.messageProperty());
-        messageLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #333;");
-
-        VBox vbox = new VBox(20, progressBar, messageLabel);
-        vbox.setStyle("-fx-padding: 30; -fx-background-color: #f4f4f4; -fx-border-radius: 10; -fx-background-radius: 10;");
-        vbox.setSpacing(20);
-        vbox.setPrefWidth(350);
-        vbox.setPrefHeight(120);
-        vbox.setAlignment(javafx.geometry.Pos.CENTER);
-
-        dialog.getDialogPane().setContent(vbox);
-
-        dialog.setOnCloseRequest(e -> task.cancel());
-
-        Thread thread = new Thread(task);
-        thread.setDaemon(true);
-        thread.start();
-
-        task.setOnSucceeded(e -> dialog.close());
-        task.setOnFailed(e -> dialog.close());
-        task.setOnCancelled(e -> dialog.close());
-
-        dialog.showAndWait();
+        ProgressDialogUtil.show(owner, task, title, BackgroundTasks.Lane.EMAIL);
     }
 
     /**
@@ -143,5 +128,6 @@ public class EmailDialogUtil {
      */
     public static void clearSessionPassword() {
         sessionPassword = null;
+        EmailOutbox.shared().setPassword(null);
     }
 }
@@ -0,0 +1,174 @@
+package com.cole.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.collections.ObservableListBase;
+import javafx.concurrent.Task;
+import javafx.scene.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only list of a known size whose rows are loaded in pages on demand, for use as
+ * the items of a {@code TableView} or {@code ListView}.
+ * <p>
+ * {@link #get(int)} returns null for rows that are not loaded yet and starts loading
+ * their page on the {@link BackgroundTasks.Lane#DB} lane; when the page arrives a
+ * replace change is fired so the visible cells refresh. The page after each loaded page
+ * is prefetched. Only the most recently used pages are kept in memory. A page whose load
+ * failed is not requested again for {@value #RETRY_DELAY_MILLIS} ms.
+ * <p>
+ * Pages are fetched with a keyset cursor (the last row of the previous page). When the
+ * previous page is not loaded, e.g. after dragging the scrollbar, the cursor row is
+ * looked up by position first. Must only be used from the JavaFX Application Thread.
+ *
+ * @param <T> row type
+ */
+public final class PagedList<T> extends ObservableListBase<T> {
+    /** SLF4J logger for PagedList operations. */
+    private static final Logger logger = LoggerFactory.getLogger(PagedList.class);
+
+    /** How long a page whose load failed is left alone before it is requested again. */
+    static final long RETRY_DELAY_MILLIS = 5_000;
+
+    /**
+     * Supplies pages of rows in display order. Called on a background thread.
+     *
+     * @param <T> row type
+     */
+    public interface PageSource<T> {
+        /**
+         * @param after last row of the previous page, or null for the first page
+         * @param limit maximum number of rows
+         * @return rows following {@code after}
+         */
+        List<T> fetchAfter(T after, int limit) throws Exception;
+
+        /**
+         * @param position zero-based row position
+         * @return the row at that position, or null if past the end
+         */
+        T fetchAt(int position) throws Exception;
+    }
+
+    private final int size;
+    private final int pageSize;
+    private final PageSource<T> source;
+    private final Node owner;
+    private final Map<Integer, List<T>> pages;
+    private final Map<Integer, Task<List<T>>> loading = new HashMap<>();
+    /** When each page last failed to load, by page number. */
+    private final Map<Integer, Long> failedAt = new HashMap<>();
+
+    /**
+     * @param size total number of rows
+     * @param pageSize rows per page
+     * @param maxPages pages kept in memory before the least recently used is dropped
+     * @param source loader for pages
+     * @param owner view node; loads are cancelled when it leaves its scene
+     */
+    public PagedList(int size, int pageSize, int maxPages, PageSource<T> source, Node owner) {
+        this.size = size;
+        this.pageSize = pageSize;
+        this.source = source;
+        this.owner = owner;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        int page = index / pageSize;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page, true);
+            return null;
+        }
+        int offset = index % pageSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether a row has been loaded.
+     *
+     * @param index row index
+     * @return true if {@link #get(int)} would return the row rather than null
+     */
+    public boolean isLoaded(int index) {
+        return pages.containsKey(index / pageSize);
+    }
+
+    /**
+     * Cancels every page load still queued or running. Call when the list is replaced,
+     * e.g. because the search text changed, so stale loads do not hold up new ones.
+     */
+    public void cancelPendingLoads() {
+        for (Task<List<T>> task : List.copyOf(loading.values())) {
+            task.cancel();
+        }
+        loading.clear();
+    }
+
+    private void requestPage(int page, boolean prefetchNext) {
+        int from = page * pageSize;
+        if (from >= size || pages.containsKey(page) || loading.containsKey(page)) {
+            return;
+        }
+        Long failed = failedAt.get(page);
+        if (failed != null && System.currentTimeMillis() - failed < RETRY_DELAY_MILLIS) {
+            return;
+        }
+        List<T> previous = page == 0 ? null : pages.get(page - 1);
+        T cursor = previous == null || previous.isEmpty() ? null : previous.get(previous.size() - 1);
+        boolean seek = page > 0 && cursor == null;
+
+        Task<List<T>> task = new Task<>() {
+            @Override
+            protected List<T> call() throws Exception {
+                T after = seek ? source.fetchAt(from - 1) : cursor;
+                if (page > 0 && after == null) {
+                    return Collections.emptyList();
+                }
+                return source.fetchAfter(after, pageSize);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            loading.remove(page);
+            failedAt.remove(page);
+            List<T> rows = task.getValue();
+            pages.put(page, rows);
+            int to = Math.min(size, from + rows.size());
+            if (to > from) {
+                beginChange();
+                nextReplace(from, to, Collections.nCopies(to - from, null));
+                endChange();
+            }
+            if (prefetchNext) {
+                requestPage(page + 1, false);
+            }
+        });
+        task.setOnFailed(e -> {
+            loading.remove(page);
+            failedAt.put(page, System.currentTimeMillis());
+            logger.error("Failed to load rows {}-{}", from, from + pageSize - 1, task.getException());
+        });
+        task.setOnCancelled(e -> loading.remove(page));
+        loading.put(page, task);
+        BackgroundTasks.submit(BackgroundTasks.Lane.DB, task, owner);
+    }
+}
@@ -0,0 +1,180 @@
+package com.cole.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Image XObjects shared between generated documents.
+ * <p>
+ * Turning a PNG into a PDF image means decoding it and deflating the pixels again,
+ * which cost more than laying out a whole student report. The cache keeps the encoded
+ * image stream (and its transparency mask) of each file, so every further document only
+ * copies bytes. An entry is refreshed when the file changes, and the least recently used
+ * entries are dropped once {@link PdfMemorySettings#getImageCacheBytes()} is exceeded.
+ * Safe to use from several threads.
+ */
+public final class PdfImageCache {
+    private static final Logger logger = LoggerFactory.getLogger(PdfImageCache.class);
+
+    private static final PdfImageCache SHARED = new PdfImageCache(PdfMemorySettings.get().getImageCacheBytes());
+
+    /** An image stream's dictionary and still-encoded data, with its soft mask if any. */
+    private record EncodedImage(COSDictionary dictionary, byte[] data, EncodedImage mask, long lastModified, long length) {
+        long size() {
+            return data.length + (mask != null ? mask.size() : 0);
+        }
+    }
+
+    private final long maxBytes;
+    private final Map<String, EncodedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    PdfImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** @return the application-wide cache */
+    public static PdfImageCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Adds an image file to a document.
+     * @param document document the image is drawn in
+     * @param file PNG, JPEG or other image file
+     * @return a new image XObject owned by {@code document}
+     * @throws IOException if the file cannot be read as an image
+     */
+    public PDImageXObject get(PDDocument document, File file) throws IOException {
+        EncodedImage image = encoded(file);
+        if (image == null) {
+            return PDImageXObject.createFromFileByContent(file, document);
+        }
+        return new PDImageXObject(new PDStream(copy(document, image)), null);
+    }
+
+    private EncodedImage encoded(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (this) {
+            EncodedImage image = images.get(key);
+            if (image != null && image.lastModified() == lastModified && image.length() == length) {
+                return image;
+            }
+        }
+        EncodedImage image;
+        try (PDDocument scratch = new PDDocument()) {
+            image = encode(PDImageXObject.createFromFileByContent(file, scratch).getCOSObject(), lastModified, length);
+        }
+        if (image == null || image.size() > maxBytes) {
+            // Not cacheable; the caller embeds the file directly
+            return null;
+        }
+        synchronized (this) {
+            EncodedImage previous = images.put(key, image);
+            cachedBytes += image.size() - (previous != null ? previous.size() : 0);
+            Iterator<EncodedImage> eldest = images.values().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                cachedBytes -= eldest.next().size();
+                eldest.remove();
+            }
+        }
+        logger.debug("Cached PDF image {} ({} bytes)", key, image.size());
+        return image;
+    }
+
+    private static EncodedImage encode(COSStream stream, long lastModified, long length) throws IOException {
+        COSDictionary dictionary = new COSDictionary();
+        EncodedImage mask = null;
+        for (Map.Entry<COSName, COSBase> entry : stream.entrySet()) {
+            COSName key = entry.getKey();
+            COSBase value = entry.getValue() instanceof COSObject o ? o.getObject() : entry.getValue();
+            if (COSName.LENGTH.equals(key)) {
+                continue;
+            }
+            if (COSName.SMASK.equals(key) && value instanceof COSStream maskStream) {
+                mask = encode(maskStream, lastModified, length);
+                if (mask == null) {
+                    return null;
+                }
+                continue;
+            }
+            COSBase copy = copyDirect(value);
+            if (copy == null) {
+                return null;
+            }
+            dictionary.setItem(key, copy);
+        }
+        byte[] data;
+        try (InputStream in = stream.createRawInputStream()) {
+            data = in.readAllBytes();
+        }
+        return new EncodedImage(dictionary, data, mask, lastModified, length);
+    }
+
+    private static COSStream copy(PDDocument document, EncodedImage image) throws IOException {
+        COSStream stream = document.getDocument().createCOSStream();
+        for (Map.Entry<COSName, COSBase> entry : image.dictionary().entrySet()) {
+            stream.setItem(entry.getKey(), copyDirect(entry.getValue()));
+        }
+        try (OutputStream out = stream.createRawOutputStream()) {
+            out.write(image.data());
+        }
+        if (image.mask() != null) {
+            stream.setItem(COSName.SMASK, copy(document, image.mask()));
+        }
+        return stream;
+    }
+
+    /**
+     * Deep copy of a direct object, so no document ever shares a mutable object with
+     * another. Returns null for anything that would need to be an indirect object.
+     */
+    private static COSBase copyDirect(COSBase value) {
+        if (value instanceof COSStream || value instanceof COSObject) {
+            return null;
+        }
+        if (value instanceof COSArray array) {
+            COSArray copy = new COSArray();
+            for (int i = 0; i < array.size(); i++) {
+                COSBase item = copyDirect(array.getObject(i));
+                if (item == null) {
+                    return null;
+                }
+                copy.add(item);
+            }
+            return copy;
+        }
+        if (value instanceof COSDictionary dictionary) {
+            COSDictionary copy = new COSDictionary();
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                COSBase item = copyDirect(entry.getValue());
+                if (item == null) {
+                    return null;
+                }
+                copy.setItem(entry.getKey(), item);
+            }
+            return copy;
+        }
+        // Names, numbers, booleans and strings are never modified once written
+        return value;
+    }
+}
@@ -0,0 +1,322 @@
+package com.cole.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * Lays out a PDF document page by page.
+ * <p>
+ * The caller's content is laid out twice: a first pass only counts pages, then a second
+ * pass draws straight into each page's content stream, so page numbers such as
+ * "Page 1 of 3" are drawn with the page itself. Only the page being drawn is open; a
+ * finished page is closed before the next starts, and with a
+ * {@link PdfMemorySettings#newDocument() memory-limited document} its content moves to
+ * the scratch file. Text is measured with {@link FontMetrics}, which caches the width of
+ * every glyph up front instead of asking PDFBox to encode and measure the whole string
+ * each time. Images are added once per document and drawn from there on every page that
+ * shows them, with their encoded data shared between documents through
+ * {@link PdfImageCache}.
+ * <p>
+ * Typical use:
+ * <pre>{@code
+ * PdfLayout.render(document, PDRectangle.A4, layout -> {
+ *     layout.text(metrics, 12, 50, 770, "Hello");
+ *     layout.newPage();
+ *     ...
+ * }, (cs, page, pages) -> ...);
+ * }</pre>
+ */
+public final class PdfLayout {
+
+    /** Lays out a document by calling the layout's drawing methods. */
+    @FunctionalInterface
+    public interface Content {
+        void layOut(PdfLayout layout) throws IOException;
+    }
+
+    /** One drawing step on the current page. */
+    @FunctionalInterface
+    public interface Op {
+        void draw(PDPageContentStream contentStream, PDDocument document) throws IOException;
+    }
+
+    /** Draws what every page repeats, such as "Page 1 of 3". */
+    @FunctionalInterface
+    public interface PageDecoration {
+        /**
+         * @param contentStream the page's content stream, after its own content
+         * @param pageNumber 1-based page number
+         * @param pageCount total number of pages
+         */
+        void draw(PDPageContentStream contentStream, int pageNumber, int pageCount) throws IOException;
+    }
+
+    /**
+     * Glyph widths of a standard 14 font in WinAnsi encoding, looked up once.
+     * <p>
+     * Constructing the metrics also fills PDFBox's own lazily built encoding and width
+     * caches for every glyph. Those are plain HashMaps on the shared {@code PDType1Font}
+     * constants, so once they are full, fonts can be used from several threads at once.
+     * Instances are immutable and safe to share.
+     */
+    public static final class FontMetrics {
+        private final PDType1Font font;
+        private final float[] latinWidths = new float[256];
+        private final Map<Character, Float> otherWidths = new HashMap<>();
+        private final float fallbackWidth;
+
+        /** @param font font to measure, e.g. {@code PDType1Font.HELVETICA} */
+        public FontMetrics(PDType1Font font) {
+            this.font = font;
+            GlyphList glyphs = GlyphList.getAdobeGlyphList();
+            float fallback = 0;
+            for (int code = 0; code < 256; code++) {
+                String unicode = glyphs.toUnicode(WinAnsiEncoding.INSTANCE.getName(code));
+                if (unicode == null || unicode.length() != 1) {
+                    continue;
+                }
+                float width;
+                try {
+                    width = font.getStringWidth(unicode);
+                } catch (IOException | IllegalArgumentException e) {
+                    // Not encodable in this font
+                    continue;
+                }
+                char c = unicode.charAt(0);
+                if (c < latinWidths.length) {
+                    latinWidths[c] = width;
+                } else {
+                    otherWidths.put(c, width);
+                }
+                if (c == '?') {
+                    fallback = width;
+                }
+            }
+            this.fallbackWidth = fallback;
+        }
+
+        /** @return the measured font */
+        public PDType1Font getFont() {
+            return font;
+        }
+
+        /**
+         * Width of a character in thousandths of the font size. Characters the font cannot
+         * encode are measured as "?"; PDFBox rejects them when the text is drawn.
+         */
+        public float charWidth(char c) {
+            if (c < latinWidths.length) {
+                float width = latinWidths[c];
+                return width > 0 || c == 0 ? width : fallbackWidth;
+            }
+            Float width = otherWidths.get(c);
+            return width != null ? width : fallbackWidth;
+        }
+
+        /** @return width of {@code text} in thousandths of the font size */
+        public float width(CharSequence text, int from, int to) {
+            float width = 0;
+            for (int i = from; i < to; i++) {
+                width += charWidth(text.charAt(i));
+            }
+            return width;
+        }
+
+        /** @return width of {@code text} at {@code fontSize}, in points */
+        public float width(String text, float fontSize) {
+            return width(text, 0, text.length()) / 1000 * fontSize;
+        }
+
+        /**
+         * Breaks text into lines at spaces. Each line is measured once, word by word; a word
+         * wider than {@code maxWidth} gets a line of its own.
+         *
+         * @param text text to wrap
+         * @param fontSize font size the text is measured at
+         * @param maxWidth line width in points
+         * @return the lines, without the spaces they were broken at
+         */
+        public List<String> wrap(String text, float fontSize, float maxWidth) {
+            List<String> lines = new ArrayList<>();
+            float limit = maxWidth * 1000 / fontSize;
+            float spaceWidth = charWidth(' ');
+            int end = text.length();
+            while (end > 0 && text.charAt(end - 1) == ' ') {
+                end--;
+            }
+            StringBuilder line = new StringBuilder();
+            float lineWidth = 0;
+            int wordStart = 0;
+            while (wordStart <= end && end > 0) {
+                int wordEnd = text.indexOf(' ', wordStart);
+                if (wordEnd < 0 || wordEnd > end) {
+                    wordEnd = end;
+                }
+                float wordWidth = width(text, wordStart, wordEnd);
+                float testWidth = line.length() == 0 ? wordWidth : lineWidth + spaceWidth + wordWidth;
+                if (testWidth > limit) {
+                    if (line.length() > 0) {
+                        lines.add(line.toString());
+                        line.setLength(0);
+                        line.append(text, wordStart, wordEnd);
+                        lineWidth = wordWidth;
+                    } else {
+                        lines.add(text.substring(wordStart, wordEnd));
+                        lineWidth = 0;
+                    }
+                } else {
+                    if (line.length() > 0) {
+                        line.append(' ');
+                    }
+                    line.append(text, wordStart, wordEnd);
+                    lineWidth = testWidth;
+                }
+                wordStart = wordEnd + 1;
+            }
+            if (line.length() > 0) {
+                lines.add(line.toString());
+            }
+            return lines;
+        }
+    }
+
+    /** Null while counting pages. */
+    private final PDDocument document;
+    private final PDRectangle pageSize;
+    private final PageDecoration decoration;
+    private final int pageCount;
+    /** Images already added to the document. */
+    private final Map<File, PDImageXObject> images = new HashMap<>();
+    private PDPageContentStream contentStream;
+    private int pageNumber = 1;
+
+    private PdfLayout(PDDocument document, PDRectangle pageSize, PageDecoration decoration, int pageCount) {
+        this.document = document;
+        this.pageSize = pageSize;
+        this.decoration = decoration;
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Lays out content and writes it into a document. The content is laid out twice:
+     * once to count the pages, then again to draw them, so it must lay out the same way
+     * both times.
+     *
+     * @param document document to add the pages to
+     * @param pageSize media box of every page
+     * @param content lays out the document, starting on page 1
+     * @param decoration drawn last on every page; may be null
+     * @return number of pages written
+     */
+    public static int render(PDDocument document, PDRectangle pageSize, Content content,
+                             PageDecoration decoration) throws IOException {
+        PdfLayout counter = new PdfLayout(null, pageSize, null, 0);
+        content.layOut(counter);
+        int pageCount = counter.pageNumber;
+
+        PdfLayout writer = new PdfLayout(document, pageSize, decoration, pageCount);
+        writer.openPage();
+        content.layOut(writer);
+        writer.closePage();
+        return pageCount;
+    }
+
+    /** Starts a new page; later steps are drawn on it. */
+    public void newPage() throws IOException {
+        if (document != null) {
+            closePage();
+            pageNumber++;
+            openPage();
+        } else {
+            pageNumber++;
+        }
+    }
+
+    /** @return 1-based number of the page being laid out */
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /** Draws on the current page; skipped while pages are being counted. */
+    public void add(Op op) throws IOException {
+        if (document != null) {
+            op.draw(contentStream, document);
+        }
+    }
+
+    /**
+     * Draws a single line of text on the current page.
+     * @param metrics font to draw with
+     * @param fontSize font size
+     * @param x left edge of the text
+     * @param y baseline
+     * @param text text; null draws nothing
+     */
+    public void text(FontMetrics metrics, float fontSize, float x, float y, String text) throws IOException {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        add((cs, doc) -> {
+            cs.beginText();
+            cs.setFont(metrics.getFont(), fontSize);
+            cs.newLineAtOffset(x, y);
+            cs.showText(text);
+            cs.endText();
+        });
+    }
+
+    /**
+     * Draws an image on the current page.
+     * @param file image file
+     * @param x left edge
+     * @param y bottom edge
+     * @param width drawn width
+     * @param height drawn height
+     */
+    public void image(File file, float x, float y, float width, float height) throws IOException {
+        add((cs, doc) -> drawImage(cs, doc, file, x, y, width, height));
+    }
+
+    /**
+     * Draws an image from within a drawing step. Each file is added to the document only
+     * once however often it is drawn.
+     * @throws IOException if the file cannot be read as an image
+     */
+    public void drawImage(PDPageContentStream contentStream, PDDocument document, File file,
+                          float x, float y, float width, float height) throws IOException {
+        PDImageXObject image = images.get(file);
+        if (image == null) {
+            image = PdfImageCache.shared().get(document, file);
+            images.put(file, image);
+        }
+        contentStream.drawImage(image, x, y, width, height);
+    }
+
+    private void openPage() throws IOException {
+        PDPage page = new PDPage(pageSize);
+        document.addPage(page);
+        contentStream = new PDPageContentStream(document, page);
+    }
+
+    /** Finishes the current page; its content no longer needs to stay in memory. */
+    private void closePage() throws IOException {
+        if (decoration != null) {
+            decoration.draw(contentStream, pageNumber, pageCount);
+        }
+        contentStream.close();
+        contentStream = null;
+    }
+}
@@ -0,0 +1,96 @@
+package com.cole.util;
+
+import java.io.File;
+
+import com.cole.Service.ConfigService;
+import com.cole.Service.ConfigService.ConfigFile;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Heap limits for generated PDFs.
+ * <p>
+ * Each document keeps at most {@code pdf.max_heap_mb} of page content and images in
+ * memory; anything beyond that is paged out to a scratch file, so a report with years
+ * of notes costs disk space rather than heap. Encoded images shared between documents
+ * (see {@link PdfImageCache}) are capped at {@code pdf.image_cache_mb}. Values can be
+ * overridden in {@code report_settings.properties} ({@link ConfigFile#REPORT}).
+ */
+public final class PdfMemorySettings {
+    private static final Logger logger = LoggerFactory.getLogger(PdfMemorySettings.class);
+
+    private static final long MB = 1024L * 1024;
+
+    private final long maxHeapBytes;
+    private final long imageCacheBytes;
+    private final File scratchDirectory;
+
+    private PdfMemorySettings(long maxHeapBytes, long imageCacheBytes, File scratchDirectory) {
+        this.maxHeapBytes = maxHeapBytes;
+        this.imageCacheBytes = imageCacheBytes;
+        this.scratchDirectory = scratchDirectory;
+    }
+
+    private static final class Holder {
+        static final PdfMemorySettings INSTANCE = load();
+    }
+
+    /** @return settings read on first use */
+    public static PdfMemorySettings get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Defaults: 8 MB of heap per document, 16 MB of cached images, scratch files in the
+     * system temporary directory.
+     */
+    public static PdfMemorySettings defaults() {
+        return new PdfMemorySettings(8 * MB, 16 * MB, null);
+    }
+
+    /**
+     * Reads the settings from {@link ConfigFile#REPORT}; values that are missing or
+     * invalid keep their defaults.
+     */
+    public static PdfMemorySettings load() {
+        PdfMemorySettings base = defaults();
+        ConfigService config = ConfigService.shared();
+        String scratch = config.get(ConfigFile.REPORT, "pdf.scratch_dir", "");
+        File scratchDirectory = base.scratchDirectory;
+        if (!scratch.isBlank()) {
+            File dir = new File(scratch.trim());
+            if (dir.isDirectory() && dir.canWrite()) {
+                scratchDirectory = dir;
+            } else {
+                logger.warn("Ignoring pdf.scratch_dir={} in {}: not a writable directory", scratch,
+                        ConfigFile.REPORT.getFileName());
+            }
+        }
+        PdfMemorySettings settings = new PdfMemorySettings(
+                config.getLong(ConfigFile.REPORT, "pdf.max_heap_mb", base.maxHeapBytes / MB) * MB,
+                config.getLong(ConfigFile.REPORT, "pdf.image_cache_mb", base.imageCacheBytes / MB) * MB,
+                scratchDirectory);
+        logger.info("Using {}", settings);
+        return settings;
+    }
+
+    /**
+     * Creates an empty document that spills to a scratch file beyond the heap limit.
+     * The scratch file is deleted when the document is closed.
+     */
+    public PDDocument newDocument() {
+        return new PDDocument(MemoryUsageSetting.setupMixed(maxHeapBytes).setTempDir(scratchDirectory));
+    }
+
+    public long getMaxHeapBytes() { return maxHeapBytes; }
+    public long getImageCacheBytes() { return imageCacheBytes; }
+    public File getScratchDirectory() { return scratchDirectory; }
+
+    @Override
+    public String toString() {
+        return "PdfMemorySettings[max_heap=" + maxHeapBytes / MB + " MB, image_cache=" + imageCacheBytes / MB
+                + " MB, scratch_dir=" + (scratchDirectory != null ? scratchDirectory : System.getProperty("java.io.tmpdir")) + "]";
+    }
+}
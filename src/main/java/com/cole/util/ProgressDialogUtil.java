@@ -0,0 +1,75 @@
+package com.cole.util;
+
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * Modal progress dialog for long-running background tasks.
+ */
+public class ProgressDialogUtil {
+
+    private ProgressDialogUtil() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Runs a task in a {@link BackgroundTasks} lane and shows its progress and message in
+     * a modal dialog until it finishes. Closing the dialog or pressing Cancel cancels the
+     * task. The task's own onSucceeded/onFailed handlers are left in place and run after
+     * the dialog has closed.
+     *
+     * @param owner the owner stage for the dialog
+     * @param task the task to run
+     * @param title the title of the dialog
+     * @param lane lane to run the task in
+     * @param <T> the type of result produced by the task
+     */
+    public static <T> void show(Stage owner, Task<T> task, String title, BackgroundTasks.Lane lane) {
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle(title);
+        dialog.initOwner(owner);
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.setPrefHeight(20);
+        progressBar.setStyle("-fx-accent: #2196F3; -fx-background-radius: 10; -fx-border-radius: 10;");
+
+        progressBar.progressProperty().bind(task.progressProperty());
+
+        Label messageLabel = new Label();
+        messageLabel.textProperty().bind(task.messageProperty());
+        messageLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #333;");
+
+        VBox vbox = new VBox(20, progressBar, messageLabel);
+        vbox.setStyle("-fx-padding: 30; -fx-background-color: #f4f4f4; -fx-border-radius: 10; -fx-background-radius: 10;");
+        vbox.setSpacing(20);
+        vbox.setPrefWidth(350);
+        vbox.setPrefHeight(120);
+        vbox.setAlignment(javafx.geometry.Pos.CENTER);
+
+        dialog.getDialogPane().setContent(vbox);
+
+        dialog.setOnCloseRequest(e -> task.cancel());
+
+        // Added as handlers rather than set as onSucceeded etc. so the caller's are kept
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> dialog.close());
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> dialog.close());
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> dialog.close());
+
+        BackgroundTasks.submit(lane, task);
+
+        if (task.isDone()) {
+            return;
+        }
+        dialog.showAndWait();
+    }
+}
@@ -0,0 +1,182 @@
+package com.cole.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs application startup work as named background stages.
+ * <p>
+ * Each stage starts as soon as the stages it depends on have finished, so independent
+ * stages run in parallel. A stage whose dependency failed is not run and fails with the
+ * same cause. Wall-clock time is recorded per stage and logged once all stages are done.
+ * <p>
+ * Register every stage with {@link #stage(String, StageTask, String...)} before calling
+ * {@link #start()}; dependencies must be registered before the stages that need them.
+ */
+public final class StartupPipeline {
+    /** SLF4J logger for StartupPipeline operations. */
+    private static final Logger logger = LoggerFactory.getLogger(StartupPipeline.class);
+
+    /** Work performed by one stage. */
+    @FunctionalInterface
+    public interface StageTask {
+        void run() throws Exception;
+    }
+
+    private final Map<String, StageDefinition> definitions = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+    private final Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final ExecutorService executor;
+    private volatile boolean started;
+
+    /**
+     * Creates a pipeline backed by a small pool of daemon threads.
+     */
+    public StartupPipeline() {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(
+                Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), r -> {
+                    Thread t = new Thread(r, "startup-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Registers a stage.
+     *
+     * @param name unique stage name
+     * @param task work to run
+     * @param dependsOn names of stages that must finish first
+     * @return this pipeline, for chaining
+     */
+    public synchronized StartupPipeline stage(String name, StageTask task, String... dependsOn) {
+        if (started) {
+            throw new IllegalStateException("Pipeline already started");
+        }
+        if (definitions.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate stage: " + name);
+        }
+        for (String dependency : dependsOn) {
+            if (!definitions.containsKey(dependency)) {
+                throw new IllegalArgumentException("Stage " + name + " depends on unknown stage " + dependency);
+            }
+        }
+        definitions.put(name, new StageDefinition(name, task, dependsOn));
+        return this;
+    }
+
+    /**
+     * Starts all registered stages. Returns immediately.
+     *
+     * @return future completed when every stage has finished
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (started) {
+            throw new IllegalStateException("Pipeline already started");
+        }
+        started = true;
+        long pipelineStart = System.nanoTime();
+        for (StageDefinition definition : definitions.values()) {
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            for (String dependency : definition.dependsOn) {
+                dependencies.add(futures.get(dependency));
+            }
+            CompletableFuture<Void> future = CompletableFuture
+                    .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                    .thenRunAsync(() -> runStage(definition), executor);
+            futures.put(definition.name, future);
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]));
+        all.whenComplete((ignored, error) -> {
+            logger.info("Startup finished in {} ms, stage timings (ms): {}",
+                    (System.nanoTime() - pipelineStart) / 1_000_000, getTimings());
+            executor.shutdown();
+        });
+        return all;
+    }
+
+    /**
+     * Gets the future for a stage, for callers that want to react when it completes.
+     *
+     * @param name stage name
+     * @return future completed when the stage has finished
+     */
+    public synchronized CompletableFuture<Void> getStage(String name) {
+        CompletableFuture<Void> future = futures.get(name);
+        if (future == null) {
+            throw new IllegalArgumentException("Unknown or not yet started stage: " + name);
+        }
+        return future;
+    }
+
+    /**
+     * Blocks until a stage has finished. Must not be called on the JavaFX Application Thread.
+     *
+     * @param name stage name
+     * @throws Exception the stage's failure cause, if it failed
+     */
+    public void awaitStage(String name) throws Exception {
+        try {
+            getStage(name).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the recorded duration of every stage that has finished.
+     *
+     * @return stage name to duration in milliseconds, in completion order
+     */
+    public Map<String, Long> getTimings() {
+        synchronized (timings) {
+            return new LinkedHashMap<>(timings);
+        }
+    }
+
+    private void runStage(StageDefinition definition) {
+        long start = System.nanoTime();
+        try {
+            definition.task.run();
+        } catch (Exception e) {
+            logger.error("Startup stage '{}' failed", definition.name, e);
+            throw new CompletionException(e);
+        } finally {
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            timings.put(definition.name, elapsed);
+            logger.info("Startup stage '{}' finished in {} ms", definition.name, elapsed);
+        }
+    }
+
+    /**
+     * A registered stage.
+     */
+    private static final class StageDefinition {
+        private final String name;
+        private final StageTask task;
+        private final String[] dependsOn;
+
+        private StageDefinition(String name, StageTask task, String[] dependsOn) {
+            this.name = name;
+            this.task = task;
+            this.dependsOn = dependsOn;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.cole.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SQLite storage settings applied to every pooled connection.
+ * <p>
+ * The {@link #tuned()} profile enables WAL so readers no longer block behind writers,
+ * relaxes {@code synchronous} to NORMAL (still durable across application crashes in
+ * WAL mode), and enlarges the page cache and memory map. Any value can be overridden
+ * in {@value #PROFILE_FILE}.
+ */
+public final class StorageProfile {
+    /** SLF4J logger for StorageProfile operations. */
+    private static final Logger logger = LoggerFactory.getLogger(StorageProfile.class);
+
+    /** Optional properties file overriding the tuned profile. */
+    public static final String PROFILE_FILE = "database/storage.properties";
+
+    private final String journalMode;
+    private final String synchronous;
+    private final int cacheSizeKb;
+    private final long mmapSizeBytes;
+    private final String tempStore;
+    private final int busyTimeoutMillis;
+    private final int checkpointIntervalSeconds;
+
+    private StorageProfile(String journalMode, String synchronous, int cacheSizeKb, long mmapSizeBytes,
+                           String tempStore, int busyTimeoutMillis, int checkpointIntervalSeconds) {
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.cacheSizeKb = cacheSizeKb;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.tempStore = tempStore;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+    }
+
+    /**
+     * WAL mode with NORMAL sync, 16 MB page cache, 128 MB memory map and in-memory
+     * temp tables. The WAL is checkpointed in the background every 60 seconds.
+     *
+     * @return tuned profile
+     */
+    public static StorageProfile tuned() {
+        return new StorageProfile("WAL", "NORMAL", 16_000, 128L * 1024 * 1024, "MEMORY", 5_000, 60);
+    }
+
+    /**
+     * Loads the tuned profile, applying any overrides from {@value #PROFILE_FILE}.
+     * Invalid or missing values fall back to the tuned defaults.
+     *
+     * @return profile to use for the application database
+     */
+    public static StorageProfile load() {
+        StorageProfile base = tuned();
+        Path path = Paths.get(PROFILE_FILE);
+        if (!Files.exists(path)) {
+            return base;
+        }
+        Properties props = new Properties();
+        try (FileInputStream fis = new FileInputStream(path.toFile())) {
+            props.load(fis);
+        } catch (IOException e) {
+            logger.warn("Could not read {}, using tuned storage profile: {}", PROFILE_FILE, e.getMessage());
+            return base;
+        }
+        StorageProfile profile = new StorageProfile(
+                choice(props, "journal_mode", base.journalMode, "DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF"),
+                choice(props, "synchronous", base.synchronous, "OFF", "NORMAL", "FULL", "EXTRA"),
+                (int) number(props, "cache_size_kb", base.cacheSizeKb),
+                number(props, "mmap_size", base.mmapSizeBytes),
+                choice(props, "temp_store", base.tempStore, "DEFAULT", "FILE", "MEMORY"),
+                (int) number(props, "busy_timeout", base.busyTimeoutMillis),
+                (int) number(props, "checkpoint_interval_seconds", base.checkpointIntervalSeconds));
+        logger.info("Loaded storage profile from {}: {}", PROFILE_FILE, profile);
+        return profile;
+    }
+
+    /**
+     * Builds the PRAGMA statements for this profile, in the order they must run.
+     *
+     * @return PRAGMA statements
+     */
+    public List<String> toPragmas() {
+        List<String> pragmas = new ArrayList<>();
+        // busy_timeout first so the journal_mode switch itself waits on a busy database
+        pragmas.add("PRAGMA busy_timeout = " + busyTimeoutMillis);
+        pragmas.add("PRAGMA journal_mode = " + journalMode);
+        pragmas.add("PRAGMA synchronous = " + synchronous);
+        // Negative cache_size is measured in KiB rather than pages
+        pragmas.add("PRAGMA cache_size = -" + cacheSizeKb);
+        pragmas.add("PRAGMA mmap_size = " + mmapSizeBytes);
+        pragmas.add("PRAGMA temp_store = " + tempStore);
+        return pragmas;
+    }
+
+    /**
+     * Applies this profile to a connection.
+     *
+     * @param conn connection to configure
+     * @throws SQLException if a PRAGMA fails
+     */
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : toPragmas()) {
+                stmt.execute(pragma);
+            }
+        }
+    }
+
+    public boolean isWal() { return "WAL".equals(journalMode); }
+    public String getJournalMode() { return journalMode; }
+    public String getSynchronous() { return synchronous; }
+    public int getCacheSizeKb() { return cacheSizeKb; }
+    public long getMmapSizeBytes() { return mmapSizeBytes; }
+    public String getTempStore() { return tempStore; }
+    public int getBusyTimeoutMillis() { return busyTimeoutMillis; }
+    public int getCheckpointIntervalSeconds() { return checkpointIntervalSeconds; }
+
+    @Override
+    public String toString() {
+        return "StorageProfile[journal_mode=" + journalMode + ", synchronous=" + synchronous
+                + ", cache_size_kb=" + cacheSizeKb + ", mmap_size=" + mmapSizeBytes
+                + ", temp_store=" + tempStore + ", busy_timeout=" + busyTimeoutMillis
+                + ", checkpoint_interval_seconds=" + checkpointIntervalSeconds + "]";
+    }
+
+    private static String choice(Properties props, String key, String fallback, String... allowed) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        String upper = value.trim().toUpperCase(Locale.ROOT);
+        for (String option : allowed) {
+            if (option.equals(upper)) {
+                return option;
+            }
+        }
+        logger.warn("Ignoring invalid {}={} in {}", key, value, PROFILE_FILE);
+        return fallback;
+    }
+
+    private static long number(Properties props, String key, long fallback) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // fall through to warning
+        }
+        logger.warn("Ignoring invalid {}={} in {}", key, value, PROFILE_FILE);
+        return fallback;
+    }
+}
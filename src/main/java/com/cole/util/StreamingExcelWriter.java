@@ -0,0 +1,221 @@
+package com.cole.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a single-sheet .xlsx file row by row with a constant memory footprint.
+ * <p>
+ * Rows are written through an {@link SXSSFWorkbook}: only the last {@value #ROW_WINDOW}
+ * rows are kept in memory and older rows are flushed to a temporary file (left
+ * uncompressed: compressing it roughly doubled export time for little benefit).
+ * Cell styles are created once per {@link CellFormat} and shared by every cell using it.
+ * Column widths are estimated from the text length of the header and the first
+ * {@value #SAMPLE_ROWS} data rows instead of {@code autoSizeColumn}, which measures every
+ * cell with AWT fonts and needs all rows in memory.
+ * <p>
+ * Typical use:
+ * <pre>{@code
+ * try (StreamingExcelWriter out = new StreamingExcelWriter("Sheet", columns)) {
+ *     out.writeTitle("Report", StreamingExcelWriter.CellFormat.TITLE);
+ *     out.writeHeader();
+ *     while (rs.next()) out.writeRow(values);
+ *     out.save(file);
+ * }
+ * }</pre>
+ */
+public final class StreamingExcelWriter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingExcelWriter.class);
+
+    /** Rows kept in memory before being flushed to the temporary file. */
+    static final int ROW_WINDOW = 200;
+    /** Data rows whose text length is used to estimate column widths. */
+    static final int SAMPLE_ROWS = 500;
+    private static final int MIN_WIDTH_CHARS = 8;
+    private static final int MAX_WIDTH_CHARS = 60;
+
+    /**
+     * Font and border settings of a cell. Equal formats share one workbook cell style.
+     *
+     * @param fontName font family
+     * @param points font size in points
+     * @param bold bold font
+     * @param grey grey 25% solid fill
+     * @param alignment horizontal alignment
+     * @param bordered thin border on all sides
+     */
+    public record CellFormat(String fontName, int points, boolean bold, boolean grey,
+                             HorizontalAlignment alignment, boolean bordered) {
+        /** 14pt bold Arial report title. */
+        public static final CellFormat TITLE = new CellFormat("Arial", 14, true, false, HorizontalAlignment.LEFT, false);
+        /** 10pt bold Arial on grey, centred and bordered. */
+        public static final CellFormat HEADER = new CellFormat("Arial", 10, true, true, HorizontalAlignment.CENTER, true);
+        /** 10pt Arial, bordered. */
+        public static final CellFormat DATA = new CellFormat("Arial", 10, false, false, HorizontalAlignment.GENERAL, true);
+    }
+
+    private final SXSSFWorkbook workbook;
+    private final SXSSFSheet sheet;
+    private final String[] columns;
+    private final Map<CellFormat, CellStyle> styles = new HashMap<>();
+    private final int[] widthChars;
+    private int fixedWidthChars;
+    private int nextRow;
+    private int dataRows;
+
+    /**
+     * @param sheetName name of the only sheet
+     * @param columns column headings, which also fix the number of columns
+     */
+    public StreamingExcelWriter(String sheetName, String[] columns) {
+        this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+        this.workbook.setCompressTempFiles(false);
+        this.sheet = workbook.createSheet(sheetName);
+        this.columns = columns.clone();
+        this.widthChars = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            widthChars[i] = columns[i].length();
+        }
+    }
+
+    /**
+     * Uses the same width for every column instead of estimating it from the data.
+     * @param chars width in characters
+     */
+    public void setFixedColumnWidth(int chars) {
+        this.fixedWidthChars = chars;
+    }
+
+    /**
+     * Writes a title in the next row, merged across all columns.
+     * @param title title text
+     * @param format title format; when bordered, the merged cells are bordered too
+     */
+    public void writeTitle(String title, CellFormat format) {
+        int rowIndex = nextRow++;
+        Row row = sheet.createRow(rowIndex);
+        CellStyle style = style(format);
+        Cell cell = row.createCell(0);
+        cell.setCellValue(title);
+        cell.setCellStyle(style);
+        if (format.bordered()) {
+            for (int i = 1; i < columns.length; i++) {
+                row.createCell(i).setCellStyle(style);
+            }
+        }
+        if (columns.length > 1) {
+            sheet.addMergedRegion(new CellRangeAddress(rowIndex, rowIndex, 0, columns.length - 1));
+        }
+    }
+
+    /** Writes the column headings in the next row using {@link CellFormat#HEADER}. */
+    public void writeHeader() {
+        writeCells(columns, style(CellFormat.HEADER));
+    }
+
+    /**
+     * Writes one data row using {@link CellFormat#DATA}.
+     * @param values cell text per column; null is written as an empty cell
+     */
+    public void writeRow(String... values) {
+        if (dataRows++ < SAMPLE_ROWS) {
+            for (int i = 0; i < columns.length && i < values.length; i++) {
+                if (values[i] != null) {
+                    widthChars[i] = Math.max(widthChars[i], values[i].length());
+                }
+            }
+        }
+        writeCells(values, style(CellFormat.DATA));
+    }
+
+    /** @return number of data rows written so far */
+    public int getDataRowCount() {
+        return dataRows;
+    }
+
+    /**
+     * Sets the column widths and writes the workbook to a file.
+     * @param file destination .xlsx file
+     */
+    public void save(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Sets the column widths and writes the workbook to a stream. The stream is not closed.
+     * @param out destination stream
+     */
+    public void write(OutputStream out) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            int chars = fixedWidthChars > 0
+                ? fixedWidthChars
+                : Math.min(MAX_WIDTH_CHARS, Math.max(MIN_WIDTH_CHARS, widthChars[i] + 2));
+            sheet.setColumnWidth(i, chars * 256);
+        }
+        workbook.write(out);
+    }
+
+    /** Deletes the temporary files backing the flushed rows. */
+    @Override
+    public void close() throws IOException {
+        if (!workbook.dispose()) {
+            logger.warn("Could not delete all temporary files of streamed workbook");
+        }
+        workbook.close();
+    }
+
+    private void writeCells(String[] values, CellStyle style) {
+        Row row = sheet.createRow(nextRow++);
+        for (int i = 0; i < columns.length; i++) {
+            Cell cell = row.createCell(i);
+            String value = i < values.length ? values[i] : null;
+            if (value != null) {
+                cell.setCellValue(value);
+            }
+            cell.setCellStyle(style);
+        }
+    }
+
+    private CellStyle style(CellFormat format) {
+        return styles.computeIfAbsent(format, f -> {
+            CellStyle style = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setFontName(f.fontName());
+            font.setFontHeightInPoints((short) f.points());
+            font.setBold(f.bold());
+            style.setFont(font);
+            style.setAlignment(f.alignment());
+            if (f.grey()) {
+                style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+                style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            }
+            if (f.bordered()) {
+                style.setBorderTop(BorderStyle.THIN);
+                style.setBorderBottom(BorderStyle.THIN);
+                style.setBorderLeft(BorderStyle.THIN);
+                style.setBorderRight(BorderStyle.THIN);
+            }
+            return style;
+        });
+    }
+}
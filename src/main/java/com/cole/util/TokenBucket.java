@@ -0,0 +1,55 @@
+package com.cole.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket rate limiter.
+ * <p>
+ * Tokens are added at a steady rate up to a fixed capacity, and each {@link #acquire()}
+ * takes one, waiting if none is left. A full bucket lets a short burst through at once;
+ * after that callers are held to the steady rate. Safe to use from several threads;
+ * waiting callers are served in no particular order.
+ */
+public final class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param permitsPerSecond steady rate; must be positive
+     * @param burst most permits handed out at once after an idle period; at least 1
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes one permit, waiting until one is available.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /** Takes a permit if one is available; otherwise returns how long until one will be. */
+    private synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+}